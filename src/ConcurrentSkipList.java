@@ -0,0 +1,538 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * A lock-free implementation of skip lists. Uses the same tower/level design as SkipList, but
+ * every next pointer is an AtomicMarkableReference, so we can link nodes in with compare-and-set
+ * and logically delete them by marking their next pointers before physically unlinking them.
+ *
+ * Readers (get, containsKey, the iterators, forEach) never block and never write. Writers only
+ * contend with each other when they touch the same neighborhood of the list.
+ *
+ * The iterators and forEach are weakly consistent: they reflect the list at some point during
+ * the traversal, and never throw ConcurrentModificationException.
+ */
+public class ConcurrentSkipList<K, V> implements SimpleMap<K, V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The maximum height of a tower. Since nodes can't grow, the head is this tall from the start.
+   */
+  static final int MAX_HEIGHT = 32;
+
+  /**
+   * The value stored in a node once it has been logically removed.
+   */
+  static final Object REMOVED = new Object();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The sentinel at the front of every level. Its key is never examined.
+   */
+  final CSLNode<K, V> head;
+
+  /**
+   * The comparator used to determine the ordering in the list.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * The number of values in the list.
+   */
+  final AtomicInteger size;
+
+  /**
+   * How we pick the heights of new nodes (capped at MAX_HEIGHT).
+   */
+  final LevelGenerator levels;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new concurrent skip list that orders values using the specified comparator.
+   */
+  public ConcurrentSkipList(Comparator<K> comparator) {
+    this(comparator, LevelGenerator.DEFAULT);
+  } // ConcurrentSkipList(Comparator<K>)
+
+  /**
+   * Create a new concurrent skip list that orders values using the specified comparator and
+   * picks node heights with levels. levels is called from every writing thread, so it should
+   * not have a shared seed (LevelGenerator.random is fine).
+   */
+  public ConcurrentSkipList(Comparator<K> comparator, LevelGenerator levels) {
+    this.head = new CSLNode<K, V>(null, null, MAX_HEIGHT);
+    this.comparator = comparator;
+    this.size = new AtomicInteger(0);
+    this.levels = levels.capped(MAX_HEIGHT);
+  } // ConcurrentSkipList(Comparator<K>, LevelGenerator)
+
+  /**
+   * Create a new concurrent skip list that orders values using a not-very-clever default
+   * comparator.
+   */
+  public ConcurrentSkipList() {
+    this((k1, k2) -> k1.toString().compareTo(k2.toString()));
+  } // ConcurrentSkipList()
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key.
+   *
+   * @pre key is not null
+   * @post If key exists in list, change associated value to given value
+   * @post If key not in list, add key/value pair to list
+   * @return the previous value associated with key (or null, if there's no such value)
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V set(K key, V value) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    CSLNode<K, V>[] preds = newTower();
+    CSLNode<K, V>[] succs = newTower();
+    int height = this.randomHeight();
+    while (true) {
+      if (this.find(key, preds, succs)) {
+        CSLNode<K, V> found = succs[0];
+        Object old = found.value.get();
+        while (old != REMOVED) {
+          if (found.value.compareAndSet(old, value)) {
+            return (V) old;
+          } // if we replaced the value
+          old = found.value.get();
+        } // while the node is still live
+        // Someone else is removing the node. Help them, then try again.
+        this.markTower(found);
+        continue;
+      } // if the key is already there
+
+      CSLNode<K, V> setNode = new CSLNode<K, V>(key, value, height);
+      for (int lvl = 0; lvl < height; lvl++) {
+        setNode.next[lvl].set(succs[lvl], false);
+      } // for (initialize new node)
+
+      // The node is in the list once it's linked in at level 0
+      if (!preds[0].next[0].compareAndSet(succs[0], setNode, false, false)) {
+        continue;
+      } // if someone changed level 0 under us
+      this.size.incrementAndGet();
+
+      // Link in the rest of the tower, re-searching whenever we lose a race
+      for (int lvl = 1; lvl < height; lvl++) {
+        while (true) {
+          boolean[] marked = {false};
+          CSLNode<K, V> succ = setNode.next[lvl].get(marked);
+          if (marked[0]) {
+            return null;
+          } // if someone has already started removing the new node
+          if (succ != succs[lvl]
+              && !setNode.next[lvl].compareAndSet(succ, succs[lvl], false, false)) {
+            continue;
+          } // if we couldn't update our own pointer
+          if (preds[lvl].next[lvl].compareAndSet(succs[lvl], setNode, false, false)) {
+            break;
+          } // if linked in
+          this.find(key, preds, succs);
+        } // while
+      } // for each upper level
+      return null;
+    } // while
+  } // set(K,V)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @pre key is not null
+   * @pre key exists in list
+   * @post Returns value associated with key
+   * @throws IndexOutOfBoundsException if the key is not in the map.
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    CSLNode<K, V> node = this.search(key);
+    if (node != null) {
+      Object value = node.value.get();
+      if (value != REMOVED) {
+        return (V) value;
+      } // if
+    } // if
+    throw new IndexOutOfBoundsException("key invalid: " + key);
+  } // get(K)
+
+  /**
+   * Determine how many values are in the map.
+   *
+   * @pre None.
+   * @post Returns the list size (which may be stale by the time the caller sees it)
+   */
+  @Override
+  public int size() {
+    return this.size.get();
+  } // size()
+
+  /**
+   * Determine if a key appears in the table.
+   *
+   * @pre key is not null
+   * @post Returns true if key exists in list, false otherwise
+   * @throws NullPointerException precondition not met
+   */
+  @Override
+  public boolean containsKey(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    CSLNode<K, V> node = this.search(key);
+    return (node != null) && (node.value.get() != REMOVED);
+  } // containsKey(K)
+
+  /**
+   * Remove the value with the given key.
+   *
+   * @pre key is not null
+   * @post Entry with given key removed from list, if present
+   * @return The associated value (or null, if there is no associated value).
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    CSLNode<K, V>[] preds = newTower();
+    CSLNode<K, V>[] succs = newTower();
+    if (!this.find(key, preds, succs)) {
+      return null;
+    } // if key not found
+    CSLNode<K, V> victim = succs[0];
+
+    // Claim the node. Whoever swaps in REMOVED owns the removal.
+    Object old = victim.value.get();
+    while (true) {
+      if (old == REMOVED) {
+        return null;
+      } // if someone else removed it first
+      if (victim.value.compareAndSet(old, REMOVED)) {
+        break;
+      } // if we claimed it
+      old = victim.value.get();
+    } // while
+    this.size.decrementAndGet();
+
+    // Logically delete, then let find do the physical unlinking
+    this.markTower(victim);
+    this.find(key, preds, succs);
+    return (V) old;
+  } // remove(K)
+
+  /**
+   * Get an iterator for all of the keys in the map.
+   */
+  @Override
+  public Iterator<K> keys() {
+    return new Iterator<K>() {
+      Iterator<CSLNode<K, V>> nit = ConcurrentSkipList.this.nodes();
+
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
+
+      @Override
+      public K next() {
+        return nit.next().key;
+      } // next()
+    };
+  } // keys()
+
+  /**
+   * Get an iterator for all of the values in the map.
+   */
+  @Override
+  public Iterator<V> values() {
+    return new Iterator<V>() {
+      CSLNodeIterator nit = ConcurrentSkipList.this.new CSLNodeIterator();
+
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
+
+      @Override
+      public V next() {
+        nit.next();
+        return nit.lastValue();
+      } // next()
+    };
+  } // values()
+
+  /**
+   * Apply a function to each key/value pair.
+   *
+   * @pre None.
+   * @post action applied to each key/value pair that was in the list for the whole traversal,
+   *   and possibly to pairs added or removed during the traversal.
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    CSLNodeIterator it = new CSLNodeIterator();
+    while (it.hasNext()) {
+      K key = it.next().key;
+      action.accept(key, it.lastValue());
+    } // while
+  } // forEach
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Pick a random height for a new node.
+   */
+  int randomHeight() {
+    return this.levels.nextLevel();
+  } // randomHeight()
+
+  /**
+   * Make a fresh array of per-level pointers.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> CSLNode<K, V>[] newTower() {
+    return (CSLNode<K, V>[]) new CSLNode<?, ?>[MAX_HEIGHT];
+  } // newTower()
+
+  /**
+   * Find the predecessors and successors of key at every level, physically unlinking any
+   * marked nodes along the way.
+   *
+   * @post preds[lvl] is the last node at level lvl whose key is less than key (or head)
+   * @post succs[lvl] is the node after preds[lvl] at level lvl (or null)
+   * @return true if succs[0] holds key
+   */
+  boolean find(K key, CSLNode<K, V>[] preds, CSLNode<K, V>[] succs) {
+    boolean[] marked = {false};
+    retry: while (true) {
+      CSLNode<K, V> pred = this.head;
+      CSLNode<K, V> current = null;
+      for (int lvl = MAX_HEIGHT - 1; lvl >= 0; lvl--) {
+        current = pred.next[lvl].getReference();
+        while (current != null) {
+          CSLNode<K, V> succ = current.next[lvl].get(marked);
+          if (marked[0]) {
+            if (!pred.next[lvl].compareAndSet(current, succ, false, false)) {
+              continue retry;
+            } // if pred changed under us
+            current = succ;
+          } // if current is logically deleted, snip it out
+          else if (this.comparator.compare(current.key, key) < 0) {
+            pred = current;
+            current = succ;
+          } // if current < key at level lvl
+          else {
+            break;
+          } // else
+        } // while
+        preds[lvl] = pred;
+        succs[lvl] = current;
+      } // for each level
+      return (current != null) && (this.comparator.compare(current.key, key) == 0);
+    } // while
+  } // find(K, CSLNode<K,V>[], CSLNode<K,V>[])
+
+  /**
+   * Find the node with the given key without modifying the list. Marked nodes are stepped over,
+   * not unlinked.
+   *
+   * @return the node, or null if there is no unmarked node with that key
+   */
+  CSLNode<K, V> search(K key) {
+    boolean[] marked = {false};
+    CSLNode<K, V> pred = this.head;
+    CSLNode<K, V> current = null;
+    for (int lvl = MAX_HEIGHT - 1; lvl >= 0; lvl--) {
+      current = pred.next[lvl].getReference();
+      while (current != null) {
+        CSLNode<K, V> succ = current.next[lvl].get(marked);
+        if (marked[0]) {
+          current = succ;
+        } // if current is logically deleted
+        else if (this.comparator.compare(current.key, key) < 0) {
+          pred = current;
+          current = succ;
+        } // if current < key at level lvl
+        else {
+          break;
+        } // else
+      } // while
+    } // for each level
+    if ((current != null) && (this.comparator.compare(current.key, key) == 0)) {
+      return current;
+    } // if
+    return null;
+  } // search(K)
+
+  /**
+   * Mark every next pointer of a node, top level first, so that no one can link anything after
+   * it. Safe to call more than once, and from more than one thread.
+   */
+  void markTower(CSLNode<K, V> node) {
+    boolean[] marked = {false};
+    for (int lvl = node.next.length - 1; lvl >= 0; lvl--) {
+      CSLNode<K, V> succ = node.next[lvl].get(marked);
+      while (!marked[0]) {
+        node.next[lvl].compareAndSet(succ, succ, false, true);
+        succ = node.next[lvl].get(marked);
+      } // while
+    } // for
+  } // markTower(CSLNode<K,V>)
+
+  /**
+   * Get an iterator for all of the live nodes. (Useful for implementing the other iterators.)
+   */
+  Iterator<CSLNode<K, V>> nodes() {
+    return new CSLNodeIterator();
+  } // nodes()
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A weakly-consistent walk along level 0 that skips removed nodes. Each time we move to a
+   * node we also capture its value, so that callers see a key/value pair that was actually in
+   * the list together.
+   */
+  class CSLNodeIterator implements Iterator<CSLNode<K, V>> {
+    /**
+     * The next node to return.
+     */
+    CSLNode<K, V> next;
+
+    /**
+     * The value of next, read when we moved to it.
+     */
+    Object nextValue;
+
+    /**
+     * The value of the node most recently returned by next().
+     */
+    Object lastValue;
+
+    /**
+     * Start at the front of the list.
+     */
+    CSLNodeIterator() {
+      this.next = ConcurrentSkipList.this.head;
+      this.advance();
+    } // CSLNodeIterator()
+
+    @Override
+    public boolean hasNext() {
+      return this.next != null;
+    } // hasNext()
+
+    @Override
+    public CSLNode<K, V> next() {
+      if (this.next == null) {
+        throw new NoSuchElementException();
+      } // if
+      CSLNode<K, V> temp = this.next;
+      this.lastValue = this.nextValue;
+      this.advance();
+      return temp;
+    } // next()
+
+    /**
+     * Get the value that goes with the node most recently returned by next().
+     */
+    @SuppressWarnings("unchecked")
+    V lastValue() {
+      return (V) this.lastValue;
+    } // lastValue()
+
+    /**
+     * Move next to the following live node.
+     */
+    void advance() {
+      CSLNode<K, V> current = this.next.next[0].getReference();
+      while (current != null) {
+        Object value = current.value.get();
+        if (value != REMOVED) {
+          this.nextValue = value;
+          break;
+        } // if
+        current = current.next[0].getReference();
+      } // while
+      this.next = current;
+    } // advance()
+  } // class CSLNodeIterator
+} // class ConcurrentSkipList
+
+
+/**
+ * Nodes in the concurrent skip list.
+ */
+class CSLNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key.
+   */
+  final K key;
+
+  /**
+   * The value, or ConcurrentSkipList.REMOVED once the node has been claimed by a remover.
+   */
+  final AtomicReference<Object> value;
+
+  /**
+   * Pointers to the next nodes. The mark on next[lvl] means this node is being removed.
+   */
+  final AtomicMarkableReference<CSLNode<K, V>>[] next;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  @SuppressWarnings("unchecked")
+  public CSLNode(K key, V value, int n) {
+    this.key = key;
+    this.value = new AtomicReference<Object>(value);
+    this.next = (AtomicMarkableReference<CSLNode<K, V>>[]) new AtomicMarkableReference<?>[n];
+    for (int i = 0; i < n; i++) {
+      this.next[i] = new AtomicMarkableReference<CSLNode<K, V>>(null, false);
+    } // for
+  } // CSLNode(K, V, int)
+} // CSLNode<K,V>
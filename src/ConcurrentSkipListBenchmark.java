@@ -0,0 +1,174 @@
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Multi-threaded throughput of ConcurrentSkipList, compared with a SkipList behind one global
+ * lock and a SkipList wrapped in a StampedSkipList (optimistic reads). Runs a mixed workload
+ * for a fixed time at 1, 2, 4, ... threads, up to the number of available cores. The
+ * stamped wrapper is meant for read-mostly work, so try percentReads = 99.
+ *
+ * Usage: java ConcurrentSkipListBenchmark [keyRange] [percentReads] [millisPerRun]
+ */
+public class ConcurrentSkipListBenchmark {
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws Exception {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int keyRange = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+    int percentReads = (args.length > 1) ? Integer.parseInt(args[1]) : 90;
+    long millis = (args.length > 2) ? Long.parseLong(args[2]) : 2000;
+    int cores = Runtime.getRuntime().availableProcessors();
+
+    pen.println("Keys in [0," + keyRange + "), " + percentReads + "% reads, " + millis
+        + "ms per run, " + cores + " cores");
+    pen.println();
+    pen.printf("%8s %20s %20s %20s%n", "Threads", "Locked ops/s", "Stamped ops/s",
+        "Lock-free ops/s");
+    for (int threads = 1; threads <= cores; threads = nextThreadCount(threads, cores)) {
+      SkipList<Integer, String> base = new SkipList<Integer, String>((i, j) -> i - j);
+      StampedSkipList<Integer, String> stamped =
+          new StampedSkipList<Integer, String>(new SkipList<Integer, String>((i, j) -> i - j));
+      ConcurrentSkipList<Integer, String> csl =
+          new ConcurrentSkipList<Integer, String>((i, j) -> i - j);
+      prefill(base, keyRange);
+      prefill(stamped, keyRange);
+      prefill(csl, keyRange);
+      double locked = run(new LockedMap<Integer, String>(base), threads, keyRange,
+          percentReads, millis);
+      double optimistic = run(stamped, threads, keyRange, percentReads, millis);
+      double lockFree = run(csl, threads, keyRange, percentReads, millis);
+      pen.printf("%8d %20.0f %20.0f %20.0f%n", threads, locked, optimistic, lockFree);
+    } // for
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Double the thread count, but make sure we stop exactly at the core count.
+   */
+  static int nextThreadCount(int threads, int cores) {
+    if (threads < cores && threads * 2 > cores) {
+      return cores;
+    } // if the next doubling would skip the core count
+    return threads * 2;
+  } // nextThreadCount(int, int)
+
+  /**
+   * Fill every other key in the range, so reads hit about half the time.
+   */
+  static void prefill(SimpleMap<Integer, String> map, int keyRange) {
+    for (int i = 0; i < keyRange; i += 2) {
+      map.set(i, "");
+    } // for
+  } // prefill(SimpleMap<Integer,String>, int)
+
+  /**
+   * Hammer a map from several threads for a while.
+   *
+   * @return operations per second, summed over all threads
+   */
+  static double run(SimpleMap<Integer, String> map, int threads, int keyRange,
+      int percentReads, long millis) throws InterruptedException {
+    LongAdder ops = new LongAdder();
+    CountDownLatch start = new CountDownLatch(1);
+    long[] deadline = new long[1];
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Thread(() -> {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        long count = 0;
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        } // try/catch
+        while (System.nanoTime() < deadline[0]) {
+          // Check the clock every so often rather than on every operation
+          for (int i = 0; i < 256; i++) {
+            int key = rand.nextInt(keyRange);
+            int op = rand.nextInt(100);
+            if (op < percentReads) {
+              map.containsKey(key);
+            } else if (op % 2 == 0) {
+              map.set(key, "");
+            } else {
+              map.remove(key);
+            } // if/else
+          } // for
+          count += 256;
+        } // while
+        ops.add(count);
+      });
+      workers[t].start();
+    } // for
+    deadline[0] = System.nanoTime() + millis * 1000000;
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    } // for
+    return ops.sum() * 1000.0 / millis;
+  } // run(SimpleMap<Integer,String>, int, int, int, long)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * The baseline: a map with every operation behind one lock.
+   */
+  static class LockedMap<K, V> implements SimpleMap<K, V> {
+    final SimpleMap<K, V> map;
+
+    LockedMap(SimpleMap<K, V> map) {
+      this.map = map;
+    } // LockedMap(SimpleMap<K,V>)
+
+    @Override
+    public synchronized V set(K key, V value) {
+      return map.set(key, value);
+    } // set(K,V)
+
+    @Override
+    public synchronized V get(K key) {
+      return map.get(key);
+    } // get(K)
+
+    @Override
+    public synchronized int size() {
+      return map.size();
+    } // size()
+
+    @Override
+    public synchronized boolean containsKey(K key) {
+      return map.containsKey(key);
+    } // containsKey(K)
+
+    @Override
+    public synchronized V remove(K key) {
+      return map.remove(key);
+    } // remove(K)
+
+    @Override
+    public Iterator<K> keys() {
+      return map.keys();
+    } // keys()
+
+    @Override
+    public Iterator<V> values() {
+      return map.values();
+    } // values()
+
+    @Override
+    public synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+      map.forEach(action);
+    } // forEach(BiConsumer)
+  } // class LockedMap
+} // class ConcurrentSkipListBenchmark
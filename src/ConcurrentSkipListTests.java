@@ -0,0 +1,184 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Some tests of concurrent skip lists.
+ */
+public class ConcurrentSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A sorted list of integers for tests.
+   */
+  ConcurrentSkipList<Integer, String> ints;
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Set up everything.
+   */
+  @BeforeEach
+  public void setup() {
+    this.ints = new ConcurrentSkipList<Integer, String>((i, j) -> i - j);
+  } // setup
+
+  /**
+   * Run the same body on several threads at once and wait for all of them to finish.
+   */
+  static void runThreads(int count, ThreadBody body) throws Exception {
+    Thread[] threads = new Thread[count];
+    Throwable[] errors = new Throwable[count];
+    for (int t = 0; t < count; t++) {
+      final int id = t;
+      threads[t] = new Thread(() -> {
+        try {
+          body.run(id);
+        } catch (Throwable e) {
+          errors[id] = e;
+        } // try/catch
+      });
+      threads[t].start();
+    } // for
+    for (int t = 0; t < count; t++) {
+      threads[t].join();
+      if (errors[t] != null) {
+        throw new AssertionError("thread " + t + " failed", errors[t]);
+      } // if
+    } // for
+  } // runThreads(int, ThreadBody)
+
+  /**
+   * Something for each thread to do.
+   */
+  interface ThreadBody {
+    void run(int id) throws Exception;
+  } // interface ThreadBody
+
+  // +-------------+-----------------------------------------------------
+  // | Basic Tests |
+  // +-------------+
+
+  /**
+   * Add, replace, and remove a single element.
+   */
+  @Test
+  public void simpleTest() {
+    setup();
+    assertNull(ints.set(1, "one"));
+    assertEquals("one", ints.get(1));
+    assertEquals("one", ints.set(1, "uno"));
+    assertEquals("uno", ints.get(1));
+    assertEquals(1, ints.size());
+    assertEquals("uno", ints.remove(1));
+    assertFalse(ints.containsKey(1));
+    assertNull(ints.remove(1));
+    assertEquals(0, ints.size());
+  } // simpleTest()
+
+  /**
+   * get should keep the SimpleMap contract for missing keys.
+   */
+  @Test
+  public void testGetMissing() {
+    setup();
+    ints.set(5, "five");
+    try {
+      ints.get(4);
+      fail("get of a missing key should throw");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+  } // testGetMissing()
+
+  /**
+   * A randomized single-threaded test against the sequential SkipList.
+   */
+  @Test
+  public void randomTest() {
+    setup();
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 5000; i++) {
+      int key = random.nextInt(500);
+      if (random.nextBoolean()) {
+        String value = SkipListTests.value(key);
+        assertEquals(expected.set(key, value), ints.set(key, value));
+      } else {
+        assertEquals(expected.remove(key), ints.remove(key));
+      } // if/else
+      assertEquals(expected.size(), ints.size());
+    } // for
+    Iterator<Integer> expectedKeys = expected.keys();
+    Iterator<Integer> actualKeys = ints.keys();
+    while (expectedKeys.hasNext()) {
+      assertEquals(expectedKeys.next(), actualKeys.next());
+    } // while
+    assertFalse(actualKeys.hasNext());
+  } // randomTest()
+
+  // +--------------------+----------------------------------------------
+  // | Multi-thread Tests |
+  // +--------------------+
+
+  /**
+   * Threads inserting disjoint ranges should all see their keys, in order.
+   */
+  @Test
+  public void testConcurrentSets() throws Exception {
+    setup();
+    int perThread = 2000;
+    runThreads(8, (id) -> {
+      for (int i = 0; i < perThread; i++) {
+        ints.set(i * 8 + id, SkipListTests.value(id));
+      } // for
+    });
+    assertEquals(8 * perThread, ints.size());
+    Iterator<Integer> it = ints.keys();
+    for (int i = 0; i < 8 * perThread; i++) {
+      assertEquals((Integer) i, it.next());
+    } // for
+    assertFalse(it.hasNext());
+  } // testConcurrentSets()
+
+  /**
+   * Threads fighting over the same keys should leave a consistent list behind.
+   */
+  @Test
+  public void testConcurrentSetsAndRemoves() throws Exception {
+    setup();
+    runThreads(8, (id) -> {
+      Random rand = new Random(id);
+      for (int i = 0; i < 20000; i++) {
+        int key = rand.nextInt(100);
+        if (rand.nextBoolean()) {
+          ints.set(key, SkipListTests.value(key));
+        } else {
+          ints.remove(key);
+        } // if/else
+      } // for
+    });
+    ArrayList<Integer> keys = new ArrayList<Integer>();
+    ints.forEach((key, value) -> {
+      assertEquals(SkipListTests.value(key), value);
+      keys.add(key);
+    });
+    assertEquals(keys.size(), ints.size());
+    assertTrue(SkipListTests.inOrder(keys.iterator()));
+    for (int i = 1; i < keys.size(); i++) {
+      assertFalse(keys.get(i - 1).equals(keys.get(i)));
+    } // for
+  } // testConcurrentSetsAndRemoves()
+} // class ConcurrentSkipListTests
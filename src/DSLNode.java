@@ -0,0 +1,53 @@
+/**
+ * Nodes in the deterministic skip list.
+ */
+class DSLNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key (on level 1) or a copy of the last child's key (above level 1).
+   */
+  K key;
+
+  /**
+   * The value (level 1 only).
+   */
+  V value;
+
+  /**
+   * Whether this is the node at the end of its level, bigger than every key.
+   */
+  boolean infinite;
+
+  /**
+   * The first child (null on level 1).
+   */
+  DSLNode<K, V> down;
+
+  /**
+   * The next node on the same level (null for the infinite node).
+   */
+  DSLNode<K, V> right;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  DSLNode(K key, V value, boolean infinite, DSLNode<K, V> down, DSLNode<K, V> right) {
+    this.key = key;
+    this.value = value;
+    this.infinite = infinite;
+    this.down = down;
+    this.right = right;
+  } // DSLNode(K, V, boolean, DSLNode<K,V>, DSLNode<K,V>)
+
+  /**
+   * Make an infinite node.
+   */
+  static <K, V> DSLNode<K, V> infinite(DSLNode<K, V> down, DSLNode<K, V> right) {
+    return new DSLNode<K, V>(null, null, true, down, right);
+  } // infinite(DSLNode<K,V>, DSLNode<K,V>)
+} // DSLNode<K,V>
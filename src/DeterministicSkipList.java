@@ -0,0 +1,431 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * A deterministic (1-2-3) skip list, after Munro, Papadakis and Sedgewick. Rather than giving
+ * nodes random heights, we keep the gaps between towers within fixed bounds, so get, set and
+ * remove take O(log n) time in the worst case, not just on average.
+ *
+ * Each level is a linked list of nodes, and each level ends with an "infinite" node whose key
+ * is larger than every other. Level 1 holds the entries. A node on a higher level stands for a
+ * gap of 2 to 4 nodes on the level below (its children): down points to the first child, and
+ * its key is a copy of the last child's key. The top level is a single infinite node, head,
+ * whose children are the whole level below it. So at most four comparisons are made on each of
+ * at most log2(n) + 2 levels.
+ *
+ * set and remove work top-down, in one pass. On the way down, set splits any node with four
+ * children into two nodes with two, so that the new entry has room. remove borrows a child from
+ * a neighbor (or merges with it) wherever a node has only two children, so the entry can go
+ * without leaving an empty gap behind. To avoid keeping predecessors, both shift keys and values
+ * between neighboring nodes rather than inserting or unlinking before a node.
+ */
+public class DeterministicSkipList<K, V> implements SimpleMap<K, V> {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The single node on the top level (the infinite node on level 1, if the list is empty).
+   */
+  DSLNode<K, V> head;
+
+  /**
+   * The comparator used to determine the ordering in the list.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * The number of values in the list.
+   */
+  int size;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new deterministic skip list that orders values using the specified comparator.
+   */
+  public DeterministicSkipList(Comparator<K> comparator) {
+    this.head = DSLNode.infinite(null, null);
+    this.comparator = comparator;
+    this.size = 0;
+  } // DeterministicSkipList(Comparator<K>)
+
+  /**
+   * Create a new deterministic skip list that orders values using a not-very-clever default
+   * comparator.
+   */
+  public DeterministicSkipList() {
+    this((k1, k2) -> k1.toString().compareTo(k2.toString()));
+  } // DeterministicSkipList()
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key.
+   *
+   * @return the previous value associated with key (or null, if there's no such value)
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V set(K key, V value) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    DSLNode<K, V> found = this.find(key);
+    if (found != null) {
+      V temp = found.value;
+      found.value = value;
+      return temp;
+    } // if
+
+    DSLNode<K, V> current = this.head;
+    while (true) {
+      current = this.skip(current, key);
+      if (current.down == null) {
+        break;
+      } // if we're on level 1
+      if (this.children(current) == 4) {
+        this.split(current);
+        if (this.compare(current, key) < 0) {
+          current = current.right;
+        } // if key belongs in the second half
+      } // if
+      current = current.down;
+    } // while
+
+    // Insert before current, by moving current's contents into a new node after it
+    current.right = new DSLNode<K, V>(current.key, current.value, current.infinite, null,
+        current.right);
+    current.key = key;
+    current.value = value;
+    current.infinite = false;
+    if (this.head.right != null) {
+      this.head = DSLNode.infinite(this.head, null);
+    } // if the top level has split, add a new one
+    this.size++;
+    return null;
+  } // set(K,V)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @throws IndexOutOfBoundsException if the key is not in the map.
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V get(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    DSLNode<K, V> found = this.find(key);
+    if (found == null) {
+      throw new IndexOutOfBoundsException("key invalid: " + key);
+    } // if
+    return found.value;
+  } // get(K)
+
+  /**
+   * Determine how many values are in the map.
+   */
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Determine if a key appears in the table.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    return this.find(key) != null;
+  } // containsKey(K)
+
+  /**
+   * Remove the value with the given key.
+   *
+   * @return The associated value (or null, if there is no associated value).
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V remove(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    DSLNode<K, V> found = this.find(key);
+    if (found == null) {
+      return null;
+    } // if
+    V result = found.value;
+
+    // Walk down, making sure each node we enter has three or more children, so that losing
+    // one (to a merge on the level below, or to the removal itself) leaves at least two.
+    // The nodes on the path that are copies of key will need a new key at the end.
+    DSLNode<K, V> parent = this.head;
+    DSLNode<K, V> copies = null; // the highest node on the path whose key is key
+    while (true) {
+      DSLNode<K, V> current = this.skip(parent.down, key);
+      if (current.down == null) {
+        this.unlink(parent, current, copies);
+        break;
+      } // if we've reached the entry
+      if (this.children(current) == 2) {
+        current = this.widen(parent, current);
+      } // if
+      if (copies == null && this.compare(current, key) == 0) {
+        copies = current;
+      } // if
+      parent = current;
+    } // while
+
+    while (this.head.down != null && this.head.down.right == null) {
+      this.head = this.head.down;
+    } // while (drop top levels with only one child)
+    this.size--;
+    return result;
+  } // remove(K)
+
+  /**
+   * Get an iterator for all of the keys in the map.
+   */
+  @Override
+  public Iterator<K> keys() {
+    Iterator<DSLNode<K, V>> nit = this.nodes();
+    return new Iterator<K>() {
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
+
+      @Override
+      public K next() {
+        return nit.next().key;
+      } // next()
+    };
+  } // keys()
+
+  /**
+   * Get an iterator for all of the values in the map.
+   */
+  @Override
+  public Iterator<V> values() {
+    Iterator<DSLNode<K, V>> nit = this.nodes();
+    return new Iterator<V>() {
+      @Override
+      public boolean hasNext() {
+        return nit.hasNext();
+      } // hasNext()
+
+      @Override
+      public V next() {
+        return nit.next().value;
+      } // next()
+    };
+  } // values()
+
+  /**
+   * Apply a function to each key/value pair.
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (DSLNode<K, V> node = this.first(); !node.infinite; node = node.right) {
+      action.accept(node.key, node.value);
+    } // for
+  } // forEach(BiConsumer)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Compare a node's key with key. Infinite nodes are bigger than every key.
+   */
+  int compare(DSLNode<K, V> node, K key) {
+    return node.infinite ? 1 : this.comparator.compare(node.key, key);
+  } // compare(DSLNode<K,V>, K)
+
+  /**
+   * Determine if a child is the last of parent's children (that is, has the same key).
+   */
+  boolean isLastChild(DSLNode<K, V> child, DSLNode<K, V> parent) {
+    return child.infinite ? parent.infinite
+        : !parent.infinite && this.comparator.compare(child.key, parent.key) == 0;
+  } // isLastChild(DSLNode<K,V>, DSLNode<K,V>)
+
+  /**
+   * Move right from node to the first node whose key is at least key.
+   */
+  DSLNode<K, V> skip(DSLNode<K, V> node, K key) {
+    while (this.compare(node, key) < 0) {
+      node = node.right;
+    } // while
+    return node;
+  } // skip(DSLNode<K,V>, K)
+
+  /**
+   * Find the level-1 node for key.
+   *
+   * @return the node, or null if key isn't in the list
+   */
+  DSLNode<K, V> find(K key) {
+    DSLNode<K, V> current = this.skip(this.head, key);
+    while (current.down != null) {
+      current = this.skip(current.down, key);
+    } // while
+    return (this.compare(current, key) == 0) ? current : null;
+  } // find(K)
+
+  /**
+   * Count the children of a node above level 1 (at most 4, if the invariant holds).
+   */
+  int children(DSLNode<K, V> node) {
+    int count = 1;
+    for (DSLNode<K, V> child = node.down; !this.isLastChild(child, node); child = child.right) {
+      count++;
+    } // for
+    return count;
+  } // children(DSLNode<K,V>)
+
+  /**
+   * Split a node with four children into two nodes with two: node keeps the first two, and a
+   * new node after it takes the last two (and node's old key).
+   */
+  void split(DSLNode<K, V> node) {
+    DSLNode<K, V> second = node.down.right;
+    node.right = new DSLNode<K, V>(node.key, null, node.infinite, second.right, node.right);
+    node.key = second.key;
+    node.infinite = false;
+  } // split(DSLNode<K,V>)
+
+  /**
+   * Give node, which has two children, a third, by borrowing one from a neighbor with three or
+   * more, or by merging it with a neighbor that has only two. Neighbors must be children of
+   * the same parent. Uses the right neighbor if node has one and the left otherwise.
+   *
+   * @return the node that now covers node's children (node itself, unless it was merged into
+   *   its left neighbor)
+   */
+  DSLNode<K, V> widen(DSLNode<K, V> parent, DSLNode<K, V> node) {
+    if (!this.isLastChild(node, parent)) {
+      DSLNode<K, V> right = node.right;
+      if (this.children(right) > 2) {
+        // Borrow right's first child
+        node.key = right.down.key;
+        right.down = right.down.right;
+      } else {
+        // Absorb right
+        node.key = right.key;
+        node.infinite = right.infinite;
+        node.right = right.right;
+      } // if/else
+      return node;
+    } // if node has a right neighbor under the same parent
+
+    DSLNode<K, V> left = parent.down;
+    while (left.right != node) {
+      left = left.right;
+    } // while
+    int count = this.children(left);
+    if (count > 2) {
+      // Borrow left's last child
+      DSLNode<K, V> newLast = left.down;
+      for (int i = 2; i < count; i++) {
+        newLast = newLast.right;
+      } // for
+      node.down = newLast.right;
+      left.key = newLast.key;
+      return node;
+    } // if left can spare a child
+    // Let left absorb node
+    left.key = node.key;
+    left.infinite = node.infinite;
+    left.right = node.right;
+    return left;
+  } // widen(DSLNode<K,V>, DSLNode<K,V>)
+
+  /**
+   * Remove an entry from level 1, given its parent (which has at least two children, or is the
+   * head) and the highest node above it that is a copy of its key (or null, if there's none).
+   */
+  void unlink(DSLNode<K, V> parent, DSLNode<K, V> node, DSLNode<K, V> copies) {
+    if (!this.isLastChild(node, parent)) {
+      // Take over the next node's contents, so that nothing pointing at node has to change
+      DSLNode<K, V> next = node.right;
+      node.key = next.key;
+      node.value = next.value;
+      node.infinite = next.infinite;
+      node.right = next.right;
+      return;
+    } // if
+
+    DSLNode<K, V> prev = parent.down;
+    while (prev.right != node) {
+      prev = prev.right;
+    } // while
+    prev.right = node.right;
+    // prev is now the last child, so the copies of node's key become copies of its key
+    K key = node.key;
+    for (DSLNode<K, V> copy = copies; copy != null && copy.down != null;
+        copy = this.skip(copy.down, key)) {
+      if (this.compare(copy, key) == 0) {
+        copy.key = prev.key;
+      } // if
+    } // for
+  } // unlink(DSLNode<K,V>, DSLNode<K,V>, DSLNode<K,V>)
+
+  /**
+   * Get the first node on level 1.
+   */
+  DSLNode<K, V> first() {
+    DSLNode<K, V> node = this.head;
+    while (node.down != null) {
+      node = node.down;
+    } // while
+    return node;
+  } // first()
+
+  /**
+   * Get an iterator for the level-1 nodes, apart from the infinite one.
+   */
+  Iterator<DSLNode<K, V>> nodes() {
+    return new Iterator<DSLNode<K, V>>() {
+      DSLNode<K, V> next = DeterministicSkipList.this.first();
+
+      @Override
+      public boolean hasNext() {
+        return !this.next.infinite;
+      } // hasNext()
+
+      @Override
+      public DSLNode<K, V> next() {
+        if (this.next.infinite) {
+          throw new NoSuchElementException();
+        } // if
+        DSLNode<K, V> temp = this.next;
+        this.next = this.next.right;
+        return temp;
+      } // next()
+    };
+  } // nodes()
+
+  /**
+   * Count the levels.
+   */
+  int height() {
+    int result = 1;
+    for (DSLNode<K, V> node = this.head; node.down != null; node = node.down) {
+      result++;
+    } // for
+    return result;
+  } // height()
+} // class DeterministicSkipList<K,V>
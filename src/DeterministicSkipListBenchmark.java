@@ -0,0 +1,116 @@
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Latency distributions of get for DeterministicSkipList and the randomized SkipList. Each list
+ * is filled with the same keys in the same random order, and then every key is looked up
+ * once, in random order. We time each lookup on its own and also count its comparator calls
+ * (which, unlike times, are free of timer and JIT noise), and report percentiles of both.
+ *
+ * Usage: java DeterministicSkipListBenchmark [size ...]
+ */
+public class DeterministicSkipListBenchmark {
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int[] sizes = {10000, 1000000};
+    if (args.length > 0) {
+      sizes = Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+    } // if
+
+    pen.printf("%-14s %9s %8s %8s %8s %8s %8s %8s%n", "List", "Size", "Measure", "p50",
+        "p90", "p99", "p99.9", "max");
+    for (int size : sizes) {
+      Integer[] keys = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = i;
+      } // for
+      Random rand = new Random(42);
+      shuffle(keys, rand);
+      Integer[] lookups = keys.clone();
+      shuffle(lookups, rand);
+
+      long[] counter = new long[1];
+      Comparator<Integer> counting = (i, j) -> {
+        counter[0]++;
+        return Integer.compare(i, j);
+      };
+      SkipList<Integer, String> randomized = new SkipList<Integer, String>(counting);
+      DeterministicSkipList<Integer, String> deterministic =
+          new DeterministicSkipList<Integer, String>(counting);
+      for (Integer key : keys) {
+        randomized.set(key, "");
+        deterministic.set(key, "");
+      } // for
+
+      // Warm up both, then measure
+      for (int round = 0; round < 5; round++) {
+        measure(randomized, lookups, counter);
+        measure(deterministic, lookups, counter);
+      } // for
+      report(pen, "SkipList", size, measure(randomized, lookups, counter));
+      report(pen, "Deterministic", size, measure(deterministic, lookups, counter));
+    } // for
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Look up every key, timing and counting comparisons for each.
+   *
+   * @return {nanoseconds, comparisons}, one element per lookup
+   */
+  static long[][] measure(SimpleMap<Integer, String> map, Integer[] lookups, long[] counter) {
+    long[] nanos = new long[lookups.length];
+    long[] comparisons = new long[lookups.length];
+    for (int i = 0; i < lookups.length; i++) {
+      counter[0] = 0;
+      long start = System.nanoTime();
+      map.get(lookups[i]);
+      nanos[i] = System.nanoTime() - start;
+      comparisons[i] = counter[0];
+    } // for
+    return new long[][] {nanos, comparisons};
+  } // measure(SimpleMap<Integer,String>, Integer[], long[])
+
+  /**
+   * Print the percentiles of the times and comparison counts.
+   */
+  static void report(PrintWriter pen, String name, int size, long[][] results) {
+    String[] measures = {"ns", "compares"};
+    for (int m = 0; m < measures.length; m++) {
+      long[] sorted = results[m].clone();
+      Arrays.sort(sorted);
+      pen.printf("%-14s %9d %8s %8d %8d %8d %8d %8d%n", name, size, measures[m],
+          percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+          percentile(sorted, 99.9), sorted[sorted.length - 1]);
+    } // for
+  } // report(PrintWriter, String, int, long[][])
+
+  /**
+   * Get a percentile of a sorted array.
+   */
+  static long percentile(long[] sorted, double percent) {
+    int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  } // percentile(long[], double)
+
+  /**
+   * Shuffle an array in place.
+   */
+  static void shuffle(Integer[] values, Random rand) {
+    for (int i = values.length - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      Integer temp = values[i];
+      values[i] = values[j];
+      values[j] = temp;
+    } // for
+  } // shuffle(Integer[], Random)
+} // class DeterministicSkipListBenchmark
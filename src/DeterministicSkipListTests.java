@@ -0,0 +1,149 @@
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of deterministic skip lists.
+ */
+public class DeterministicSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure the list has the shape it promises: every level ends with an infinite node,
+   * keys increase along each level, every node above level 1 has two to four children and
+   * the key of its last child, and the height is logarithmic.
+   */
+  static void assertInvariants(DeterministicSkipList<Integer, String> list) {
+    assertNull(list.head.right);
+    assertTrue(list.head.infinite);
+    for (DSLNode<Integer, String> start = list.head; start != null; start = start.down) {
+      Integer last = null;
+      DSLNode<Integer, String> child = start.down;
+      for (DSLNode<Integer, String> node = start; node != null; node = node.right) {
+        assertEquals(node.infinite, node.right == null);
+        if (!node.infinite) {
+          assertTrue(last == null || last < node.key);
+          last = node.key;
+        } // if
+        if (node.down != null) {
+          assertSame(child, node.down);
+          int children = 1;
+          while (!list.isLastChild(child, node)) {
+            child = child.right;
+            children++;
+          } // while
+          child = child.right;
+          assertTrue(children <= 4);
+          assertTrue(children >= 2 || (node == list.head && list.size == 0));
+        } // if
+      } // for each node on the level
+      assertNull(child);
+    } // for each level
+    int count = 0;
+    for (Iterator<Integer> it = list.keys(); it.hasNext(); it.next()) {
+      count++;
+    } // for
+    assertEquals(list.size(), count);
+    assertTrue(list.height() <= 2 + 32 - Integer.numberOfLeadingZeros(list.size()));
+  } // assertInvariants(DeterministicSkipList<Integer,String>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Add, replace, look up, and remove a few keys.
+   */
+  @Test
+  public void simpleTest() {
+    DeterministicSkipList<Integer, String> ints =
+        new DeterministicSkipList<Integer, String>((i, j) -> i - j);
+    assertFalse(ints.containsKey(1));
+    assertNull(ints.remove(1));
+    assertNull(ints.set(3, "three"));
+    assertNull(ints.set(1, "one"));
+    assertEquals("three", ints.set(3, "THREE"));
+    assertEquals("THREE", ints.get(3));
+    assertEquals(2, ints.size());
+    assertEquals("one", ints.remove(1));
+    assertEquals("THREE", ints.remove(3));
+    assertEquals(0, ints.size());
+    assertInvariants(ints);
+    try {
+      ints.get(3);
+      fail("get of a missing key should throw");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+  } // simpleTest()
+
+  /**
+   * Random sets and removes should agree with a SkipList and keep the invariants.
+   */
+  @Test
+  public void randomTest() {
+    DeterministicSkipList<Integer, String> ints =
+        new DeterministicSkipList<Integer, String>((i, j) -> i - j);
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 20000; i++) {
+      int key = random.nextInt(2000);
+      if (random.nextInt(5) < 3) {
+        assertEquals(expected.set(key, "" + i), ints.set(key, "" + i));
+      } else {
+        assertEquals(expected.remove(key), ints.remove(key));
+      } // if/else
+      if (i % 500 == 0) {
+        assertInvariants(ints);
+      } // if
+    } // for
+    assertInvariants(ints);
+    Iterator<Integer> keys = ints.keys();
+    Iterator<String> values = ints.values();
+    for (Iterator<Integer> it = expected.keys(); it.hasNext();) {
+      Integer key = it.next();
+      assertEquals(key, keys.next());
+      assertEquals(expected.get(key), values.next());
+      assertEquals(expected.get(key), ints.get(key));
+    } // for
+    assertFalse(keys.hasNext());
+  } // randomTest()
+
+  /**
+   * Sorted insertion and removal, the worst case for naive structures, should keep the list
+   * balanced, and removing everything should leave an empty list that still works.
+   */
+  @Test
+  public void testSequential() {
+    DeterministicSkipList<Integer, String> ints =
+        new DeterministicSkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 5000; i++) {
+      ints.set(i, SkipListTests.value(i % 1000));
+    } // for
+    assertInvariants(ints);
+    for (int i = 4999; i >= 2500; i--) {
+      assertEquals(SkipListTests.value(i % 1000), ints.remove(i));
+    } // for
+    assertInvariants(ints);
+    for (int i = 0; i < 2500; i++) {
+      assertEquals(SkipListTests.value(i % 1000), ints.remove(i));
+    } // for
+    assertInvariants(ints);
+    assertEquals(1, ints.height());
+    assertNull(ints.set(7, "seven"));
+    assertEquals("seven", ints.get(7));
+    assertInvariants(ints);
+  } // testSequential()
+} // class DeterministicSkipListTests
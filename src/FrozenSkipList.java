@@ -0,0 +1,312 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable copy of a skip list, laid out for fast reads (see SkipList.freeze). Walking
+ * a SkipList means following a pointer to a different node, and usually to a different
+ * cache line, at every step. A FrozenSkipList keeps its keys in two flat arrays:
+ *
+ * - tree holds the keys in Eytzinger (breadth-first) order, the implicit binary search
+ *   tree in which the children of slot k are at 2k and 2k + 1. A search touches slots
+ *   1, 2 or 3, 4 to 7, and so on, so the first few levels of every search share a handful
+ *   of cache lines that stay hot. The hardware prefetcher also does well here, because each
+ *   step moves to a nearby slot further along the array. positions maps each slot to its
+ *   index in sorted order.
+ * - keys and values hold the entries in sorted order, so iteration and range scans go
+ *   straight through memory.
+ *
+ * The arrays hold references, so each comparison still loads the key object. That costs a
+ * cache miss for keys that are scattered around the heap. Even so, the search reads no
+ * node headers or towers.
+ *
+ * Range views (subMap, headMap, tailMap) share the arrays and cost O(log n) to make.
+ * Anything that would change the map throws UnsupportedOperationException. A frozen list
+ * never changes, so any number of threads may read it at once.
+ */
+public class FrozenSkipList<K, V> implements SimpleMap<K, V> {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The keys in Eytzinger order, from slot 1 (slot 0 is unused).
+   */
+  final Object[] tree;
+
+  /**
+   * The sorted index of the key in each slot of tree.
+   */
+  final int[] positions;
+
+  /**
+   * The keys and values in sorted order.
+   */
+  final Object[] keys;
+  final Object[] values;
+
+  /**
+   * The sorted indices of the view: [lo, hi).
+   */
+  final int lo;
+  final int hi;
+
+  /**
+   * The comparator used to order keys.
+   */
+  final Comparator<? super K> comparator;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Freeze keys and values, which must be parallel arrays sorted by key with no duplicates.
+   * The arrays are kept, not copied.
+   */
+  FrozenSkipList(Comparator<? super K> comparator, Object[] keys, Object[] values) {
+    this.comparator = comparator;
+    this.keys = keys;
+    this.values = values;
+    this.lo = 0;
+    this.hi = keys.length;
+    this.tree = new Object[keys.length + 1];
+    this.positions = new int[keys.length + 1];
+    this.layout(1, 0);
+  } // FrozenSkipList(Comparator<K>, Object[], Object[])
+
+  /**
+   * Create the view of [lo, hi) in whole.
+   */
+  FrozenSkipList(FrozenSkipList<K, V> whole, int lo, int hi) {
+    this.comparator = whole.comparator;
+    this.tree = whole.tree;
+    this.positions = whole.positions;
+    this.keys = whole.keys;
+    this.values = whole.values;
+    this.lo = lo;
+    this.hi = hi;
+  } // FrozenSkipList(FrozenSkipList<K,V>, int, int)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Frozen lists can't be changed.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  public V set(K key, V value) {
+    throw new UnsupportedOperationException("frozen");
+  } // set(K,V)
+
+  /**
+   * Get the value associated with key. Takes one pass down the Eytzinger tree.
+   *
+   * @throws IndexOutOfBoundsException if the key is not in the map.
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    int i = this.find(key);
+    if (i < 0) {
+      throw new IndexOutOfBoundsException("key not found: " + key);
+    } // if
+    return (V) this.values[i];
+  } // get(K)
+
+  @Override
+  public int size() {
+    return this.hi - this.lo;
+  } // size()
+
+  /**
+   * Determine if a key appears in the map.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    return this.find(key) >= 0;
+  } // containsKey(K)
+
+  /**
+   * Frozen lists can't be changed.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  public V remove(K key) {
+    throw new UnsupportedOperationException("frozen");
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return new ArrayIterator<K>(this.keys, this.lo, this.hi);
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return new ArrayIterator<V>(this.values, this.lo, this.hi);
+  } // values()
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (int i = this.lo; i < this.hi; i++) {
+      action.accept((K) this.keys[i], (V) this.values[i]);
+    } // for
+  } // forEach(BiConsumer)
+
+  // +-------------+-------------------------------------------------
+  // | Range views |
+  // +-------------+
+
+  /**
+   * Get a view of the entries whose keys are at least from and less than to.
+   *
+   * @throws NullPointerException if either bound is null.
+   */
+  public FrozenSkipList<K, V> subMap(K from, K to) {
+    if (from == null || to == null) {
+      throw new NullPointerException("null bound");
+    } // if
+    if (this.comparator.compare(from, to) > 0) {
+      throw new IllegalArgumentException("from > to");
+    } // if
+    int start = this.ceiling(from);
+    return new FrozenSkipList<K, V>(this, start, Math.max(start, this.ceiling(to)));
+  } // subMap(K, K)
+
+  /**
+   * Get a view of the entries whose keys are less than to.
+   *
+   * @throws NullPointerException if to is null.
+   */
+  public FrozenSkipList<K, V> headMap(K to) {
+    if (to == null) {
+      throw new NullPointerException("null bound");
+    } // if
+    return new FrozenSkipList<K, V>(this, this.lo, this.ceiling(to));
+  } // headMap(K)
+
+  /**
+   * Get a view of the entries whose keys are at least from.
+   *
+   * @throws NullPointerException if from is null.
+   */
+  public FrozenSkipList<K, V> tailMap(K from) {
+    if (from == null) {
+      throw new NullPointerException("null bound");
+    } // if
+    return new FrozenSkipList<K, V>(this, this.ceiling(from), this.hi);
+  } // tailMap(K)
+
+  /**
+   * Apply a function to each key/value pair whose key is at least from and less than to, in
+   * order.
+   *
+   * @throws NullPointerException if either bound is null.
+   */
+  public void forEach(K from, K to, BiConsumer<? super K, ? super V> action) {
+    this.subMap(from, to).forEach(action);
+  } // forEach(K, K, BiConsumer)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Fill the subtree rooted at slot k with the sorted keys from index i on.
+   *
+   * @return the index of the first key not used
+   */
+  int layout(int k, int i) {
+    if (k < this.tree.length) {
+      i = this.layout(2 * k, i);
+      this.tree[k] = this.keys[i];
+      this.positions[k] = i++;
+      i = this.layout(2 * k + 1, i);
+    } // if
+    return i;
+  } // layout(int, int)
+
+  /**
+   * Find the sorted index of key within the view.
+   *
+   * @return the index, or -1 if the key isn't there
+   * @throws NullPointerException if the key is null.
+   */
+  @SuppressWarnings("unchecked")
+  int find(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    Object[] tree = this.tree;
+    int n = tree.length;
+    int k = 1;
+    while (k < n) {
+      int c = this.comparator.compare((K) tree[k], key);
+      if (c == 0) {
+        int i = this.positions[k];
+        return (i >= this.lo && i < this.hi) ? i : -1;
+      } // if
+      k = 2 * k + ((c < 0) ? 1 : 0);
+    } // while
+    return -1;
+  } // find(K)
+
+  /**
+   * Find the sorted index of the first key that is at least key, clamped to the view.
+   */
+  @SuppressWarnings("unchecked")
+  int ceiling(K key) {
+    Object[] tree = this.tree;
+    int n = tree.length;
+    int k = 1;
+    while (k < n) {
+      k = 2 * k + ((this.comparator.compare((K) tree[k], key) < 0) ? 1 : 0);
+    } // while
+    // Undo the right turns after the last left turn; that left turn was at the answer
+    k >>= Integer.numberOfTrailingZeros(~k) + 1;
+    int i = (k == 0) ? this.keys.length : this.positions[k];
+    return Math.min(Math.max(i, this.lo), this.hi);
+  } // ceiling(K)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * An iterator over part of an array.
+   */
+  static class ArrayIterator<T> implements Iterator<T> {
+    final Object[] array;
+    final int end;
+    int i;
+
+    ArrayIterator(Object[] array, int start, int end) {
+      this.array = array;
+      this.i = start;
+      this.end = end;
+    } // ArrayIterator(Object[], int, int)
+
+    @Override
+    public boolean hasNext() {
+      return this.i < this.end;
+    } // hasNext()
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (this.i >= this.end) {
+        throw new NoSuchElementException();
+      } // if
+      return (T) this.array[this.i++];
+    } // next()
+  } // class ArrayIterator<T>
+} // class FrozenSkipList<K,V>
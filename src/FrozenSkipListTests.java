@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of frozen skip lists.
+ */
+public class FrozenSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * A frozen list should hold the same entries as the list, for every size up to a few
+   * complete trees, and shouldn't see later changes to the list.
+   */
+  @Test
+  public void testLookups() {
+    for (int size = 0; size < 70; size++) {
+      SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+      for (int i = 0; i < size; i++) {
+        list.set(2 * i, SkipListTests.value(i));
+      } // for
+      FrozenSkipList<Integer, String> frozen = list.freeze();
+      list.set(1, "one");
+      list.remove(0);
+      assertEquals(size, frozen.size());
+      for (int i = 0; i < size; i++) {
+        assertEquals(SkipListTests.value(i), frozen.get(2 * i));
+        assertTrue(frozen.containsKey(2 * i));
+        assertFalse(frozen.containsKey(2 * i + 1));
+      } // for
+      assertFalse(frozen.containsKey(-1));
+      Iterator<String> values = frozen.values();
+      int i = 0;
+      for (Iterator<Integer> keys = frozen.keys(); keys.hasNext(); i++) {
+        assertEquals(Integer.valueOf(2 * i), keys.next());
+        assertEquals(SkipListTests.value(i), values.next());
+      } // for
+      assertEquals(size, i);
+      assertFalse(values.hasNext());
+    } // for
+  } // testLookups()
+
+  /**
+   * Frozen lists should refuse changes and reject null keys.
+   */
+  @Test
+  public void testImmutable() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    list.set(1, "one");
+    FrozenSkipList<Integer, String> frozen = list.freeze();
+    try {
+      frozen.set(2, "two");
+      fail("set should throw");
+    } catch (UnsupportedOperationException e) {
+      // Expected
+    } // try/catch
+    try {
+      frozen.remove(1);
+      fail("remove should throw");
+    } catch (UnsupportedOperationException e) {
+      // Expected
+    } // try/catch
+    try {
+      frozen.get(2);
+      fail("get of a missing key should throw");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+    try {
+      frozen.containsKey(null);
+      fail("null keys should throw");
+    } catch (NullPointerException e) {
+      // Expected
+    } // try/catch
+    assertEquals("one", frozen.get(1));
+  } // testImmutable()
+
+  /**
+   * Randomized ranges, and ranges of ranges, should match a filtered walk over the list.
+   */
+  @Test
+  public void testRanges() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 500; i++) {
+      list.set(random.nextInt(1000), "");
+    } // for
+    FrozenSkipList<Integer, String> frozen = list.freeze();
+    for (int trial = 0; trial < 100; trial++) {
+      int lo = random.nextInt(1100) - 50;
+      int hi = lo + random.nextInt(300);
+      ArrayList<Integer> expected = new ArrayList<Integer>();
+      list.forEach((key, value) -> {
+        if (key >= lo && key < hi) {
+          expected.add(key);
+        } // if
+      });
+      ArrayList<Integer> actual = new ArrayList<Integer>();
+      frozen.forEach(lo, hi, (key, value) -> actual.add(key));
+      assertEquals(expected, actual);
+
+      FrozenSkipList<Integer, String> view = frozen.tailMap(lo).headMap(hi);
+      assertEquals(expected.size(), view.size());
+      ArrayList<Integer> keys = new ArrayList<Integer>();
+      view.keys().forEachRemaining(keys::add);
+      assertEquals(expected, keys);
+      for (int key = lo - 5; key < hi + 5; key++) {
+        assertEquals(expected.contains(key), view.containsKey(key));
+      } // for
+
+      // Narrowing a view shouldn't let it reach outside its bounds
+      int mid = lo + random.nextInt(hi - lo + 1);
+      ArrayList<Integer> inner = new ArrayList<Integer>();
+      view.subMap(mid - 100, mid).keys().forEachRemaining(inner::add);
+      ArrayList<Integer> expectedInner = new ArrayList<Integer>();
+      for (Integer key : expected) {
+        if (key >= mid - 100 && key < mid) {
+          expectedInner.add(key);
+        } // if
+      } // for
+      assertEquals(expectedInner, inner);
+    } // for
+  } // testRanges()
+} // class FrozenSkipListTests
@@ -0,0 +1,27 @@
+/**
+ * Nodes in the indexed skip list.
+ */
+class IndexedSLNode<K, V> extends SLNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The width of each link: how many level-0 steps it takes to get from this node to next[lvl]
+   * (or to one past the end of the list, if next[lvl] is null).
+   */
+  int[] width;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  public IndexedSLNode(K key, V value, int n) {
+    super(key, value, n);
+    this.width = new int[n];
+  } // IndexedSLNode(K, V, int)
+} // IndexedSLNode<K,V>
@@ -0,0 +1,400 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Skip lists that also support positional access. Every link remembers its width, the number
+ * of level-0 steps it skips, so we can find the entry at a given index or the index of a given
+ * key with one top-down descent, in expected O(log n) time. set and remove keep the widths up to
+ * date as they go.
+ *
+ * Widths live only in this subclass (in IndexedSLNode and frontWidth), so plain SkipLists pay
+ * nothing for them. The bulk operations inherited from SkipList don't track widths; they call
+ * structureChanged, and we recompute all of the widths in one linear pass the next time we
+ * need them.
+ *
+ * Positions are 0-based, as in java.util.List. Internally, though, it's easier to number the
+ * front of the list 0 and the entries 1 through size, so the helpers work with those.
+ */
+public class IndexedSkipList<K, V> extends SkipList<K, V> {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The widths of the links out of the front of the list, one per level.
+   */
+  int[] frontWidth;
+
+  /**
+   * Whether the widths need to be recomputed before we use them.
+   */
+  boolean stale;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new indexed skip list that orders values using the specified comparator.
+   */
+  public IndexedSkipList(Comparator<K> comparator) {
+    super(comparator);
+    this.frontWidth = new int[this.height];
+    for (int lvl = 0; lvl < this.height; lvl++) {
+      this.frontWidth[lvl] = 1;
+    } // for
+    this.stale = false;
+  } // IndexedSkipList(Comparator<K>)
+
+  /**
+   * Create a new indexed skip list that orders values using a not-very-clever default
+   * comparator.
+   */
+  public IndexedSkipList() {
+    this((k1, k2) -> k1.toString().compareTo(k2.toString()));
+  } // IndexedSkipList()
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key, keeping the link widths up to date.
+   *
+   * @return the previous value associated with key (or null, if there's no such value)
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V set(K key, V value) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    this.refreshWidths();
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    int[] pos = new int[this.height];
+    SLNode<K, V> next =
+        this.after(this.findPredecessors(key, prev, pos, SkipListMetrics.Op.SET), 0);
+    boolean found = next != null && this.comparator.compare(next.key, key) == 0;
+    this.preserve(key, found ? next : null);
+    if (found) {
+      V temp = next.value;
+      next.value = value;
+      return temp;
+    } // if found key, update value
+
+    int oldHeight = this.height;
+    SLNode<K, V> setNode = this.newNode(key, value, this.randomHeight());
+    int nodeHeight = setNode.next.length;
+    if (nodeHeight > oldHeight) {
+      this.growFront(nodeHeight);
+      pos = Arrays.copyOf(pos, nodeHeight);
+      for (int lvl = oldHeight; lvl < nodeHeight; lvl++) {
+        this.front.add(null);
+        prev.add(null);
+      } // for (new levels start at the front, position 0)
+      this.height = nodeHeight;
+    } // if node largest yet
+
+    // The new node goes at position pos[0] + 1
+    int position = pos[0] + 1;
+    for (int lvl = 0; lvl < nodeHeight; lvl++) {
+      SLNode<K, V> pred = prev.get(lvl);
+      setNode.next[lvl] = this.after(pred, lvl);
+      if (pred == null) {
+        this.front.set(lvl, setNode);
+      } else {
+        pred.next[lvl] = setNode;
+      } // if/else
+      int oldWidth = this.width(pred, lvl);
+      this.setWidth(setNode, lvl, pos[lvl] + oldWidth + 1 - position);
+      this.setWidth(pred, lvl, position - pos[lvl]);
+    } // for (link in new node)
+    for (int lvl = nodeHeight; lvl < this.height; lvl++) {
+      this.setWidth(prev.get(lvl), lvl, this.width(prev.get(lvl), lvl) + 1);
+    } // for (links that now jump over the new node)
+    this.size++;
+    return null;
+  } // set(K,V)
+
+  /**
+   * Remove the value with the given key, keeping the link widths up to date.
+   *
+   * @return The associated value (or null, if there is no associated value).
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V remove(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    this.refreshWidths();
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    int[] pos = new int[this.height];
+    SLNode<K, V> node =
+        this.after(this.findPredecessors(key, prev, pos, SkipListMetrics.Op.REMOVE), 0);
+    if (node == null || this.comparator.compare(node.key, key) != 0) {
+      return null;
+    } // if key not found
+    this.preserve(key, node);
+
+    for (int lvl = 0; lvl < node.next.length; lvl++) {
+      SLNode<K, V> pred = prev.get(lvl);
+      this.setWidth(pred, lvl, this.width(pred, lvl) + this.width(node, lvl) - 1);
+      if (pred == null) {
+        this.front.set(lvl, node.next[lvl]);
+      } else {
+        pred.next[lvl] = node.next[lvl];
+      } // if/else
+    } // for
+    for (int lvl = node.next.length; lvl < this.height; lvl++) {
+      this.setWidth(prev.get(lvl), lvl, this.width(prev.get(lvl), lvl) - 1);
+    } // for (links that used to jump over the node)
+    this.size--;
+    return node.value;
+  } // remove(K)
+
+  // +-------------------+-------------------------------------------
+  // | Positional access |
+  // +-------------------+
+
+  /**
+   * Get the key at the given position.
+   *
+   * @throws IndexOutOfBoundsException if index is not in [0, size).
+   */
+  public K keyAt(int index) {
+    return this.nodeAt(index).key;
+  } // keyAt(int)
+
+  /**
+   * Get the value at the given position.
+   *
+   * @throws IndexOutOfBoundsException if index is not in [0, size).
+   */
+  public V getAt(int index) {
+    return this.nodeAt(index).value;
+  } // getAt(int)
+
+  /**
+   * Remove the entry at the given position.
+   *
+   * @return the value that was there
+   * @throws IndexOutOfBoundsException if index is not in [0, size).
+   */
+  public V removeAt(int index) {
+    return this.remove(this.nodeAt(index).key);
+  } // removeAt(int)
+
+  /**
+   * Find the position of a key.
+   *
+   * @return the index of key, if it's in the list; otherwise, (-(insertion point) - 1), where
+   *   the insertion point is the index the key would have if it were added. (The same
+   *   convention as java.util.Arrays.binarySearch.)
+   * @throws NullPointerException if the key is null.
+   */
+  public int rank(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    this.refreshWidths();
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    int[] pos = new int[this.height];
+    SLNode<K, V> next = this.after(this.findPredecessors(key, prev, pos, null), 0);
+    if (next != null && this.comparator.compare(next.key, key) == 0) {
+      return pos[0];
+    } // if
+    return -pos[0] - 1;
+  } // rank(K)
+
+  /**
+   * Get a view of the entries at positions [fromIndex, toIndex). The bounds are turned into
+   * keys when the view is made, so the view covers a fixed range of keys from then on.
+   *
+   * @throws IndexOutOfBoundsException if the indices are out of range or out of order.
+   */
+  public SimpleMap<K, V> subList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > this.size || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException("invalid range [" + fromIndex + ", " + toIndex + ")");
+    } // if
+    if (fromIndex == toIndex) {
+      // [k, k) is empty for any key k
+      K key = (this.size == 0) ? null : this.keyAt(Math.min(fromIndex, this.size - 1));
+      return new SubMap(key, key);
+    } // if
+    return new SubMap(this.keyAt(fromIndex), this.keyAtOrNull(toIndex));
+  } // subList(int, int)
+
+  // +----------+----------------------------------------------------
+  // | Splicing |
+  // +----------+
+
+  /**
+   * Move all of other's entries onto the end of this list, as in SkipList. other must be
+   * indexed too, since our nodes have to carry widths.
+   *
+   * @throws IllegalArgumentException if other isn't an IndexedSkipList, is this list, or has
+   *   keys that overlap ours.
+   */
+  @Override
+  public void concatenate(SkipList<K, V> other) {
+    if (!(other instanceof IndexedSkipList)) {
+      throw new IllegalArgumentException("can only concatenate indexed lists");
+    } // if
+    super.concatenate(other);
+  } // concatenate(SkipList<K,V>)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  @Override
+  SLNode<K, V> newNode(K key, V value, int n) {
+    return new IndexedSLNode<K, V>(key, value, n);
+  } // newNode(K, V, int)
+
+  @Override
+  SkipList<K, V> newList() {
+    return new IndexedSkipList<K, V>(this.comparator);
+  } // newList()
+
+  @Override
+  void structureChanged() {
+    this.stale = true;
+  } // structureChanged()
+
+  /**
+   * Get the width of the link out of node at level lvl (null stands for the front).
+   */
+  int width(SLNode<K, V> node, int lvl) {
+    return (node == null) ? this.frontWidth[lvl] : ((IndexedSLNode<K, V>) node).width[lvl];
+  } // width(SLNode<K,V>, int)
+
+  /**
+   * Set the width of the link out of node at level lvl (null stands for the front).
+   */
+  void setWidth(SLNode<K, V> node, int lvl, int width) {
+    if (node == null) {
+      this.frontWidth[lvl] = width;
+    } else {
+      ((IndexedSLNode<K, V>) node).width[lvl] = width;
+    } // if/else
+  } // setWidth(SLNode<K,V>, int, int)
+
+  /**
+   * Make sure frontWidth covers newHeight levels. The new levels are empty, so their links
+   * jump straight past the end of the list.
+   */
+  void growFront(int newHeight) {
+    int oldHeight = this.frontWidth.length;
+    if (newHeight > oldHeight) {
+      this.frontWidth = Arrays.copyOf(this.frontWidth, newHeight);
+      for (int lvl = oldHeight; lvl < newHeight; lvl++) {
+        this.frontWidth[lvl] = this.size + 1;
+      } // for
+    } // if
+  } // growFront(int)
+
+  /**
+   * Find the predecessors of key, and their positions, at every level, and report the search
+   * to metrics as op (unless op is null, as it is for rank).
+   *
+   * @post prev.get(lvl) is the last node at level lvl whose key is less than key (or null,
+   *   for the front), and pos[lvl] is its position (0 for the front)
+   * @return prev.get(0)
+   */
+  SLNode<K, V> findPredecessors(K key, ArrayList<SLNode<K, V>> prev, int[] pos,
+      SkipListMetrics.Op op) {
+    int steps = 0;
+    int levels = 0;
+    int comparisons = 0;
+    SLNode<K, V> current = null;
+    SLNode<K, V> next = null;
+    int order = 1;
+    int position = 0;
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      levels++;
+      next = this.after(current, lvl);
+      order = 1;
+      while (next != null) {
+        comparisons++;
+        order = this.comparator.compare(next.key, key);
+        if (order >= 0) {
+          break;
+        } // if
+        position += this.width(current, lvl);
+        current = next;
+        next = current.next[lvl];
+        steps++;
+      } // while next < key at level lvl
+      prev.set(lvl, current);
+      pos[lvl] = position;
+    } // for each level
+    if (op != null) {
+      this.metrics.record(op, next != null && order == 0, steps, levels, comparisons);
+    } // if
+    return current;
+  } // findPredecessors(K, ArrayList<SLNode<K,V>>, int[], SkipListMetrics.Op)
+
+  /**
+   * Find the node at a 0-based index by following widths.
+   *
+   * @throws IndexOutOfBoundsException if index is not in [0, size).
+   */
+  SLNode<K, V> nodeAt(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("index " + index + " out of range for size "
+          + this.size);
+    } // if
+    this.refreshWidths();
+    int target = index + 1;
+    SLNode<K, V> current = null;
+    int position = 0;
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      while (this.after(current, lvl) != null
+          && position + this.width(current, lvl) <= target) {
+        position += this.width(current, lvl);
+        current = this.after(current, lvl);
+      } // while the next node is not past the target
+      if (position == target) {
+        return current;
+      } // if
+    } // for each level
+    throw new IllegalStateException("widths are inconsistent");
+  } // nodeAt(int)
+
+  /**
+   * Get the key at an index, or null if the index is size.
+   */
+  K keyAtOrNull(int index) {
+    return (index == this.size) ? null : this.keyAt(index);
+  } // keyAtOrNull(int)
+
+  /**
+   * Recompute every width in one pass along level 0, if something has made them stale.
+   */
+  void refreshWidths() {
+    if (!this.stale) {
+      return;
+    } // if
+    // The height may have shrunk (see SkipList.trimHeight), and growFront assumes frontWidth
+    // has exactly height levels
+    this.frontWidth = Arrays.copyOf(this.frontWidth, this.height);
+    ArrayList<SLNode<K, V>> last = this.newFinger();
+    int[] lastPos = new int[this.height];
+    int position = 0;
+    for (SLNode<K, V> node = this.front.get(0); node != null; node = node.next[0]) {
+      position++;
+      for (int lvl = 0; lvl < node.next.length; lvl++) {
+        this.setWidth(last.get(lvl), lvl, position - lastPos[lvl]);
+        last.set(lvl, node);
+        lastPos[lvl] = position;
+      } // for
+    } // for each node
+    for (int lvl = 0; lvl < this.height; lvl++) {
+      this.setWidth(last.get(lvl), lvl, this.size + 1 - lastPos[lvl]);
+    } // for (links off the end)
+    this.stale = false;
+  } // refreshWidths()
+} // class IndexedSkipList
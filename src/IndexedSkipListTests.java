@@ -0,0 +1,156 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Some tests of indexed skip lists.
+ */
+public class IndexedSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A sorted list of integers for tests.
+   */
+  IndexedSkipList<Integer, String> ints;
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Set up everything.
+   */
+  @BeforeEach
+  public void setup() {
+    this.ints = new IndexedSkipList<Integer, String>((i, j) -> i - j);
+  } // setup
+
+  /**
+   * Check every positional operation against a sorted list of the expected keys.
+   */
+  void checkPositions(ArrayList<Integer> expected) {
+    assertEquals(expected.size(), ints.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), ints.keyAt(i));
+      assertEquals(SkipListTests.value(expected.get(i)), ints.getAt(i));
+      assertEquals(i, ints.rank(expected.get(i)));
+    } // for
+  } // checkPositions(ArrayList<Integer>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Positions should track a randomized sequence of sets and removes.
+   */
+  @Test
+  public void randomTest() {
+    setup();
+    ArrayList<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < 2000; i++) {
+      int key = random.nextInt(500);
+      int where = Collections.binarySearch(expected, key);
+      if (random.nextBoolean()) {
+        ints.set(key, SkipListTests.value(key));
+        if (where < 0) {
+          expected.add(-where - 1, key);
+        } // if
+      } else {
+        ints.remove(key);
+        if (where >= 0) {
+          expected.remove(where);
+        } // if
+      } // if/else
+      assertEquals(Collections.binarySearch(expected, key), ints.rank(key));
+    } // for
+    checkPositions(expected);
+  } // randomTest()
+
+  /**
+   * rank of a missing key should give its insertion point.
+   */
+  @Test
+  public void testRankMissing() {
+    setup();
+    for (int i = 0; i < 10; i++) {
+      ints.set(i * 10, SkipListTests.value(i * 10));
+    } // for
+    assertEquals(-1, ints.rank(-5));
+    assertEquals(-4, ints.rank(25));
+    assertEquals(-11, ints.rank(1000));
+  } // testRankMissing()
+
+  /**
+   * removeAt and subList.
+   */
+  @Test
+  public void testRemoveAtAndSubList() {
+    setup();
+    ArrayList<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < 100; i++) {
+      ints.set(i, SkipListTests.value(i));
+      expected.add(i);
+    } // for
+    assertEquals(SkipListTests.value(50), ints.removeAt(50));
+    expected.remove(50);
+    assertEquals(SkipListTests.value(0), ints.removeAt(0));
+    expected.remove(0);
+    checkPositions(expected);
+
+    Iterator<Integer> it = ints.subList(10, 15).keys();
+    for (int i = 10; i < 15; i++) {
+      assertEquals(expected.get(i), it.next());
+    } // for
+    assertFalse(it.hasNext());
+    assertEquals(0, ints.subList(98, 98).size());
+    assertEquals(3, ints.subList(95, 98).size());
+    try {
+      ints.keyAt(98);
+      fail("keyAt(size) should throw");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+  } // testRemoveAtAndSubList()
+
+  /**
+   * The inherited bulk operations don't track widths, so positions must still be right
+   * after them.
+   */
+  @Test
+  public void testAfterBulkOperations() {
+    setup();
+    ArrayList<Integer> keys = new ArrayList<Integer>();
+    ArrayList<Map.Entry<Integer, String>> entries = new ArrayList<Map.Entry<Integer, String>>();
+    for (int i = 0; i < 200; i += 2) {
+      entries.add(new AbstractMap.SimpleEntry<Integer, String>(i, SkipListTests.value(i)));
+      keys.add(i);
+    } // for
+    ints.setAll(entries);
+    checkPositions(keys);
+    ints.set(3, SkipListTests.value(3));
+    keys.add(2, 3);
+    checkPositions(keys);
+    ArrayList<Integer> toRemove = new ArrayList<Integer>();
+    toRemove.add(0);
+    toRemove.add(100);
+    ints.removeAll(toRemove);
+    keys.remove((Integer) 0);
+    keys.remove((Integer) 100);
+    checkPositions(keys);
+  } // testAfterBulkOperations()
+} // class IndexedSkipListTests
@@ -0,0 +1,319 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Skip lists keyed by primitive ints. Keys are stored unboxed and compared directly, so none of
+ * the operations allocate an Integer or go through a Comparator. Otherwise the same as SkipList:
+ * set/get/remove/containsKey/forEach behave as in SimpleMap.
+ */
+public class IntSkipList<V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The maximum height of the skip list.
+   */
+  static final int MAX_HEIGHT = 32;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The sentinel at the front of every level. Its key is never examined.
+   */
+  final IntSLNode<V> head;
+
+  /**
+   * The number of values in the list.
+   */
+  int size;
+
+  /**
+   * The current height of the skiplist (the number of levels in use).
+   */
+  int height;
+
+  /**
+   * The probability used to determine the height of nodes.
+   */
+  double prob = 0.5;
+
+  /**
+   * The generator used to pick node heights.
+   */
+  final Random rand = new Random();
+
+  /**
+   * Scratch space for the predecessors found by set and remove.
+   */
+  final IntSLNode<V>[] update;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, skip list.
+   */
+  @SuppressWarnings("unchecked")
+  public IntSkipList() {
+    this.head = new IntSLNode<V>(0, null, MAX_HEIGHT);
+    this.update = (IntSLNode<V>[]) new IntSLNode<?>[MAX_HEIGHT];
+    this.size = 0;
+    this.height = 1;
+  } // IntSkipList()
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key.
+   *
+   * @post If key exists in list, change associated value to given value
+   * @post If key not in list, add key/value pair to list
+   * @return the previous value associated with key (or null, if there's no such value)
+   */
+  public V set(int key, V value) {
+    IntSLNode<V>[] prev = this.update;
+    IntSLNode<V> current = this.findPredecessors(key, prev);
+    IntSLNode<V> next = current.next[0];
+    if (next != null && next.key == key) {
+      V temp = next.value;
+      next.value = value;
+      return temp;
+    } // if found key, update value
+
+    int newHeight = this.randomHeight();
+    if (newHeight > this.height) {
+      for (int lvl = this.height; lvl < newHeight; lvl++) {
+        prev[lvl] = this.head;
+      } // for
+      this.height = newHeight;
+    } // if node largest yet
+    IntSLNode<V> setNode = new IntSLNode<V>(key, value, newHeight);
+    for (int lvl = 0; lvl < newHeight; lvl++) {
+      setNode.next[lvl] = prev[lvl].next[lvl];
+      prev[lvl].next[lvl] = setNode;
+    } // for (initialize new node)
+    this.size++;
+    return null;
+  } // set(int,V)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @pre key exists in list
+   * @throws IndexOutOfBoundsException if the key is not in the map.
+   */
+  public V get(int key) {
+    IntSLNode<V> node = this.find(key);
+    if (node == null) {
+      throw new IndexOutOfBoundsException("key invalid: " + key);
+    } // if
+    return node.value;
+  } // get(int)
+
+  /**
+   * Determine how many values are in the map.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Determine if a key appears in the table.
+   */
+  public boolean containsKey(int key) {
+    return this.find(key) != null;
+  } // containsKey(int)
+
+  /**
+   * Remove the value with the given key.
+   *
+   * @post Entry with given key removed from list, if present
+   * @return The associated value (or null, if there is no associated value).
+   */
+  public V remove(int key) {
+    IntSLNode<V>[] prev = this.update;
+    IntSLNode<V> current = this.findPredecessors(key, prev).next[0];
+    if (current == null || current.key != key) {
+      return null;
+    } // if key not found
+    for (int lvl = 0; lvl < current.next.length; lvl++) {
+      prev[lvl].next[lvl] = current.next[lvl];
+    } // for
+    while (this.height > 1 && this.head.next[this.height - 1] == null) {
+      this.height--;
+    } // while the top level is empty
+    this.size--;
+    return current.value;
+  } // remove(int)
+
+  /**
+   * Get an iterator for all of the keys in the map.
+   */
+  public PrimitiveIterator.OfInt keys() {
+    return new PrimitiveIterator.OfInt() {
+      IntSLNode<V> next = IntSkipList.this.head.next[0];
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      } // hasNext()
+
+      @Override
+      public int nextInt() {
+        if (this.next == null) {
+          throw new NoSuchElementException();
+        } // if
+        int temp = this.next.key;
+        this.next = this.next.next[0];
+        return temp;
+      } // nextInt()
+    };
+  } // keys()
+
+  /**
+   * Get an iterator for all of the values in the map.
+   */
+  public Iterator<V> values() {
+    return new Iterator<V>() {
+      IntSLNode<V> next = IntSkipList.this.head.next[0];
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      } // hasNext()
+
+      @Override
+      public V next() {
+        if (this.next == null) {
+          throw new NoSuchElementException();
+        } // if
+        V temp = this.next.value;
+        this.next = this.next.next[0];
+        return temp;
+      } // next()
+    };
+  } // values()
+
+  /**
+   * Apply a function to each key/value pair.
+   */
+  public void forEach(IntEntryConsumer<? super V> action) {
+    for (IntSLNode<V> current = this.head.next[0]; current != null; current = current.next[0]) {
+      action.accept(current.key, current.value);
+    } // for
+  } // forEach(IntEntryConsumer<V>)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Pick a random height for a new node.
+   */
+  int randomHeight() {
+    int result = 1;
+    while (result < MAX_HEIGHT && rand.nextDouble() < prob) {
+      result = result + 1;
+    } // while
+    return result;
+  } // randomHeight()
+
+  /**
+   * Find the node with the given key.
+   *
+   * @return the node, or null if key is not in the list
+   */
+  IntSLNode<V> find(int key) {
+    IntSLNode<V> current = this.head;
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      IntSLNode<V> next = current.next[lvl];
+      while (next != null && next.key < key) {
+        current = next;
+        next = current.next[lvl];
+      } // while current < key at level lvl
+      if (next != null && next.key == key) {
+        return next;
+      } // if
+    } // for each level
+    return null;
+  } // find(int)
+
+  /**
+   * Find the last node before key at every level in use.
+   *
+   * @post prev[lvl] is the last node at level lvl whose key is less than key (or head)
+   * @return prev[0]
+   */
+  IntSLNode<V> findPredecessors(int key, IntSLNode<V>[] prev) {
+    IntSLNode<V> current = this.head;
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      IntSLNode<V> next = current.next[lvl];
+      while (next != null && next.key < key) {
+        current = next;
+        next = current.next[lvl];
+      } // while current < key at level lvl
+      prev[lvl] = current;
+    } // for each level
+    return current;
+  } // findPredecessors(int, IntSLNode<V>[])
+
+  // +------------------+--------------------------------------------
+  // | Inner Interfaces |
+  // +------------------+
+
+  /**
+   * Something to do with each int key/value pair, without boxing the key.
+   */
+  @FunctionalInterface
+  public interface IntEntryConsumer<V> {
+    void accept(int key, V value);
+  } // interface IntEntryConsumer<V>
+} // class IntSkipList
+
+
+/**
+ * Nodes in the int-keyed skip list.
+ */
+class IntSLNode<V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key.
+   */
+  final int key;
+
+  /**
+   * The value.
+   */
+  V value;
+
+  /**
+   * Pointers to the next nodes.
+   */
+  final IntSLNode<V>[] next;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  @SuppressWarnings("unchecked")
+  public IntSLNode(int key, V value, int n) {
+    this.key = key;
+    this.value = value;
+    this.next = (IntSLNode<V>[]) new IntSLNode<?>[n];
+  } // IntSLNode(int, V, int)
+} // IntSLNode<V>
@@ -0,0 +1,201 @@
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A way to pick the heights of new skip-list nodes. A node reaches level i + 1 with
+ * probability p^i, where p is probability().
+ *
+ * The generators here take one random draw per node rather than one per level. When p is a
+ * power of two, 2^-k, the height is one more than the number of trailing zero bits of a random
+ * long, divided by k. Otherwise it's 1 + floor(log(u) / log(p)) for a uniform u in (0, 1].
+ */
+public interface LevelGenerator {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The tallest height the uncapped generators give.
+   */
+  public static final int MAX_LEVEL = 64;
+
+  /**
+   * The generator SkipList uses unless told otherwise: p = 1/2, from ThreadLocalRandom.
+   */
+  public static final LevelGenerator DEFAULT = random(0.5);
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Pick a height for a new node.
+   *
+   * @return a height, at least 1
+   */
+  public int nextLevel();
+
+  /**
+   * Get the probability that a node reaching some level also reaches the next one.
+   */
+  public double probability();
+
+  /**
+   * Get a generator that gives the same heights as this one, but never more than maxLevel.
+   *
+   * @throws IllegalArgumentException if maxLevel is less than 1.
+   */
+  public default LevelGenerator capped(int maxLevel) {
+    if (maxLevel < 1) {
+      throw new IllegalArgumentException("maxLevel < 1");
+    } // if
+    LevelGenerator base = this;
+    return new LevelGenerator() {
+      @Override
+      public int nextLevel() {
+        return Math.min(base.nextLevel(), maxLevel);
+      } // nextLevel()
+
+      @Override
+      public double probability() {
+        return base.probability();
+      } // probability()
+    }; // new LevelGenerator
+  } // capped(int)
+
+  // +-----------+---------------------------------------------------
+  // | Factories |
+  // +-----------+
+
+  /**
+   * Get a generator that draws from ThreadLocalRandom, so that threads never contend for it.
+   *
+   * @throws IllegalArgumentException if p is not strictly between 0 and 1.
+   */
+  public static LevelGenerator random(double p) {
+    checkProbability(p);
+    int k = powerOfTwo(p);
+    return new LevelGenerator() {
+      @Override
+      public int nextLevel() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        return (k > 0) ? fromBits(rand.nextLong(), k) : fromUniform(rand.nextDouble(), p);
+      } // nextLevel()
+
+      @Override
+      public double probability() {
+        return p;
+      } // probability()
+    }; // new LevelGenerator
+  } // random(double)
+
+  /**
+   * Get a generator whose heights depend only on seed, for reproducible tests and benchmarks.
+   * Threads share one SplittableRandom under a lock, so the sequence is only reproducible if
+   * nodes are added in the same order.
+   *
+   * @throws IllegalArgumentException if p is not strictly between 0 and 1.
+   */
+  public static LevelGenerator seeded(long seed, double p) {
+    checkProbability(p);
+    int k = powerOfTwo(p);
+    SplittableRandom rand = new SplittableRandom(seed);
+    return new LevelGenerator() {
+      @Override
+      public synchronized int nextLevel() {
+        return (k > 0) ? fromBits(rand.nextLong(), k) : fromUniform(rand.nextDouble(), p);
+      } // nextLevel()
+
+      @Override
+      public double probability() {
+        return p;
+      } // probability()
+    }; // new LevelGenerator
+  } // seeded(long, double)
+
+  /**
+   * Get a ThreadLocalRandom generator capped at a height suited to lists of about expectedSize
+   * nodes: log base 1/p of expectedSize, plus one. Taller towers would almost never help.
+   *
+   * @throws IllegalArgumentException if p is not strictly between 0 and 1.
+   */
+  public static LevelGenerator forExpectedSize(long expectedSize, double p) {
+    return random(p).capped(maxLevelFor(expectedSize, p));
+  } // forExpectedSize(long, double)
+
+  /**
+   * Get the generator SkipList used before this interface existed: one shared java.util.Random,
+   * drawn from once per level. Every thread contends for its seed, so this is only here for
+   * comparison in benchmarks.
+   */
+  public static LevelGenerator sharedRandom(double p) {
+    checkProbability(p);
+    Random rand = new Random();
+    return new LevelGenerator() {
+      @Override
+      public int nextLevel() {
+        int result = 1;
+        while (result < MAX_LEVEL && rand.nextDouble() < p) {
+          result = result + 1;
+        } // while
+        return result;
+      } // nextLevel()
+
+      @Override
+      public double probability() {
+        return p;
+      } // probability()
+    }; // new LevelGenerator
+  } // sharedRandom(double)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get the height cap that forExpectedSize uses.
+   */
+  public static int maxLevelFor(long expectedSize, double p) {
+    checkProbability(p);
+    if (expectedSize <= 1) {
+      return 1;
+    } // if
+    int levels = (int) Math.ceil(Math.log(expectedSize) / Math.log(1 / p)) + 1;
+    return Math.min(levels, MAX_LEVEL);
+  } // maxLevelFor(long, double)
+
+  /**
+   * Turn a random long into a height, for p = 2^-k.
+   */
+  static int fromBits(long bits, int k) {
+    return 1 + Math.min(Long.numberOfTrailingZeros(bits), MAX_LEVEL - 1) / k;
+  } // fromBits(long, int)
+
+  /**
+   * Turn a uniform double in [0, 1) into a height.
+   */
+  static int fromUniform(double u, double p) {
+    double levels = Math.log1p(-u) / Math.log(p);
+    return (levels >= MAX_LEVEL - 1) ? MAX_LEVEL : 1 + (int) levels;
+  } // fromUniform(double, double)
+
+  /**
+   * Find k such that p = 2^-k.
+   *
+   * @return k, or 0 if p isn't a power of two
+   */
+  static int powerOfTwo(double p) {
+    int exponent = Math.getExponent(p);
+    return (p == Math.scalb(1.0, exponent)) ? -exponent : 0;
+  } // powerOfTwo(double)
+
+  /**
+   * Make sure p is a usable probability.
+   */
+  static void checkProbability(double p) {
+    if (!(p > 0 && p < 1)) {
+      throw new IllegalArgumentException("probability must be in (0, 1): " + p);
+    } // if
+  } // checkProbability(double)
+} // interface LevelGenerator
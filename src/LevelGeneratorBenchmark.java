@@ -0,0 +1,114 @@
+import java.io.PrintWriter;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Insert throughput under contention for each LevelGenerator. At 1, 2, 4, ... threads (up to
+ * the number of cores), every thread inserts random keys, either into a SkipList of its own
+ * (so the only thing threads share is the level generator, as every SkipList once shared one
+ * static Random) or into one shared ConcurrentSkipList.
+ *
+ * Usage: java LevelGeneratorBenchmark [insertsPerThread] [trials]
+ */
+public class LevelGeneratorBenchmark {
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws Exception {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int inserts = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+    int trials = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+    int cores = Runtime.getRuntime().availableProcessors();
+    String[] generators = {"sharedRandom", "random", "forExpectedSize", "seeded"};
+
+    pen.println(inserts + " inserts per thread, best of " + trials + " trials, " + cores
+        + " cores");
+    pen.println();
+    pen.printf("%-16s %8s %20s %20s%n", "Generator", "Threads", "Private ops/s",
+        "Concurrent ops/s");
+    for (String generator : generators) {
+      for (int threads = 1; threads <= cores;
+          threads = ConcurrentSkipListBenchmark.nextThreadCount(threads, cores)) {
+        double own = 0;
+        double shared = 0;
+        for (int trial = 0; trial < trials; trial++) {
+          own = Math.max(own, run(generator, threads, inserts, false));
+          shared = Math.max(shared, run(generator, threads, inserts, true));
+        } // for
+        pen.printf("%-16s %8d %20.0f %20.0f%n", generator, threads, own, shared);
+      } // for
+    } // for
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make a fresh generator of the named kind.
+   */
+  static LevelGenerator generator(String name, long expectedSize) {
+    switch (name) {
+      case "sharedRandom":
+        return LevelGenerator.sharedRandom(0.5);
+      case "random":
+        return LevelGenerator.random(0.5);
+      case "forExpectedSize":
+        return LevelGenerator.forExpectedSize(expectedSize, 0.5);
+      case "seeded":
+        return LevelGenerator.seeded(42, 0.5);
+      default:
+        throw new IllegalArgumentException("unknown generator " + name);
+    } // switch
+  } // generator(String, long)
+
+  /**
+   * Insert from several threads at once.
+   *
+   * @return inserts per second, summed over all threads
+   */
+  static double run(String name, int threads, int inserts, boolean concurrent)
+      throws InterruptedException {
+    LevelGenerator levels = generator(name, (long) threads * inserts);
+    ConcurrentSkipList<Integer, String> shared =
+        new ConcurrentSkipList<Integer, String>((i, j) -> i - j, levels);
+    CountDownLatch ready = new CountDownLatch(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      int seed = t;
+      workers[t] = new Thread(() -> {
+        SimpleMap<Integer, String> map = shared;
+        if (!concurrent) {
+          SkipList<Integer, String> own = new SkipList<Integer, String>((i, j) -> i - j);
+          own.setLevelGenerator(levels);
+          map = own;
+        } // if
+        // Box the keys up front, so we measure the lists rather than Integer.valueOf
+        SplittableRandom rand = new SplittableRandom(seed);
+        Integer[] keys = new Integer[inserts];
+        for (int i = 0; i < inserts; i++) {
+          keys[i] = rand.nextInt();
+        } // for
+        ready.countDown();
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        } // try/catch
+        for (Integer key : keys) {
+          map.set(key, "");
+        } // for
+      });
+      workers[t].start();
+    } // for
+    ready.await();
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    } // for
+    return (double) threads * inserts * 1e9 / (System.nanoTime() - begin);
+  } // run(String, int, int, boolean)
+} // class LevelGeneratorBenchmark
@@ -0,0 +1,139 @@
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of level generators.
+ */
+public class LevelGeneratorTests {
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure a generator's heights follow the geometric distribution for its probability:
+   * about n * p^i draws should reach height i + 1.
+   */
+  static void assertGeometric(LevelGenerator levels) {
+    int n = 200000;
+    double p = levels.probability();
+    int[] atLeast = new int[LevelGenerator.MAX_LEVEL + 2];
+    for (int i = 0; i < n; i++) {
+      int level = levels.nextLevel();
+      assertTrue(level >= 1 && level <= LevelGenerator.MAX_LEVEL);
+      for (int j = 1; j <= level; j++) {
+        atLeast[j]++;
+      } // for
+    } // for
+    assertEquals(n, atLeast[1]);
+    for (int j = 2; j <= 4; j++) {
+      double expected = n * Math.pow(p, j - 1);
+      assertEquals("height " + j, expected, atLeast[j], 5 * Math.sqrt(expected) + 1);
+    } // for
+  } // assertGeometric(LevelGenerator)
+
+  /**
+   * Dump a list to a string, so that we can compare tower shapes.
+   */
+  static String shape(SkipList<Integer, String> list) {
+    StringWriter out = new StringWriter();
+    list.dump(new PrintWriter(out));
+    return out.toString();
+  } // shape(SkipList<Integer,String>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Every kind of generator should give geometrically distributed heights.
+   */
+  @Test
+  public void testDistributions() {
+    assertGeometric(LevelGenerator.random(0.5));
+    assertGeometric(LevelGenerator.random(0.25));
+    assertGeometric(LevelGenerator.random(0.3));
+    assertGeometric(LevelGenerator.seeded(7, 0.5));
+    assertGeometric(LevelGenerator.seeded(7, 1 / Math.E));
+    assertGeometric(LevelGenerator.sharedRandom(0.5));
+  } // testDistributions()
+
+  /**
+   * Capped generators should never go over their cap.
+   */
+  @Test
+  public void testCapped() {
+    assertEquals(1, LevelGenerator.maxLevelFor(1, 0.5));
+    assertEquals(11, LevelGenerator.maxLevelFor(1000, 0.5));
+    assertEquals(6, LevelGenerator.maxLevelFor(1000, 0.25));
+    LevelGenerator levels = LevelGenerator.forExpectedSize(16, 0.5);
+    boolean reachedCap = false;
+    for (int i = 0; i < 10000; i++) {
+      int level = levels.nextLevel();
+      assertTrue(level <= 5);
+      reachedCap |= (level == 5);
+    } // for
+    assertTrue(reachedCap);
+  } // testCapped()
+
+  /**
+   * Seeded generators should build identical lists from identical inputs.
+   */
+  @Test
+  public void testSeeded() {
+    SkipList<Integer, String> first = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipList<Integer, String> second = new SkipList<Integer, String>((i, j) -> i - j);
+    first.setLevelGenerator(LevelGenerator.seeded(42, 0.5));
+    second.setLevelGenerator(LevelGenerator.seeded(42, 0.5));
+    for (int i = 0; i < 500; i++) {
+      first.set((i * 37) % 500, "");
+      second.set((i * 37) % 500, "");
+    } // for
+    assertEquals(shape(first), shape(second));
+  } // testSeeded()
+
+  /**
+   * When mergeFrom rebuilds a list, the new nodes should still get their heights from the
+   * list's generator: within its cap, and reproducibly when it's seeded.
+   */
+  @Test
+  public void testMergeFrom() {
+    SkipList<Integer, String> other = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 500; i++) {
+      other.set(i, "");
+    } // for
+    SkipList<Integer, String> flat = new SkipList<Integer, String>((i, j) -> i - j);
+    flat.setLevelGenerator(LevelGenerator.random(0.5).capped(1));
+    flat.set(-1, "");
+    flat.mergeFrom(other, (a, b) -> b);
+    assertEquals(501, flat.size());
+    for (int lvl = 1; lvl < flat.height; lvl++) {
+      assertNull(flat.front.get(lvl));
+    } // for
+
+    SkipList<Integer, String> first = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipList<Integer, String> second = new SkipList<Integer, String>((i, j) -> i - j);
+    first.setLevelGenerator(LevelGenerator.seeded(42, 0.5));
+    second.setLevelGenerator(LevelGenerator.seeded(42, 0.5));
+    first.mergeFrom(other, (a, b) -> b);
+    second.mergeFrom(other, (a, b) -> b);
+    assertEquals(shape(first), shape(second));
+  } // testMergeFrom()
+
+  /**
+   * Bad probabilities should be rejected.
+   */
+  @Test
+  public void testBadProbability() {
+    for (double p : new double[] {0, 1, -0.5, 2, Double.NaN}) {
+      try {
+        LevelGenerator.random(p);
+        fail("probability " + p + " should be rejected");
+      } catch (IllegalArgumentException e) {
+        // Expected
+      } // try/catch
+    } // for
+  } // testBadProbability()
+} // class LevelGeneratorTests
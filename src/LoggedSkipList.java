@@ -0,0 +1,454 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+/**
+ * Skip lists whose changes are recorded in a WriteAheadLog before they're acknowledged, so
+ * they survive a crash. Opening a LoggedSkipList replays the log into it.
+ *
+ * Changes are made under the list's lock, but the fsync happens after the lock is released,
+ * so that concurrent writers share fsyncs through the log's group commit. Reads are not
+ * synchronized; as with SkipList, readers need their own locking if they run alongside
+ * writers.
+ */
+public class LoggedSkipList<K, V> extends SkipList<K, V> implements Closeable {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The log, or null while we're replaying it.
+   */
+  WriteAheadLog<K, V> log;
+
+  /**
+   * Whether removeIf, retainAll or mergeFrom is running, so that removeNode should leave the
+   * sync to it. These are the bulk operations that can reach removeNode, either directly or
+   * through the caller's filter or resolver. Only changed under the list's lock.
+   */
+  boolean batching;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an empty list that doesn't log anything yet.
+   */
+  LoggedSkipList(Comparator<K> comparator) {
+    super(comparator);
+    this.log = null;
+  } // LoggedSkipList(Comparator<K>)
+
+  /**
+   * Open the log in dir and rebuild the list from it.
+   *
+   * @throws IOException if the log can't be opened or is damaged.
+   */
+  public static <K, V> LoggedSkipList<K, V> open(Path dir, Comparator<K> comparator,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+    return open(dir, comparator, keySerializer, valueSerializer,
+        WriteAheadLog.DEFAULT_SEGMENT_SIZE);
+  } // open(Path, Comparator<K>, Serializer<K>, Serializer<V>)
+
+  /**
+   * Open the log in dir, with the given segment size, and rebuild the list from it.
+   */
+  public static <K, V> LoggedSkipList<K, V> open(Path dir, Comparator<K> comparator,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer, long segmentSize)
+      throws IOException {
+    WriteAheadLog<K, V> log =
+        WriteAheadLog.open(dir, keySerializer, valueSerializer, segmentSize);
+    LoggedSkipList<K, V> result = new LoggedSkipList<K, V>(comparator);
+    try {
+      log.replay(result, 0);
+    } catch (IOException | RuntimeException e) {
+      log.close();
+      throw e;
+    } // try/catch
+    result.log = log;
+    return result;
+  } // open(Path, Comparator<K>, Serializer<K>, Serializer<V>, long)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key, returning once the change is logged.
+   *
+   * @throws NullPointerException if the key is null.
+   * @throws UncheckedIOException if the log can't be written.
+   */
+  @Override
+  public V set(K key, V value) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    if (this.log == null) {
+      return super.set(key, value);
+    } // if replaying
+    long lsn;
+    V result;
+    synchronized (this) {
+      lsn = this.log.logSet(key, value);
+      result = super.set(key, value);
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // set(K,V)
+
+  /**
+   * Remove the value with the given key, returning once the change is logged.
+   *
+   * @throws NullPointerException if the key is null.
+   * @throws UncheckedIOException if the log can't be written.
+   */
+  @Override
+  public V remove(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    if (this.log == null) {
+      return super.remove(key);
+    } // if replaying
+    long lsn;
+    V result;
+    synchronized (this) {
+      lsn = this.log.logRemove(key);
+      result = super.remove(key);
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // remove(K)
+
+  // +------------------+--------------------------------------------
+  // | Batch operations |
+  // +------------------+
+
+  /**
+   * Set many key/value pairs at once, with a single sync for all of them.
+   */
+  @Override
+  public int setAll(Collection<? extends Map.Entry<? extends K, ? extends V>> entries) {
+    if (this.log == null) {
+      return super.setAll(entries);
+    } // if replaying
+    long lsn;
+    int result;
+    synchronized (this) {
+      lsn = this.log.lastLsn();
+      for (Map.Entry<? extends K, ? extends V> entry : entries) {
+        if (entry.getKey() == null) {
+          throw new NullPointerException("null key");
+        } // if
+      } // for
+      for (Map.Entry<? extends K, ? extends V> entry : entries) {
+        lsn = this.log.logSet(entry.getKey(), entry.getValue());
+      } // for
+      result = super.setAll(entries);
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // setAll(Collection<Map.Entry<K,V>>)
+
+  /**
+   * Remove many keys at once, with a single sync for all of them.
+   */
+  @Override
+  public SkipList<K, V> removeAll(Collection<? extends K> keys) {
+    if (this.log == null) {
+      return super.removeAll(keys);
+    } // if replaying
+    long lsn;
+    SkipList<K, V> result;
+    synchronized (this) {
+      lsn = this.log.lastLsn();
+      for (K key : keys) {
+        if (key == null) {
+          throw new NullPointerException("null key");
+        } // if
+      } // for
+      for (K key : keys) {
+        lsn = this.log.logRemove(key);
+      } // for
+      result = super.removeAll(keys);
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // removeAll(Collection<K>)
+
+  /**
+   * Load sorted entries into the empty list, logging each one, with a single sync at the end.
+   */
+  @Override
+  public void loadSorted(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries,
+      boolean balanced) {
+    if (this.log == null) {
+      super.loadSorted(entries, balanced);
+      return;
+    } // if replaying
+    ArrayList<Map.Entry<? extends K, ? extends V>> loaded =
+        new ArrayList<Map.Entry<? extends K, ? extends V>>();
+    entries.forEachRemaining(loaded::add);
+    long lsn;
+    synchronized (this) {
+      // Let SkipList check the order (and emptiness) before anything is logged
+      super.loadSorted(loaded.iterator(), balanced);
+      lsn = this.log.lastLsn();
+      for (Map.Entry<? extends K, ? extends V> entry : loaded) {
+        lsn = this.log.logSet(entry.getKey(), entry.getValue());
+      } // for
+    } // synchronized
+    this.sync(lsn);
+  } // loadSorted(Iterator<Map.Entry<K,V>>, boolean)
+
+  /**
+   * Remove every entry for which filter returns true, with a single sync for all of them.
+   */
+  @Override
+  public int removeIf(BiPredicate<? super K, ? super V> filter) {
+    if (this.log == null) {
+      return super.removeIf(filter);
+    } // if replaying
+    long lsn;
+    int result;
+    synchronized (this) {
+      // removeNode logs each removal, and leaves the sync to us
+      boolean outer = this.batching;
+      this.batching = true;
+      try {
+        result = super.removeIf(filter);
+      } finally {
+        this.batching = outer;
+      } // try/finally
+      lsn = this.log.lastLsn();
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // removeIf(BiPredicate)
+
+  /**
+   * Remove every entry whose key is not in keys, with a single sync for all of them.
+   */
+  @Override
+  public int retainAll(Collection<? extends K> keys) {
+    if (this.log == null) {
+      return super.retainAll(keys);
+    } // if replaying
+    long lsn;
+    int result;
+    synchronized (this) {
+      boolean outer = this.batching;
+      this.batching = true;
+      try {
+        result = super.retainAll(keys);
+      } finally {
+        this.batching = outer;
+      } // try/finally
+      lsn = this.log.lastLsn();
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // retainAll(Collection<K>)
+
+  /**
+   * Add other's entries to this list, as in SkipList, logging the resulting value of each of
+   * other's keys, with a single sync at the end.
+   */
+  @Override
+  public int mergeFrom(SkipList<K, V> other,
+      BiFunction<? super V, ? super V, ? extends V> resolver) {
+    if (this.log == null) {
+      return super.mergeFrom(other, resolver);
+    } // if replaying
+    long lsn;
+    int result;
+    synchronized (this) {
+      boolean outer = this.batching;
+      this.batching = true;
+      try {
+        result = super.mergeFrom(other, resolver);
+      } finally {
+        this.batching = outer;
+      } // try/finally
+      lsn = this.log.lastLsn();
+      ArrayList<SLNode<K, V>> prev = this.newFinger();
+      for (SLNode<K, V> node = other.front.get(0); node != null; node = node.next[0]) {
+        SLNode<K, V> merged = this.after(this.fingerSearch(node.key, prev), 0);
+        lsn = this.log.logSet(merged.key, merged.value);
+      } // for
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // mergeFrom(SkipList<K,V>, BiFunction)
+
+  // +----------+----------------------------------------------------
+  // | Splicing |
+  // +----------+
+
+  /**
+   * Remove the entries with keys in [from, to), logging a removal for each, with a single
+   * sync for all of them.
+   */
+  @Override
+  public int removeRange(K from, K to) {
+    if (this.log == null) {
+      return super.removeRange(from, to);
+    } // if replaying
+    long lsn;
+    int result;
+    synchronized (this) {
+      ArrayList<K> keys = this.keysFrom(from, to);
+      result = super.removeRange(from, to);
+      lsn = this.log.lastLsn();
+      for (K key : keys) {
+        lsn = this.log.logRemove(key);
+      } // for
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // removeRange(K, K)
+
+  /**
+   * Move the entries whose keys are at least key into a new list, logging their removal
+   * from this one. The new list is a plain SkipList, and isn't logged.
+   */
+  @Override
+  public SkipList<K, V> split(K key) {
+    if (this.log == null) {
+      return super.split(key);
+    } // if replaying
+    long lsn;
+    SkipList<K, V> result;
+    synchronized (this) {
+      result = super.split(key);
+      lsn = this.log.lastLsn();
+      for (SLNode<K, V> node = result.front.get(0); node != null; node = node.next[0]) {
+        lsn = this.log.logRemove(node.key);
+      } // for
+    } // synchronized
+    this.sync(lsn);
+    return result;
+  } // split(K)
+
+  /**
+   * Move all of other's entries onto the end of this list, logging each one, with a single
+   * sync at the end. (If other is logged too, it logs their removal.)
+   */
+  @Override
+  public void concatenate(SkipList<K, V> other) {
+    if (this.log == null) {
+      super.concatenate(other);
+      return;
+    } // if replaying
+    long lsn;
+    synchronized (this) {
+      SLNode<K, V> first = other.front.get(0);
+      // Let SkipList check that the lists fit together before anything is logged
+      super.concatenate(other);
+      lsn = this.log.lastLsn();
+      for (SLNode<K, V> node = first; node != null; node = node.next[0]) {
+        lsn = this.log.logSet(node.key, node.value);
+      } // for
+    } // synchronized
+    this.sync(lsn);
+  } // concatenate(SkipList<K,V>)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Get the log.
+   */
+  public WriteAheadLog<K, V> log() {
+    return this.log;
+  } // log()
+
+  /**
+   * Close the log. The list can't be changed afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    this.log.close();
+  } // close()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Log the removal of a node found by a cursor (from removeIf, retainAll or an iterator's
+   * remove) before making it. Within a batch (see batching), the batch syncs once at the
+   * end; otherwise we sync here, as remove does.
+   */
+  @Override
+  void removeNode(SLNode<K, V> node, ArrayList<SLNode<K, V>> prev) {
+    if (this.log == null) {
+      super.removeNode(node, prev);
+      return;
+    } // if replaying
+    boolean batch;
+    long lsn;
+    synchronized (this) {
+      lsn = this.log.logRemove(node.key);
+      super.removeNode(node, prev);
+      batch = this.batching;
+    } // synchronized
+    if (!batch) {
+      this.sync(lsn);
+    } // if
+  } // removeNode(SLNode<K,V>, ArrayList<SLNode<K,V>>)
+
+  /**
+   * Log the removal of every entry before another list's concatenate takes our nodes.
+   */
+  @Override
+  void dropAll() {
+    if (this.log == null) {
+      super.dropAll();
+      return;
+    } // if replaying
+    long lsn;
+    synchronized (this) {
+      lsn = this.log.lastLsn();
+      for (SLNode<K, V> node = this.front.get(0); node != null; node = node.next[0]) {
+        lsn = this.log.logRemove(node.key);
+      } // for
+      super.dropAll();
+    } // synchronized
+    this.sync(lsn);
+  } // dropAll()
+
+  /**
+   * Collect the keys in [from, to), where null bounds mean the ends of the list.
+   */
+  ArrayList<K> keysFrom(K from, K to) {
+    ArrayList<K> keys = new ArrayList<K>();
+    SLNode<K, V> start = (from == null) ? this.front.get(0) : this.ceilingNode(from);
+    for (Iterator<SLNode<K, V>> it = this.nodes(start, to); it.hasNext();) {
+      keys.add(it.next().key);
+    } // for
+    return keys;
+  } // keysFrom(K, K)
+
+  /**
+   * Wait for a record to reach the disk.
+   */
+  void sync(long lsn) {
+    try {
+      this.log.sync(lsn);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try/catch
+  } // sync(long)
+} // class LoggedSkipList
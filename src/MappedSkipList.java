@@ -0,0 +1,320 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+/**
+ * Skip lists that live in a memory-mapped file. Nodes are laid out exactly as in
+ * OffHeapSkipList, but the arena's chunks are regions of the file, so reopening the list just
+ * maps the file again; nothing is deserialized or rebuilt.
+ *
+ * File layout: a HEADER_SIZE-byte header, followed by the chunks, one after another. The header
+ * holds the list's bookkeeping (head address, size, height, allocator state), a clean/dirty
+ * flag, and a checksum of all of that.
+ *
+ * Durability: changes reach the file whenever the OS writes the mapped pages back, but they are
+ * only guaranteed to be there after force() (or close()). The first change after a force()
+ * marks the header dirty on disk, and force() marks it clean again once everything else is
+ * written. So if we crash between the two, the next open sees a dirty header and refuses the
+ * file as possibly torn, rather than following half-written links.
+ *
+ * Freed blocks of up to FREE_CLASSES - 1 words are reused; bigger ones are not reclaimed.
+ */
+public class MappedSkipList<K, V> extends OffHeapSkipList<K, V> implements Closeable {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The first eight bytes of every file ("SKIPLIST").
+   */
+  static final long MAGIC = 0x534B49504C495354L;
+
+  /**
+   * The version of the file layout.
+   */
+  static final int VERSION = 1;
+
+  /**
+   * The size of the file header.
+   */
+  static final int HEADER_SIZE = 4096;
+
+  /**
+   * The number of free lists we keep in the header.
+   */
+  static final int FREE_CLASSES = 65;
+
+  /**
+   * Offsets of the fields within the header.
+   */
+  static final int H_MAGIC = 0;
+  static final int H_VERSION = 8;
+  static final int H_CLEAN = 12;
+  static final int H_CHUNK_SIZE = 16;
+  static final int H_CHUNK_COUNT = 20;
+  static final int H_TOP = 24;
+  static final int H_SIZE = 28;
+  static final int H_HEAD = 32;
+  static final int H_HEIGHT = 40;
+  static final int H_FREE = 48;
+  static final int H_CHECKSUM = H_FREE + 8 * FREE_CLASSES;
+
+  /**
+   * The default chunk size for new files.
+   */
+  static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The open file.
+   */
+  final FileChannel channel;
+
+  /**
+   * The header, mapped.
+   */
+  final MappedByteBuffer header;
+
+  /**
+   * Whether the header on disk currently says dirty.
+   */
+  boolean dirty;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Wrap a list that's already in the file.
+   */
+  MappedSkipList(Comparator<K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer, FileChannel channel, MappedByteBuffer header,
+      MappedArena arena, long head, int size, int height) {
+    super(comparator, keySerializer, valueSerializer, arena, head, size, height);
+    this.channel = channel;
+    this.header = header;
+    this.dirty = false;
+  } // MappedSkipList(...)
+
+  /**
+   * Open the list stored in a file, creating the file (with an empty list) if it doesn't
+   * exist. The comparator and serializers must match the ones the file was written with.
+   *
+   * @throws IOException if the file can't be opened, isn't a skip list file, or was not
+   *   closed cleanly (and so may be torn).
+   */
+  public static <K, V> MappedSkipList<K, V> open(Path path, Comparator<K> comparator,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+    return open(path, comparator, keySerializer, valueSerializer, DEFAULT_CHUNK_SIZE);
+  } // open(Path, Comparator<K>, Serializer<K>, Serializer<V>)
+
+  /**
+   * Open the list stored in a file, as above. chunkSize only matters when the file is created;
+   * existing files keep the chunk size they were created with.
+   */
+  public static <K, V> MappedSkipList<K, V> open(Path path, Comparator<K> comparator,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer, int chunkSize)
+      throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      boolean fresh = channel.size() == 0;
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+      MappedSkipList<K, V> result;
+      if (fresh) {
+        MappedArena arena = new MappedArena(channel, chunkSize, new long[FREE_CLASSES]);
+        arena.grow();
+        arena.top = 8; // Address 0 stands for null, so never hand it out
+        result = new MappedSkipList<K, V>(comparator, keySerializer, valueSerializer, channel,
+            header, arena, newHead(arena), 0, 1);
+        result.force();
+      } else {
+        checkHeader(header, channel.size());
+        long[] free = new long[FREE_CLASSES];
+        for (int i = 0; i < FREE_CLASSES; i++) {
+          free[i] = header.getLong(H_FREE + 8 * i);
+        } // for
+        MappedArena arena = new MappedArena(channel, header.getInt(H_CHUNK_SIZE), free);
+        for (int i = 0; i < header.getInt(H_CHUNK_COUNT); i++) {
+          arena.grow();
+        } // for
+        arena.top = header.getInt(H_TOP);
+        result = new MappedSkipList<K, V>(comparator, keySerializer, valueSerializer, channel,
+            header, arena, header.getLong(H_HEAD), header.getInt(H_SIZE),
+            header.getInt(H_HEIGHT));
+      } // if/else
+      return result;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    } // try/catch
+  } // open(Path, Comparator<K>, Serializer<K>, Serializer<V>, int)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(K key, V value) {
+    this.markDirty();
+    return super.set(key, value);
+  } // set(K,V)
+
+  @Override
+  public V remove(K key) {
+    this.markDirty();
+    return super.remove(key);
+  } // remove(K)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Write every change so far to the file, then mark the file clean.
+   *
+   * @throws UncheckedIOException if the header can't be written.
+   */
+  public void force() {
+    MappedArena arena = (MappedArena) this.arena;
+    for (ByteBuffer chunk : arena.chunks) {
+      ((MappedByteBuffer) chunk).force();
+    } // for
+    this.header.putLong(H_MAGIC, MAGIC);
+    this.header.putInt(H_VERSION, VERSION);
+    this.header.putInt(H_CHUNK_SIZE, arena.chunkSize);
+    this.header.putInt(H_CHUNK_COUNT, arena.chunks.size());
+    this.header.putInt(H_TOP, arena.top);
+    this.header.putInt(H_SIZE, this.size);
+    this.header.putLong(H_HEAD, this.head);
+    this.header.putInt(H_HEIGHT, this.height);
+    for (int i = 0; i < FREE_CLASSES; i++) {
+      this.header.putLong(H_FREE + 8 * i, arena.free[i]);
+    } // for
+    this.header.putInt(H_CLEAN, 1);
+    this.header.putLong(H_CHECKSUM, checksum(this.header));
+    this.header.force();
+    this.dirty = false;
+  } // force()
+
+  /**
+   * Force everything to the file and close it. The list can't be used afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.channel.isOpen()) {
+      this.force();
+      this.channel.close();
+    } // if
+  } // close()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Before the first change since the last force(), record on disk that the file is in the
+   * middle of being changed.
+   */
+  void markDirty() {
+    if (!this.dirty) {
+      this.header.putInt(H_CLEAN, 0);
+      this.header.putLong(H_CHECKSUM, checksum(this.header));
+      this.header.force();
+      this.dirty = true;
+    } // if
+  } // markDirty()
+
+  /**
+   * Make sure a header describes a complete, cleanly-closed file.
+   *
+   * @throws IOException if it doesn't.
+   */
+  static void checkHeader(ByteBuffer header, long fileSize) throws IOException {
+    if (header.getLong(H_MAGIC) != MAGIC) {
+      throw new IOException("not a skip list file");
+    } // if
+    if (header.getInt(H_VERSION) != VERSION) {
+      throw new IOException("unsupported skip list file version " + header.getInt(H_VERSION));
+    } // if
+    if (header.getLong(H_CHECKSUM) != checksum(header)) {
+      throw new IOException("skip list file header is corrupt (bad checksum)");
+    } // if
+    if (header.getInt(H_CLEAN) != 1) {
+      throw new IOException("skip list file was not closed cleanly and may be torn");
+    } // if
+    long needed = HEADER_SIZE + (long) header.getInt(H_CHUNK_COUNT) * header.getInt(H_CHUNK_SIZE);
+    if (fileSize < needed) {
+      throw new IOException("skip list file is truncated (" + fileSize + " of " + needed
+          + " bytes)");
+    } // if
+  } // checkHeader(ByteBuffer, long)
+
+  /**
+   * Compute the checksum of everything in the header before the checksum itself.
+   */
+  static long checksum(ByteBuffer header) {
+    ByteBuffer fields = header.duplicate();
+    fields.position(0);
+    fields.limit(H_CHECKSUM);
+    CRC32 crc = new CRC32();
+    crc.update(fields);
+    return crc.getValue();
+  } // checksum(ByteBuffer)
+} // class MappedSkipList
+
+
+/**
+ * An arena whose chunks are consecutive regions of a file, just after the header.
+ */
+class MappedArena extends NativeArena {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The file.
+   */
+  final FileChannel channel;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an arena over a file, with the given free lists and no chunks mapped yet.
+   */
+  public MappedArena(FileChannel channel, int chunkSize, long[] free) {
+    super(chunkSize, free.length);
+    this.channel = channel;
+    System.arraycopy(free, 0, this.free, 0, free.length);
+  } // MappedArena(FileChannel, int, long[])
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Map chunk number index, extending the file if necessary.
+   */
+  @Override
+  ByteBuffer newChunk(int index) {
+    try {
+      return this.channel.map(FileChannel.MapMode.READ_WRITE,
+          MappedSkipList.HEADER_SIZE + (long) index * this.chunkSize, this.chunkSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try/catch
+  } // newChunk(int)
+} // MappedArena
@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of memory-mapped skip lists.
+ */
+public class MappedSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Open a list of ints in a file, with small chunks so that we exercise chunk boundaries.
+   */
+  static MappedSkipList<Integer, String> open(Path path) throws IOException {
+    return MappedSkipList.open(path, (i, j) -> i - j, Serializer.INTEGER, Serializer.STRING,
+        4096);
+  } // open(Path)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Whatever we put in should be there when we reopen the file.
+   */
+  @Test
+  public void testReopen() throws IOException {
+    Path path = Files.createTempFile("skiplist", ".map");
+    Files.delete(path);
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    try {
+      MappedSkipList<Integer, String> ints = open(path);
+      for (int i = 0; i < 3000; i++) {
+        int key = random.nextInt(1000);
+        if (random.nextInt(3) > 0) {
+          ints.set(key, SkipListTests.value(key));
+          expected.set(key, SkipListTests.value(key));
+        } else {
+          assertEquals(expected.remove(key), ints.remove(key));
+        } // if/else
+      } // for
+      ints.close();
+
+      ints = open(path);
+      assertEquals(expected.size(), ints.size());
+      Iterator<Integer> expectedKeys = expected.keys();
+      Iterator<Integer> actualKeys = ints.keys();
+      while (expectedKeys.hasNext()) {
+        Integer key = expectedKeys.next();
+        assertEquals(key, actualKeys.next());
+        assertEquals(expected.get(key), ints.get(key));
+      } // while
+      assertFalse(actualKeys.hasNext());
+
+      // And we can keep going after reopening
+      ints.set(5000, "five thousand");
+      ints.close();
+      ints = open(path);
+      assertEquals("five thousand", ints.get(5000));
+      ints.close();
+    } finally {
+      Files.deleteIfExists(path);
+    } // try/finally
+  } // testReopen()
+
+  /**
+   * A file that was changed but never forced or closed should be refused.
+   */
+  @Test
+  public void testDirtyFileRejected() throws IOException {
+    Path path = Files.createTempFile("skiplist", ".map");
+    Files.delete(path);
+    try {
+      MappedSkipList<Integer, String> ints = open(path);
+      ints.set(1, "one");
+      ints.force();
+      ints.set(2, "two");
+      // Simulate a crash: drop the list without closing it
+      ints.channel.close();
+      try {
+        open(path);
+        fail("a dirty file should be rejected");
+      } catch (IOException e) {
+        // Expected
+      } // try/catch
+    } finally {
+      Files.deleteIfExists(path);
+    } // try/finally
+  } // testDirtyFileRejected()
+
+  /**
+   * Garbage in the header should be detected.
+   */
+  @Test
+  public void testCorruptHeaderRejected() throws IOException {
+    Path path = Files.createTempFile("skiplist", ".map");
+    Files.delete(path);
+    try {
+      MappedSkipList<Integer, String> ints = open(path);
+      ints.set(1, "one");
+      ints.close();
+      try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+        file.seek(MappedSkipList.H_SIZE);
+        file.writeInt(12345);
+      } // try
+      try {
+        open(path);
+        fail("a corrupt header should be rejected");
+      } catch (IOException e) {
+        // Expected
+      } // try/catch
+    } finally {
+      Files.deleteIfExists(path);
+    } // try/finally
+  } // testCorruptHeaderRejected()
+} // class MappedSkipListTests
@@ -0,0 +1,736 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * A log-structured store that uses SkipLists as its in-memory write buffers (memtables) and
+ * SortedRuns as its on-disk storage.
+ *
+ * Writes go to the active memtable. Removes write a tombstone rather than removing anything,
+ * since older copies of the key may be in frozen memtables or runs. Once the active memtable
+ * holds flushThreshold entries, it is frozen and a new one takes over, while a background
+ * thread writes the frozen one out, in order, as a new run. If maxFrozen memtables are already
+ * waiting to be flushed, writers wait, so memory stays bounded however fast they write.
+ *
+ * Reads look in the active memtable, then the frozen ones (newest first), then the runs
+ * (newest first), and stop at the first one that mentions the key. Range iteration merges all
+ * of them, with newer sources winning ties and tombstones hiding what's underneath.
+ *
+ * When there are compactionThreshold runs, another background thread merges them all into
+ * one. Since nothing is older than the merged run, it can drop the tombstones.
+ *
+ * The memtables are not logged, so unflushed writes are lost in a crash; close() (or flush())
+ * writes them out. Everything is guarded by the store's lock except reading frozen memtables
+ * and runs, which never change.
+ */
+public class MemtableStore<K, V> implements Closeable {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The suffix of run files.
+   */
+  static final String SUFFIX = ".run";
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where the runs live.
+   */
+  final Path dir;
+
+  final Comparator<K> comparator;
+  final Serializer<K> keySerializer;
+  final Serializer<V> valueSerializer;
+
+  /**
+   * How many entries a memtable holds before we freeze it.
+   */
+  final int flushThreshold;
+
+  /**
+   * How many frozen memtables may wait for a flush before writers have to wait.
+   */
+  final int maxFrozen;
+
+  /**
+   * How many runs we allow before compacting them.
+   */
+  final int compactionThreshold;
+
+  /**
+   * The memtable that takes writes.
+   */
+  SkipList<K, V> active;
+
+  /**
+   * Memtables waiting to be flushed, newest first. Replaced rather than changed.
+   */
+  List<SkipList<K, V>> frozen;
+
+  /**
+   * The runs, newest first. Replaced rather than changed.
+   */
+  List<SortedRun<K, V>> runs;
+
+  /**
+   * The sequence number for the next run.
+   */
+  long nextSeq;
+
+  /**
+   * Whether a compaction is under way.
+   */
+  boolean compacting;
+
+  /**
+   * The first background failure, if any. Reported to the next writer.
+   */
+  IOException failure;
+
+  /**
+   * The background threads.
+   */
+  final ExecutorService flusher = Executors.newSingleThreadExecutor();
+  final ExecutorService compactor = Executors.newSingleThreadExecutor();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Open the store in dir, creating the directory if need be.
+   *
+   * @throws IOException if the directory or one of its runs can't be read.
+   */
+  public MemtableStore(Path dir, Comparator<K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer, int flushThreshold, int maxFrozen,
+      int compactionThreshold) throws IOException {
+    this.dir = dir;
+    this.comparator = comparator;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.flushThreshold = flushThreshold;
+    this.maxFrozen = maxFrozen;
+    this.compactionThreshold = compactionThreshold;
+    this.active = new SkipList<K, V>(comparator);
+    this.frozen = List.of();
+    this.runs = this.recover();
+    this.nextSeq = this.runs.isEmpty() ? 1 : this.runs.get(0).seq + 1;
+  } // MemtableStore(...)
+
+  /**
+   * Open the store in dir with reasonable defaults: flush every million entries, allow two
+   * frozen memtables, and compact at eight runs.
+   */
+  public MemtableStore(Path dir, Comparator<K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer) throws IOException {
+    this(dir, comparator, keySerializer, valueSerializer, 1 << 20, 2, 8);
+  } // MemtableStore(Path, Comparator<K>, Serializer<K>, Serializer<V>)
+
+  // +----------------+----------------------------------------------
+  // | Public methods |
+  // +----------------+
+
+  /**
+   * Set the value associated with key. Unlike SimpleMap.set, doesn't report the old value,
+   * since finding it could mean reading the disk.
+   *
+   * @throws NullPointerException if the key is null.
+   * @throws UncheckedIOException if a background flush or compaction has failed.
+   */
+  public void put(K key, V value) {
+    this.write(key, value);
+  } // put(K,V)
+
+  /**
+   * Remove key, if it's there.
+   *
+   * @throws NullPointerException if the key is null.
+   * @throws UncheckedIOException if a background flush or compaction has failed.
+   */
+  public void delete(K key) {
+    this.write(key, this.tombstone());
+  } // delete(K)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @throws IndexOutOfBoundsException if the key is not in the store.
+   * @throws NullPointerException if the key is null.
+   */
+  public V get(K key) {
+    Object value = this.find(key);
+    if (value == SortedRun.MISSING || value == SortedRun.TOMBSTONE) {
+      throw new IndexOutOfBoundsException("key invalid: " + key);
+    } // if
+    return this.cast(value);
+  } // get(K)
+
+  /**
+   * Determine if key is in the store.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public boolean containsKey(K key) {
+    Object value = this.find(key);
+    return value != SortedRun.MISSING && value != SortedRun.TOMBSTONE;
+  } // containsKey(K)
+
+  /**
+   * Apply action to every key/value pair with from <= key < to, in order. A null from or to
+   * means no bound on that side. Sees the store as it was when the call started.
+   */
+  public void forEach(K from, K to, BiConsumer<? super K, ? super V> action) {
+    for (Iterator<Map.Entry<K, Object>> it = this.merge(from, to, true); it.hasNext();) {
+      Map.Entry<K, Object> entry = it.next();
+      action.accept(entry.getKey(), this.cast(entry.getValue()));
+    } // for
+  } // forEach(K, K, BiConsumer)
+
+  /**
+   * Apply action to every key/value pair, in order.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    this.forEach(null, null, action);
+  } // forEach(BiConsumer)
+
+  /**
+   * Count the keys in the store. Has to merge everything, so takes time linear in the size of
+   * the store.
+   */
+  public long size() {
+    long count = 0;
+    for (Iterator<Map.Entry<K, Object>> it = this.merge(null, null, true); it.hasNext();) {
+      it.next();
+      count++;
+    } // for
+    return count;
+  } // size()
+
+  /**
+   * Freeze the active memtable (if it holds anything) and wait until every frozen memtable is
+   * on disk.
+   *
+   * @throws IOException if a flush fails.
+   */
+  public void flush() throws IOException {
+    Future<?> done;
+    synchronized (this) {
+      this.checkFailure();
+      if (this.active.size() > 0) {
+        this.freeze();
+      } // if
+      done = this.flusher.submit(() -> { });
+    } // synchronized
+    this.await(done);
+    synchronized (this) {
+      this.checkFailure();
+    } // synchronized
+  } // flush()
+
+  /**
+   * Merge every run into one, and wait for that to finish.
+   *
+   * @throws IOException if the compaction fails.
+   */
+  public void compact() throws IOException {
+    this.await(this.compactor.submit(this::compactAll));
+    synchronized (this) {
+      this.checkFailure();
+    } // synchronized
+  } // compact()
+
+  /**
+   * Get the number of runs on disk.
+   */
+  public synchronized int runCount() {
+    return this.runs.size();
+  } // runCount()
+
+  /**
+   * Flush everything and stop the background threads.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.flush();
+    } finally {
+      // Stop the compactor first, since a compaction needs the flusher to number its run
+      this.compactor.shutdown();
+      try {
+        this.compactor.awaitTermination(1, TimeUnit.MINUTES);
+        this.flusher.shutdown();
+        this.flusher.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } // try/catch
+    } // try/finally
+  } // close()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Put a value or tombstone in the active memtable, freezing it if it's full. Never lets
+   * more than maxFrozen memtables wait for a flush, even if interrupted while waiting.
+   */
+  synchronized void write(K key, V value) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    this.active.set(key, value);
+    if (this.active.size() >= this.flushThreshold) {
+      while (this.frozen.size() >= this.maxFrozen && this.failure == null) {
+        try {
+          this.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } // try/catch
+      } // while
+      // If we were interrupted, leave the memtable for a later write to freeze
+      if (this.frozen.size() < this.maxFrozen) {
+        this.freeze();
+      } // if
+    } // if
+    if (this.failure != null) {
+      throw new UncheckedIOException(this.failure);
+    } // if
+  } // write(K,V)
+
+  /**
+   * Look key up in each source, newest first.
+   *
+   * @return the value, TOMBSTONE, or MISSING
+   */
+  Object find(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    List<SkipList<K, V>> frozen;
+    List<SortedRun<K, V>> runs;
+    synchronized (this) {
+      SLNode<K, V> node = this.active.find(key, SkipListMetrics.Op.GET);
+      if (node != null) {
+        return node.value;
+      } // if
+      frozen = this.frozen;
+      runs = this.runs;
+    } // synchronized
+    for (SkipList<K, V> memtable : frozen) {
+      SLNode<K, V> node = memtable.find(key, SkipListMetrics.Op.GET);
+      if (node != null) {
+        return node.value;
+      } // if
+    } // for
+    for (SortedRun<K, V> run : runs) {
+      Object value = run.find(key);
+      if (value != SortedRun.MISSING) {
+        return value;
+      } // if
+    } // for
+    return SortedRun.MISSING;
+  } // find(K)
+
+  /**
+   * Make the active memtable frozen and schedule its flush.
+   *
+   * @pre the caller holds the store's lock
+   */
+  void freeze() {
+    SkipList<K, V> memtable = this.active;
+    ArrayList<SkipList<K, V>> newFrozen = new ArrayList<SkipList<K, V>>(this.frozen.size() + 1);
+    newFrozen.add(memtable);
+    newFrozen.addAll(this.frozen);
+    this.frozen = newFrozen;
+    this.active = new SkipList<K, V>(this.comparator);
+    this.flusher.submit(() -> this.flushMemtable(memtable));
+  } // freeze()
+
+  /**
+   * Write a frozen memtable out as a run. Runs on the flusher thread.
+   */
+  void flushMemtable(SkipList<K, V> memtable) {
+    try {
+      long seq = this.reserveSeq();
+      SortedRun<K, V> run = SortedRun.write(this.runPath(seq), seq, seq, this.entries(memtable),
+          this.comparator, this.keySerializer, this.valueSerializer);
+      synchronized (this) {
+        ArrayList<SortedRun<K, V>> newRuns = new ArrayList<SortedRun<K, V>>(this.runs.size() + 1);
+        newRuns.add(run);
+        newRuns.addAll(this.runs);
+        this.runs = newRuns;
+        ArrayList<SkipList<K, V>> newFrozen = new ArrayList<SkipList<K, V>>(this.frozen);
+        newFrozen.remove(memtable);
+        this.frozen = newFrozen;
+        if (this.runs.size() >= this.compactionThreshold && !this.compacting) {
+          this.compacting = true;
+          this.compactor.submit(this::compactAll);
+        } // if
+        this.notifyAll();
+      } // synchronized
+    } catch (IOException e) {
+      this.fail(e);
+    } // try/catch
+  } // flushMemtable(SkipList<K,V>)
+
+  /**
+   * Merge every current run into one. Runs on the compactor thread.
+   */
+  void compactAll() {
+    try {
+      synchronized (this) {
+        this.compacting = true;
+      } // synchronized
+      // Number the merged run on the flusher thread, between flushes, so that every run
+      // numbered below it is already in runs and every later flush is numbered above it
+      long seq = this.await(this.flusher.submit(this::reserveSeq));
+      ArrayList<SortedRun<K, V>> inputs = new ArrayList<SortedRun<K, V>>();
+      synchronized (this) {
+        for (SortedRun<K, V> run : this.runs) {
+          if (run.seq < seq) {
+            inputs.add(run);
+          } // if
+        } // for
+      } // synchronized
+      if (inputs.size() > 1) {
+        SortedRun<K, V> oldest = inputs.get(inputs.size() - 1);
+        // Write under a temporary name, so that a crash can't leave half a run behind. The
+        // final name is new, since the inputs may still be mapped and so can't be replaced.
+        Path temp = this.dir.resolve(seq + SUFFIX + ".tmp");
+        Files.deleteIfExists(temp);
+        SortedRun.create(temp, oldest.firstSeq,
+            new MergeIterator(this.cursors(List.of(), inputs, null), null, true),
+            this.keySerializer, this.valueSerializer);
+        Files.move(temp, this.runPath(seq), StandardCopyOption.ATOMIC_MOVE);
+        SortedRun<K, V> merged = new SortedRun<K, V>(this.runPath(seq), seq, this.comparator,
+            this.keySerializer, this.valueSerializer);
+        synchronized (this) {
+          // Flushes may have added newer runs in front of the ones we merged
+          ArrayList<SortedRun<K, V>> newRuns = new ArrayList<SortedRun<K, V>>(
+              this.runs.subList(0, this.runs.size() - inputs.size()));
+          newRuns.add(merged);
+          this.runs = newRuns;
+        } // synchronized
+        for (SortedRun<K, V> input : inputs) {
+          this.deleteRun(input.path);
+        } // for
+      } // if
+    } catch (IOException e) {
+      this.fail(e);
+    } finally {
+      synchronized (this) {
+        this.compacting = false;
+      } // synchronized
+    } // try/finally
+  } // compactAll()
+
+  /**
+   * Open the runs in dir, newest first, finishing any interrupted compaction.
+   */
+  List<SortedRun<K, V>> recover() throws IOException {
+    Files.createDirectories(this.dir);
+    ArrayList<Long> seqs = new ArrayList<Long>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(this.dir)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(SUFFIX + ".tmp")) {
+          Files.delete(file);
+        } else if (name.endsWith(SUFFIX)) {
+          seqs.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+        } // if/else
+      } // for
+    } // try
+    seqs.sort(Comparator.reverseOrder());
+    ArrayList<SortedRun<K, V>> result = new ArrayList<SortedRun<K, V>>();
+    for (long seq : seqs) {
+      if (!result.isEmpty() && result.get(result.size() - 1).firstSeq <= seq) {
+        // A compaction already merged this run into a newer one, but couldn't delete it
+        this.deleteRun(this.runPath(seq));
+      } else {
+        result.add(new SortedRun<K, V>(this.runPath(seq), seq, this.comparator,
+            this.keySerializer, this.valueSerializer));
+      } // if/else
+    } // for
+    return result;
+  } // recover()
+
+  /**
+   * Merge every source, from from (inclusive) to to (exclusive).
+   */
+  MergeIterator merge(K from, K to, boolean dropTombstones) {
+    SkipList<K, V> copy = new SkipList<K, V>(this.comparator);
+    List<SkipList<K, V>> memtables;
+    List<SortedRun<K, V>> runs;
+    synchronized (this) {
+      // The active memtable changes under us, so copy the part we need
+      ArrayList<Map.Entry<K, V>> range = new ArrayList<Map.Entry<K, V>>();
+      SLNode<K, V> start = (from == null) ? this.active.front.get(0)
+          : this.active.ceilingNode(from);
+      for (Iterator<SLNode<K, V>> it = this.active.nodes(start, to); it.hasNext();) {
+        SLNode<K, V> node = it.next();
+        range.add(new AbstractMap.SimpleEntry<K, V>(node.key, node.value));
+      } // for
+      copy.loadSorted(range.iterator(), false);
+      ArrayList<SkipList<K, V>> all = new ArrayList<SkipList<K, V>>();
+      all.add(copy);
+      all.addAll(this.frozen);
+      memtables = all;
+      runs = this.runs;
+    } // synchronized
+    return new MergeIterator(this.cursors(memtables, runs, from), to, dropTombstones);
+  } // merge(K, K, boolean)
+
+  /**
+   * Make cursors for the given memtables and runs (each newest first), positioned at from.
+   * Memtables are newer than runs.
+   */
+  ArrayList<Source> cursors(List<SkipList<K, V>> memtables, List<SortedRun<K, V>> runs,
+      K from) {
+    ArrayList<Source> sources = new ArrayList<Source>();
+    int age = 0;
+    for (SkipList<K, V> memtable : memtables) {
+      SLNode<K, V> start = (from == null) ? memtable.front.get(0) : memtable.ceilingNode(from);
+      Iterator<SLNode<K, V>> nodes = memtable.nodes(start, null);
+      sources.add(new Source(age++, null, nodes));
+    } // for
+    for (SortedRun<K, V> run : runs) {
+      sources.add(new Source(age++, run.cursor(from), null));
+    } // for
+    return sources;
+  } // cursors(List<SkipList<K,V>>, List<SortedRun<K,V>>, K)
+
+  /**
+   * Get the entries of a memtable, for writing to a run.
+   */
+  Iterator<Map.Entry<K, Object>> entries(SkipList<K, V> memtable) {
+    return new MergeIterator(this.cursors(List.of(memtable), List.of(), null), null, false);
+  } // entries(SkipList<K,V>)
+
+  /**
+   * Take the next run sequence number.
+   */
+  synchronized long reserveSeq() {
+    return this.nextSeq++;
+  } // reserveSeq()
+
+  /**
+   * Delete a run that a newer run has replaced, if we can. Some systems (Windows, for one)
+   * won't delete a file that's still mapped; if so, recover() tries again on reopen.
+   */
+  void deleteRun(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      // Leave it for recover()
+    } // try/catch
+  } // deleteRun(Path)
+
+  /**
+   * Get the path of a run.
+   */
+  Path runPath(long seq) {
+    return this.dir.resolve(seq + SUFFIX);
+  } // runPath(long)
+
+  /**
+   * Record a background failure and wake any waiting writers.
+   */
+  synchronized void fail(IOException e) {
+    if (this.failure == null) {
+      this.failure = e;
+    } // if
+    this.notifyAll();
+  } // fail(IOException)
+
+  /**
+   * Throw the background failure, if there was one.
+   */
+  void checkFailure() throws IOException {
+    if (this.failure != null) {
+      throw this.failure;
+    } // if
+  } // checkFailure()
+
+  /**
+   * Wait for a background task.
+   */
+  <T> T await(Future<T> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    } // try/catch
+  } // await(Future<T>)
+
+  /**
+   * Our tombstone, disguised as a V so that it fits in a memtable.
+   */
+  @SuppressWarnings("unchecked")
+  V tombstone() {
+    return (V) SortedRun.TOMBSTONE;
+  } // tombstone()
+
+  /**
+   * Treat a value from a source as a V.
+   */
+  @SuppressWarnings("unchecked")
+  V cast(Object value) {
+    return (V) value;
+  } // cast(Object)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * One source of entries for a merge: either a memtable or a run.
+   */
+  class Source implements Comparable<Source> {
+    /**
+     * 0 for the newest source, 1 for the next newest, and so on.
+     */
+    final int age;
+    final SortedRun<K, V>.RunCursor run;
+    final Iterator<SLNode<K, V>> nodes;
+    K key;
+    Object value;
+
+    Source(int age, SortedRun<K, V>.RunCursor run, Iterator<SLNode<K, V>> nodes) {
+      this.age = age;
+      this.run = run;
+      this.nodes = nodes;
+      this.load();
+    } // Source(int, RunCursor, Iterator<SLNode<K,V>>)
+
+    /**
+     * Copy the current entry into key and value (key is null at the end).
+     */
+    void load() {
+      if (this.run != null) {
+        this.key = this.run.valid ? this.run.key : null;
+        this.value = this.run.value;
+      } else if (this.nodes.hasNext()) {
+        SLNode<K, V> node = this.nodes.next();
+        this.key = node.key;
+        this.value = node.value;
+      } else {
+        this.key = null;
+      } // if/else
+    } // load()
+
+    void advance() {
+      if (this.run != null) {
+        this.run.advance();
+      } // if
+      this.load();
+    } // advance()
+
+    /**
+     * Order by key, then newest first.
+     */
+    @Override
+    public int compareTo(Source other) {
+      int result = MemtableStore.this.comparator.compare(this.key, other.key);
+      return (result != 0) ? result : Integer.compare(this.age, other.age);
+    } // compareTo(Source)
+  } // class Source
+
+  /**
+   * Merges sources into one sorted sequence of entries. For each key, only the newest
+   * source's entry survives, and tombstones can optionally be dropped.
+   */
+  class MergeIterator implements Iterator<Map.Entry<K, Object>> {
+    final PriorityQueue<Source> queue = new PriorityQueue<Source>();
+
+    /**
+     * Stop before this key (null for no bound).
+     */
+    final K to;
+    final boolean dropTombstones;
+
+    /**
+     * The next entry to return, or null if we have to look for it.
+     */
+    Map.Entry<K, Object> next;
+
+    MergeIterator(List<Source> sources, K to, boolean dropTombstones) {
+      for (Source source : sources) {
+        if (source.key != null) {
+          this.queue.add(source);
+        } // if
+      } // for
+      this.to = to;
+      this.dropTombstones = dropTombstones;
+    } // MergeIterator(List<Source>, K, boolean)
+
+    @Override
+    public boolean hasNext() {
+      while (this.next == null && !this.queue.isEmpty()) {
+        Source newest = this.queue.poll();
+        K key = newest.key;
+        if (this.to != null && MemtableStore.this.comparator.compare(key, this.to) >= 0) {
+          this.queue.clear();
+          break;
+        } // if past the end of the range
+        Object value = newest.value;
+        this.requeue(newest);
+        // Skip older entries for the same key
+        while (!this.queue.isEmpty()
+            && MemtableStore.this.comparator.compare(this.queue.peek().key, key) == 0) {
+          this.requeue(this.queue.poll());
+        } // while
+        if (!(this.dropTombstones && value == SortedRun.TOMBSTONE)) {
+          this.next = new AbstractMap.SimpleEntry<K, Object>(key, value);
+        } // if
+      } // while
+      return this.next != null;
+    } // hasNext()
+
+    @Override
+    public Map.Entry<K, Object> next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      } // if
+      Map.Entry<K, Object> result = this.next;
+      this.next = null;
+      return result;
+    } // next()
+
+    /**
+     * Advance a source and put it back in the queue, unless it's done.
+     */
+    void requeue(Source source) {
+      source.advance();
+      if (source.key != null) {
+        this.queue.add(source);
+      } // if
+    } // requeue(Source)
+  } // class MergeIterator
+} // class MemtableStore
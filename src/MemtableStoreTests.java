@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of memtable stores and sorted runs.
+ */
+public class MemtableStoreTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  /**
+   * How to order the keys.
+   */
+  static final Comparator<Integer> INTS = (i, j) -> i - j;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Open a store with small memtables, so that tests exercise flushes and compactions.
+   */
+  static MemtableStore<Integer, String> open(Path dir, int compactionThreshold)
+      throws IOException {
+    return new MemtableStore<Integer, String>(dir, INTS, Serializer.INTEGER, Serializer.STRING,
+        64, 2, compactionThreshold);
+  } // open(Path, int)
+
+  /**
+   * Remove a store directory and everything in it.
+   */
+  static void deleteDir(Path dir) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        Files.delete(file);
+      } // for
+    } // try
+    Files.delete(dir);
+  } // deleteDir(Path)
+
+  /**
+   * Make sure a store holds the same entries as a skip list, in the same order.
+   */
+  static void assertSameEntries(SkipList<Integer, String> expected,
+      MemtableStore<Integer, String> actual) {
+    ArrayList<Integer> keys = new ArrayList<Integer>();
+    ArrayList<String> values = new ArrayList<String>();
+    actual.forEach((k, v) -> {
+      keys.add(k);
+      values.add(v);
+    });
+    assertEquals(expected.size(), keys.size());
+    int i = 0;
+    for (Iterator<Integer> it = expected.keys(); it.hasNext(); i++) {
+      Integer key = it.next();
+      assertEquals(key, keys.get(i));
+      assertEquals(expected.get(key), values.get(i));
+      assertEquals(expected.get(key), actual.get(key));
+    } // for
+  } // assertSameEntries(SkipList<Integer,String>, MemtableStore<Integer,String>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Random puts and deletes, spread over the active memtable, frozen memtables and runs,
+   * should read back like a plain skip list, before and after reopening.
+   */
+  @Test
+  public void testRandomOps() throws IOException {
+    Path dir = Files.createTempDirectory("lsm");
+    try {
+      SkipList<Integer, String> expected = new SkipList<Integer, String>(INTS);
+      MemtableStore<Integer, String> store = open(dir, 4);
+      for (int i = 0; i < 5000; i++) {
+        int key = random.nextInt(1000);
+        if (random.nextInt(4) > 0) {
+          String value = (random.nextInt(10) == 0) ? null : SkipListTests.value(key);
+          expected.set(key, value);
+          store.put(key, value);
+        } else {
+          expected.remove(key);
+          store.delete(key);
+        } // if/else
+      } // for
+      for (int key = 0; key < 1000; key++) {
+        assertEquals(expected.containsKey(key), store.containsKey(key));
+      } // for
+      assertSameEntries(expected, store);
+      assertEquals(expected.size(), store.size());
+      store.close();
+
+      store = open(dir, 4);
+      assertSameEntries(expected, store);
+      store.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testRandomOps()
+
+  /**
+   * A delete should hide the key in every older source, and get should then fail.
+   */
+  @Test
+  public void testTombstones() throws IOException {
+    Path dir = Files.createTempDirectory("lsm");
+    try {
+      MemtableStore<Integer, String> store = open(dir, 100);
+      store.put(1, "one");
+      store.flush();
+      store.delete(1);
+      assertFalse(store.containsKey(1));
+      try {
+        store.get(1);
+        fail("get of a deleted key should throw");
+      } catch (IndexOutOfBoundsException e) {
+        // Expected
+      } // try/catch
+      store.flush();
+      assertFalse(store.containsKey(1));
+      assertEquals(0, store.size());
+      store.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testTombstones()
+
+  /**
+   * Range iteration should merge every source and respect the bounds.
+   */
+  @Test
+  public void testRange() throws IOException {
+    Path dir = Files.createTempDirectory("lsm");
+    try {
+      MemtableStore<Integer, String> store = open(dir, 100);
+      for (int i = 0; i < 300; i += 3) {
+        store.put(i, "old");
+      } // for
+      store.flush();
+      for (int i = 0; i < 300; i += 2) {
+        store.put(i, SkipListTests.value(i));
+      } // for
+      ArrayList<Integer> keys = new ArrayList<Integer>();
+      store.forEach(100, 120, (k, v) -> {
+        keys.add(k);
+        assertEquals((k % 2 == 0) ? SkipListTests.value(k) : "old", v);
+      });
+      ArrayList<Integer> expected = new ArrayList<Integer>();
+      for (int i = 100; i < 120; i++) {
+        if (i % 2 == 0 || i % 3 == 0) {
+          expected.add(i);
+        } // if
+      } // for
+      assertEquals(expected, keys);
+      store.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testRange()
+
+  /**
+   * Compaction should leave one run with everything in it, and no tombstones, and reopening
+   * should clear away any input it left behind.
+   */
+  @Test
+  public void testCompact() throws IOException {
+    Path dir = Files.createTempDirectory("lsm");
+    try {
+      SkipList<Integer, String> expected = new SkipList<Integer, String>(INTS);
+      MemtableStore<Integer, String> store = open(dir, 100);
+      for (int i = 0; i < 640; i++) {
+        store.put(i, SkipListTests.value(i));
+        expected.set(i, SkipListTests.value(i));
+        if (i % 5 == 0) {
+          store.delete(i / 2);
+          expected.remove(i / 2);
+        } // if
+      } // for
+      store.flush();
+      assertTrue(store.runCount() > 1);
+      Path input = store.runs.get(0).path;
+      byte[] saved = Files.readAllBytes(input);
+      store.compact();
+      assertEquals(1, store.runCount());
+      assertFalse(Files.exists(input));
+      assertSameEntries(expected, store);
+      store.close();
+
+      // As if the compaction hadn't managed to delete one of its inputs
+      Files.write(input, saved);
+      store = open(dir, 100);
+      assertEquals(1, store.runCount());
+      assertFalse(Files.exists(input));
+      assertSameEntries(expected, store);
+      store.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testCompact()
+
+  /**
+   * A writer interrupted while waiting for a flush should not freeze past maxFrozen.
+   */
+  @Test
+  public void testInterruptedWrite() throws Exception {
+    Path dir = Files.createTempDirectory("lsm");
+    try {
+      MemtableStore<Integer, String> store = open(dir, 100);
+      CountDownLatch release = new CountDownLatch(1);
+      store.flusher.submit(() -> {
+        release.await();
+        return null;
+      });
+      Thread.currentThread().interrupt();
+      try {
+        for (int i = 0; i < 640; i++) {
+          store.put(i, SkipListTests.value(i));
+          assertTrue(store.frozen.size() <= 2);
+        } // for
+      } finally {
+        assertTrue(Thread.interrupted());
+        release.countDown();
+      } // try/finally
+      store.flush();
+      for (int i = 0; i < 640; i++) {
+        assertEquals(SkipListTests.value(i), store.get(i));
+      } // for
+      store.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testInterruptedWrite()
+} // class MemtableStoreTests
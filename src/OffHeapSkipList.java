@@ -0,0 +1,619 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Skip lists that keep their nodes outside the Java heap. Nodes, towers, keys, and values all
+ * live in direct ByteBuffers managed by a NativeArena, and link to each other by address rather
+ * than by reference. The garbage collector only ever sees a handful of objects, no matter how
+ * many entries the map holds.
+ *
+ * Keys and values are converted to and from bytes by the serializers given to the constructor.
+ * Keys are read back from the arena to be compared, so get/set/remove allocate short-lived
+ * objects but never retain them.
+ *
+ * Node layout, starting at the node's address:
+ *
+ *   int height | int key size | long value address | long next[height] | key bytes
+ *
+ * Values are stored separately (int size, then bytes) so that they can change size without
+ * moving the node. A value address of 0 means a null value; address 0 is never allocated.
+ */
+public class OffHeapSkipList<K, V> implements SimpleMap<K, V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The maximum height of the skip list.
+   */
+  static final int MAX_HEIGHT = 32;
+
+  /**
+   * Offsets of the fields within a node.
+   */
+  static final int HEIGHT = 0;
+  static final int KEY_SIZE = 4;
+  static final int VALUE = 8;
+  static final int NEXT = 16;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where the nodes live.
+   */
+  final NativeArena arena;
+
+  /**
+   * The comparator used to determine the ordering in the list.
+   */
+  final Comparator<K> comparator;
+
+  /**
+   * How to store keys.
+   */
+  final Serializer<K> keySerializer;
+
+  /**
+   * How to store values.
+   */
+  final Serializer<V> valueSerializer;
+
+  /**
+   * The address of the sentinel at the front of every level.
+   */
+  final long head;
+
+  /**
+   * The number of values in the list.
+   */
+  int size;
+
+  /**
+   * The current height of the skiplist (the number of levels in use).
+   */
+  int height;
+
+  /**
+   * The probability used to determine the height of nodes.
+   */
+  double prob = 0.5;
+
+  /**
+   * The generator used to pick node heights.
+   */
+  final Random rand = new Random();
+
+  /**
+   * Scratch space for the predecessors found by set and remove.
+   */
+  final long[] update = new long[MAX_HEIGHT];
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new off-heap skip list, allocating native memory in chunks of chunkSize bytes.
+   * No single node or value may be larger than a chunk.
+   */
+  public OffHeapSkipList(Comparator<K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer, int chunkSize) {
+    this(comparator, keySerializer, valueSerializer, new NativeArena(chunkSize));
+  } // OffHeapSkipList(Comparator<K>, Serializer<K>, Serializer<V>, int)
+
+  /**
+   * Create a new off-heap skip list with 1 MB chunks.
+   */
+  public OffHeapSkipList(Comparator<K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer) {
+    this(comparator, keySerializer, valueSerializer, 1 << 20);
+  } // OffHeapSkipList(Comparator<K>, Serializer<K>, Serializer<V>)
+
+  /**
+   * Create a new, empty, skip list in an existing arena.
+   */
+  OffHeapSkipList(Comparator<K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer, NativeArena arena) {
+    this(comparator, keySerializer, valueSerializer, arena, newHead(arena), 0, 1);
+  } // OffHeapSkipList(Comparator<K>, Serializer<K>, Serializer<V>, NativeArena)
+
+  /**
+   * Wrap a skip list that's already laid out in an arena. (Used by subclasses that keep the
+   * arena somewhere that outlives us.)
+   */
+  OffHeapSkipList(Comparator<K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer, NativeArena arena, long head, int size, int height) {
+    this.arena = arena;
+    this.comparator = comparator;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.head = head;
+    this.size = size;
+    this.height = height;
+  } // OffHeapSkipList(Comparator<K>, Serializer<K>, Serializer<V>, NativeArena, long, int, int)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key.
+   *
+   * @pre key is not null
+   * @post If key exists in list, change associated value to given value
+   * @post If key not in list, add key/value pair to list
+   * @return the previous value associated with key (or null, if there's no such value)
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V set(K key, V value) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    long[] prev = this.update;
+    long next = this.next(this.findPredecessors(key, prev), 0);
+    if (next != 0 && this.comparator.compare(this.key(next), key) == 0) {
+      long oldValue = this.arena.getLong(next + VALUE);
+      V temp = this.readValue(oldValue);
+      this.arena.putLong(next + VALUE, this.writeValue(value));
+      this.freeValue(oldValue);
+      return temp;
+    } // if found key, update value
+
+    int newHeight = this.randomHeight();
+    if (newHeight > this.height) {
+      for (int lvl = this.height; lvl < newHeight; lvl++) {
+        prev[lvl] = this.head;
+      } // for
+      this.height = newHeight;
+    } // if node largest yet
+
+    // Build the new node
+    int keySize = this.keySerializer.size(key);
+    long setNode = this.arena.allocate(NEXT + 8 * newHeight + keySize);
+    this.arena.putInt(setNode + HEIGHT, newHeight);
+    this.arena.putInt(setNode + KEY_SIZE, keySize);
+    this.arena.putLong(setNode + VALUE, this.writeValue(value));
+    this.keySerializer.write(key, this.arena.at(setNode + NEXT + 8 * newHeight));
+
+    for (int lvl = 0; lvl < newHeight; lvl++) {
+      this.setNext(setNode, lvl, this.next(prev[lvl], lvl));
+      this.setNext(prev[lvl], lvl, setNode);
+    } // for (initialize new node)
+    this.size++;
+    return null;
+  } // set(K,V)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @pre key is not null
+   * @pre key exists in list
+   * @throws IndexOutOfBoundsException if the key is not in the map.
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V get(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    long node = this.find(key);
+    if (node == 0) {
+      throw new IndexOutOfBoundsException("key invalid: " + key);
+    } // if
+    return this.readValue(this.arena.getLong(node + VALUE));
+  } // get(K)
+
+  /**
+   * Determine how many values are in the map.
+   */
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Determine if a key appears in the table.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    return this.find(key) != 0;
+  } // containsKey(K)
+
+  /**
+   * Remove the value with the given key, and give its memory back to the arena.
+   *
+   * @pre key is not null
+   * @post Entry with given key removed from list, if present
+   * @return The associated value (or null, if there is no associated value).
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V remove(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    long[] prev = this.update;
+    long current = this.next(this.findPredecessors(key, prev), 0);
+    if (current == 0 || this.comparator.compare(this.key(current), key) != 0) {
+      return null;
+    } // if key not found
+    int nodeHeight = this.arena.getInt(current + HEIGHT);
+    for (int lvl = 0; lvl < nodeHeight; lvl++) {
+      this.setNext(prev[lvl], lvl, this.next(current, lvl));
+    } // for
+    while (this.height > 1 && this.next(this.head, this.height - 1) == 0) {
+      this.height--;
+    } // while the top level is empty
+
+    long valueAddress = this.arena.getLong(current + VALUE);
+    V temp = this.readValue(valueAddress);
+    this.freeValue(valueAddress);
+    this.arena.free(current,
+        NEXT + 8 * nodeHeight + this.arena.getInt(current + KEY_SIZE));
+    this.size--;
+    return temp;
+  } // remove(K)
+
+  /**
+   * Get an iterator for all of the keys in the map.
+   */
+  @Override
+  public Iterator<K> keys() {
+    return new Iterator<K>() {
+      long next = OffHeapSkipList.this.next(OffHeapSkipList.this.head, 0);
+
+      @Override
+      public boolean hasNext() {
+        return this.next != 0;
+      } // hasNext()
+
+      @Override
+      public K next() {
+        if (this.next == 0) {
+          throw new NoSuchElementException();
+        } // if
+        K temp = OffHeapSkipList.this.key(this.next);
+        this.next = OffHeapSkipList.this.next(this.next, 0);
+        return temp;
+      } // next()
+    };
+  } // keys()
+
+  /**
+   * Get an iterator for all of the values in the map.
+   */
+  @Override
+  public Iterator<V> values() {
+    return new Iterator<V>() {
+      long next = OffHeapSkipList.this.next(OffHeapSkipList.this.head, 0);
+
+      @Override
+      public boolean hasNext() {
+        return this.next != 0;
+      } // hasNext()
+
+      @Override
+      public V next() {
+        if (this.next == 0) {
+          throw new NoSuchElementException();
+        } // if
+        V temp = OffHeapSkipList.this.readValue(arena.getLong(this.next + VALUE));
+        this.next = OffHeapSkipList.this.next(this.next, 0);
+        return temp;
+      } // next()
+    };
+  } // values()
+
+  /**
+   * Apply a function to each key/value pair, in order.
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (long current = this.next(this.head, 0); current != 0; current = this.next(current, 0)) {
+      action.accept(this.key(current), this.readValue(this.arena.getLong(current + VALUE)));
+    } // for
+  } // forEach
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Determine how many bytes of native memory the list has reserved.
+   */
+  public long reservedBytes() {
+    return this.arena.reservedBytes();
+  } // reservedBytes()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Allocate and initialize the front-of-list sentinel in an arena.
+   *
+   * @return its address
+   */
+  static long newHead(NativeArena arena) {
+    long head = arena.allocate(NEXT + 8 * MAX_HEIGHT);
+    arena.putInt(head + HEIGHT, MAX_HEIGHT);
+    for (int lvl = 0; lvl < MAX_HEIGHT; lvl++) {
+      arena.putLong(head + NEXT + 8 * lvl, 0);
+    } // for
+    return head;
+  } // newHead(NativeArena)
+
+  /**
+   * Pick a random height for a new node.
+   */
+  int randomHeight() {
+    int result = 1;
+    while (result < MAX_HEIGHT && rand.nextDouble() < prob) {
+      result = result + 1;
+    } // while
+    return result;
+  } // randomHeight()
+
+  /**
+   * Get the address of the node after node at level lvl (or 0 if there is none).
+   */
+  long next(long node, int lvl) {
+    return this.arena.getLong(node + NEXT + 8 * lvl);
+  } // next(long, int)
+
+  /**
+   * Set the address of the node after node at level lvl.
+   */
+  void setNext(long node, int lvl, long next) {
+    this.arena.putLong(node + NEXT + 8 * lvl, next);
+  } // setNext(long, int, long)
+
+  /**
+   * Read the key of a node.
+   */
+  K key(long node) {
+    int nodeHeight = this.arena.getInt(node + HEIGHT);
+    int keySize = this.arena.getInt(node + KEY_SIZE);
+    return this.keySerializer.read(this.arena.at(node + NEXT + 8 * nodeHeight), keySize);
+  } // key(long)
+
+  /**
+   * Read a value record (or null, for address 0).
+   */
+  V readValue(long address) {
+    if (address == 0) {
+      return null;
+    } // if
+    int valueSize = this.arena.getInt(address);
+    return this.valueSerializer.read(this.arena.at(address + 4), valueSize);
+  } // readValue(long)
+
+  /**
+   * Store a value record.
+   *
+   * @return its address (or 0, for null)
+   */
+  long writeValue(V value) {
+    if (value == null) {
+      return 0;
+    } // if
+    int valueSize = this.valueSerializer.size(value);
+    long address = this.arena.allocate(4 + valueSize);
+    this.arena.putInt(address, valueSize);
+    this.valueSerializer.write(value, this.arena.at(address + 4));
+    return address;
+  } // writeValue(V)
+
+  /**
+   * Give a value record back to the arena.
+   */
+  void freeValue(long address) {
+    if (address != 0) {
+      this.arena.free(address, 4 + this.arena.getInt(address));
+    } // if
+  } // freeValue(long)
+
+  /**
+   * Find the node with the given key.
+   *
+   * @return its address, or 0 if key is not in the list
+   */
+  long find(K key) {
+    long current = this.head;
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      long next = this.next(current, lvl);
+      while (next != 0) {
+        int order = this.comparator.compare(this.key(next), key);
+        if (order == 0) {
+          return next;
+        } else if (order > 0) {
+          break;
+        } // if/else
+        current = next;
+        next = this.next(current, lvl);
+      } // while current < key at level lvl
+    } // for each level
+    return 0;
+  } // find(K)
+
+  /**
+   * Find the last node before key at every level in use.
+   *
+   * @post prev[lvl] is the address of the last node at level lvl whose key is less than key
+   *   (or head)
+   * @return prev[0]
+   */
+  long findPredecessors(K key, long[] prev) {
+    long current = this.head;
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      long next = this.next(current, lvl);
+      while (next != 0 && this.comparator.compare(this.key(next), key) < 0) {
+        current = next;
+        next = this.next(current, lvl);
+      } // while current < key at level lvl
+      prev[lvl] = current;
+    } // for each level
+    return current;
+  } // findPredecessors(K, long[])
+} // class OffHeapSkipList
+
+
+/**
+ * A simple allocator over chunks of native memory. Addresses are longs with the chunk number in
+ * the upper half and the offset within the chunk in the lower half. Freed blocks are kept on
+ * per-size free lists threaded through the blocks themselves, so the allocator's own heap use
+ * doesn't grow with the number of blocks.
+ *
+ * Subclasses can change where chunks come from by overriding newChunk.
+ */
+class NativeArena {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The size of each chunk, in bytes.
+   */
+  final int chunkSize;
+
+  /**
+   * The chunks we've allocated so far.
+   */
+  final ArrayList<ByteBuffer> chunks;
+
+  /**
+   * The head of the free list for blocks of each size (in 8-byte words), or 0 if empty.
+   * Blocks too big for this table are not reused.
+   */
+  final long[] free;
+
+  /**
+   * Where the next fresh block goes in the last chunk.
+   */
+  int top;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an arena that grows in chunks of the given size.
+   */
+  public NativeArena(int chunkSize) {
+    this(chunkSize, chunkSize / 8 + 1);
+    this.grow();
+    this.top = 8; // Address 0 stands for null, so never hand it out
+  } // NativeArena(int)
+
+  /**
+   * Create an arena with no chunks yet, that reuses freed blocks of up to freeClasses - 1
+   * words. (For subclasses, which add the chunks themselves.)
+   */
+  NativeArena(int chunkSize, int freeClasses) {
+    this.chunkSize = chunkSize & ~7;
+    this.chunks = new ArrayList<ByteBuffer>();
+    this.free = new long[freeClasses];
+    this.top = 0;
+  } // NativeArena(int, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Allocate a block of at least the given number of bytes.
+   *
+   * @throws IllegalArgumentException if the block won't fit in a chunk
+   */
+  long allocate(int bytes) {
+    int words = (bytes + 7) / 8;
+    if (words * 8 > this.chunkSize) {
+      throw new IllegalArgumentException("block of " + bytes + " bytes is larger than a chunk");
+    } // if
+    if (words < this.free.length && this.free[words] != 0) {
+      long address = this.free[words];
+      this.free[words] = this.getLong(address);
+      return address;
+    } // if we can reuse a block
+    if (this.top + words * 8 > this.chunkSize) {
+      this.grow();
+    } // if we need a new chunk
+    long address = ((long) (this.chunks.size() - 1) << 32) | this.top;
+    this.top += words * 8;
+    return address;
+  } // allocate(int)
+
+  /**
+   * Give back a block of the given number of bytes.
+   */
+  void free(long address, int bytes) {
+    int words = (bytes + 7) / 8;
+    if (words < this.free.length) {
+      this.putLong(address, this.free[words]);
+      this.free[words] = address;
+    } // if
+  } // free(long, int)
+
+  /**
+   * Add a fresh chunk and start allocating from it.
+   */
+  void grow() {
+    this.chunks.add(this.newChunk(this.chunks.size()));
+    this.top = 0;
+  } // grow()
+
+  /**
+   * Get the memory for chunk number index.
+   */
+  ByteBuffer newChunk(int index) {
+    return ByteBuffer.allocateDirect(this.chunkSize);
+  } // newChunk(int)
+
+  /**
+   * Determine how many bytes of native memory we've reserved.
+   */
+  long reservedBytes() {
+    return (long) this.chunks.size() * this.chunkSize;
+  } // reservedBytes()
+
+  /**
+   * Get the chunk that holds an address, positioned at that address.
+   */
+  ByteBuffer at(long address) {
+    ByteBuffer chunk = this.chunks.get((int) (address >>> 32));
+    chunk.position((int) address);
+    return chunk;
+  } // at(long)
+
+  int getInt(long address) {
+    return this.chunks.get((int) (address >>> 32)).getInt((int) address);
+  } // getInt(long)
+
+  void putInt(long address, int value) {
+    this.chunks.get((int) (address >>> 32)).putInt((int) address, value);
+  } // putInt(long, int)
+
+  long getLong(long address) {
+    return this.chunks.get((int) (address >>> 32)).getLong((int) address);
+  } // getLong(long)
+
+  void putLong(long address, long value) {
+    this.chunks.get((int) (address >>> 32)).putLong((int) address, value);
+  } // putLong(long, long)
+} // NativeArena
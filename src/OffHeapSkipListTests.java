@@ -0,0 +1,109 @@
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of off-heap skip lists.
+ */
+public class OffHeapSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make an empty list of ints, with small chunks so that we exercise chunk boundaries.
+   */
+  static OffHeapSkipList<Integer, String> newList() {
+    return new OffHeapSkipList<Integer, String>((i, j) -> i - j, Serializer.INTEGER,
+        Serializer.STRING, 4096);
+  } // newList()
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Add, replace, and remove, including values that change size and null values.
+   */
+  @Test
+  public void simpleTest() {
+    OffHeapSkipList<Integer, String> ints = newList();
+    assertNull(ints.set(7, "seven"));
+    assertEquals("seven", ints.set(7, "a much longer value than seven"));
+    assertEquals("a much longer value than seven", ints.get(7));
+    assertEquals("a much longer value than seven", ints.set(7, null));
+    assertTrue(ints.containsKey(7));
+    assertNull(ints.get(7));
+    assertNull(ints.remove(7));
+    assertFalse(ints.containsKey(7));
+    assertEquals(0, ints.size());
+    try {
+      ints.get(7);
+      fail("get of a missing key should throw");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+  } // simpleTest()
+
+  /**
+   * A randomized test against SkipList, including ordered iteration.
+   */
+  @Test
+  public void randomTest() {
+    OffHeapSkipList<Integer, String> ints = newList();
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 10000; i++) {
+      int key = random.nextInt(2000);
+      if (random.nextBoolean()) {
+        assertEquals(expected.set(key, SkipListTests.value(key)),
+            ints.set(key, SkipListTests.value(key)));
+      } else {
+        assertEquals(expected.remove(key), ints.remove(key));
+      } // if/else
+      assertEquals(expected.size(), ints.size());
+    } // for
+    Iterator<Integer> expectedKeys = expected.keys();
+    Iterator<Integer> actualKeys = ints.keys();
+    Iterator<String> actualValues = ints.values();
+    while (expectedKeys.hasNext()) {
+      Integer key = expectedKeys.next();
+      assertEquals(key, actualKeys.next());
+      assertEquals(SkipListTests.value(key), actualValues.next());
+    } // while
+    assertFalse(actualKeys.hasNext());
+  } // randomTest()
+
+  /**
+   * Removing entries should make their memory available again.
+   */
+  @Test
+  public void testMemoryReused() {
+    OffHeapSkipList<Integer, String> ints = newList();
+    for (int i = 0; i < 1000; i++) {
+      ints.set(i, SkipListTests.value(i));
+    } // for
+    long reserved = ints.reservedBytes();
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 1000; i++) {
+        ints.remove(i);
+      } // for
+      for (int i = 0; i < 1000; i++) {
+        ints.set(i, SkipListTests.value(i));
+      } // for
+    } // for
+    // Tower heights change, so allow a little slack
+    assertTrue(ints.reservedBytes() <= 2 * reserved);
+    assertEquals(1000, ints.size());
+  } // testMemoryReused()
+} // class OffHeapSkipListTests
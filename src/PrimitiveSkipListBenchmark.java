@@ -0,0 +1,80 @@
+import java.io.PrintWriter;
+
+/**
+ * Wall-clock comparison of SkipList<Integer, String> and IntSkipList<String> on the same
+ * workload as SkipList.main: set and get each key in order, then remove them all.
+ */
+public class PrimitiveSkipListBenchmark {
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int numlists = 8; // Number of different list sizes to test
+    int trials = 5; // Number of timed trials per size
+
+    // Warm up both implementations so we don't time the JIT
+    for (int i = 0; i < 10; i++) {
+      runGeneric(50000);
+      runInt(50000);
+    } // for
+
+    pen.printf("%12s %16s %16s %10s%n", "List length", "SkipList ns/op", "IntSkipList ns/op",
+        "Speedup");
+    for (int lst = 1; lst <= numlists; lst++) {
+      int lstlen = 500 * (1 << (lst - 1)); // List size
+      long genericTime = Long.MAX_VALUE;
+      long intTime = Long.MAX_VALUE;
+      for (int test = 0; test < trials; test++) {
+        genericTime = Math.min(genericTime, runGeneric(lstlen));
+        intTime = Math.min(intTime, runInt(lstlen));
+      } // for each trial
+      // Three operations per key: set, get, remove
+      double genericPerOp = genericTime / (3.0 * lstlen);
+      double intPerOp = intTime / (3.0 * lstlen);
+      pen.printf("%12d %16.1f %16.1f %9.2fx%n", lstlen, genericPerOp, intPerOp,
+          genericPerOp / intPerOp);
+    } // for numlists number of different sized lists
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Run the workload on a generic skip list.
+   *
+   * @return the elapsed time, in nanoseconds
+   */
+  static long runGeneric(int lstlen) {
+    long start = System.nanoTime();
+    SkipList<Integer, String> sklst = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < lstlen; i++) {
+      sklst.set(i, "");
+      sklst.get(i);
+    } // for
+    for (int i = 0; i < lstlen; i++) {
+      sklst.remove(i);
+    } // for
+    return System.nanoTime() - start;
+  } // runGeneric(int)
+
+  /**
+   * Run the workload on an int-keyed skip list.
+   *
+   * @return the elapsed time, in nanoseconds
+   */
+  static long runInt(int lstlen) {
+    long start = System.nanoTime();
+    IntSkipList<String> sklst = new IntSkipList<String>();
+    for (int i = 0; i < lstlen; i++) {
+      sklst.set(i, "");
+      sklst.get(i);
+    } // for
+    for (int i = 0; i < lstlen; i++) {
+      sklst.remove(i);
+    } // for
+    return System.nanoTime() - start;
+  } // runInt(int)
+} // class PrimitiveSkipListBenchmark
@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of the primitive-keyed skip lists.
+ */
+public class PrimitiveSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Add, replace, look up, and remove a few ints.
+   */
+  @Test
+  public void simpleIntTest() {
+    IntSkipList<String> ints = new IntSkipList<String>();
+    assertNull(ints.set(3, "three"));
+    assertNull(ints.set(-3, "minus three"));
+    assertEquals("three", ints.set(3, "THREE"));
+    assertEquals("THREE", ints.get(3));
+    assertTrue(ints.containsKey(-3));
+    assertFalse(ints.containsKey(0));
+    assertEquals(2, ints.size());
+    assertEquals("minus three", ints.remove(-3));
+    assertNull(ints.remove(-3));
+    assertEquals(1, ints.size());
+    try {
+      ints.get(-3);
+      fail("get of a missing key should throw");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+  } // simpleIntTest()
+
+  /**
+   * Keys at the extremes of the range shouldn't overflow any comparisons.
+   */
+  @Test
+  public void testExtremeKeys() {
+    LongSkipList<String> longs = new LongSkipList<String>();
+    longs.set(Long.MAX_VALUE, "max");
+    longs.set(Long.MIN_VALUE, "min");
+    longs.set(0L, "zero");
+    PrimitiveIterator.OfLong it = longs.keys();
+    assertEquals(Long.MIN_VALUE, it.nextLong());
+    assertEquals(0L, it.nextLong());
+    assertEquals(Long.MAX_VALUE, it.nextLong());
+    assertFalse(it.hasNext());
+    assertEquals("max", longs.get(Long.MAX_VALUE));
+  } // testExtremeKeys()
+
+  /**
+   * A randomized test of IntSkipList against SkipList.
+   */
+  @Test
+  public void randomIntTest() {
+    IntSkipList<String> ints = new IntSkipList<String>();
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 5000; i++) {
+      int key = random.nextInt(1000);
+      if (random.nextBoolean()) {
+        assertEquals(expected.set(key, SkipListTests.value(key)),
+            ints.set(key, SkipListTests.value(key)));
+      } else {
+        assertEquals(expected.remove(key), ints.remove(key));
+      } // if/else
+      assertEquals(expected.size(), ints.size());
+    } // for
+    ArrayList<Integer> keys = new ArrayList<Integer>();
+    ints.forEach((key, value) -> {
+      assertEquals(SkipListTests.value(key), value);
+      keys.add(key);
+    });
+    Iterator<Integer> expectedKeys = expected.keys();
+    for (Integer key : keys) {
+      assertEquals(expectedKeys.next(), key);
+    } // for
+    assertFalse(expectedKeys.hasNext());
+  } // randomIntTest()
+
+  /**
+   * A randomized test of LongSkipList against SkipList.
+   */
+  @Test
+  public void randomLongTest() {
+    LongSkipList<String> longs = new LongSkipList<String>();
+    SkipList<Long, String> expected = new SkipList<Long, String>((i, j) -> Long.compare(i, j));
+    for (int i = 0; i < 5000; i++) {
+      long key = random.nextInt(1000) * 10000000000L;
+      if (random.nextBoolean()) {
+        assertEquals(expected.set(key, "" + key), longs.set(key, "" + key));
+      } else {
+        assertEquals(expected.remove(key), longs.remove(key));
+      } // if/else
+    } // for
+    Iterator<String> expectedValues = expected.values();
+    Iterator<String> actualValues = longs.values();
+    while (expectedValues.hasNext()) {
+      assertEquals(expectedValues.next(), actualValues.next());
+    } // while
+    assertFalse(actualValues.hasNext());
+  } // randomLongTest()
+} // class PrimitiveSkipListTests
@@ -0,0 +1,43 @@
+/**
+ * Nodes in the skip list.
+ */
+class SLNode<K, V> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key.
+   */
+  K key;
+
+  /**
+   * The value.
+   */
+  V value;
+
+  /**
+   * Pointers to the next nodes, one per level. Sized to the node's height, so the tower
+   * costs one array rather than an ArrayList wrapped around one.
+   */
+  SLNode<K, V>[] next;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new node of height n with the specified key and value.
+   */
+  @SuppressWarnings("unchecked")
+  public SLNode(K key, V value, int n) {
+    this.key = key;
+    this.value = value;
+    this.next = (SLNode<K, V>[]) new SLNode<?, ?>[n];
+  } // SLNode(K, V, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+} // SLNode<K,V>
@@ -0,0 +1,91 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A way to turn keys or values into bytes and back, for the skip lists that keep their data
+ * outside the Java heap.
+ */
+public interface Serializer<T> {
+  /**
+   * Determine how many bytes write will need for value.
+   */
+  public int size(T value);
+
+  /**
+   * Write value at out's position, advancing the position by size(value).
+   *
+   * @pre out has at least size(value) bytes remaining
+   */
+  public void write(T value, ByteBuffer out);
+
+  /**
+   * Read a value of the given size from in's position, advancing the position by size.
+   */
+  public T read(ByteBuffer in, int size);
+
+  // +----------------------+----------------------------------------
+  // | Standard Serializers |
+  // +----------------------+
+
+  /**
+   * Integers, as four big-endian bytes.
+   */
+  public static final Serializer<Integer> INTEGER = new Serializer<Integer>() {
+    @Override
+    public int size(Integer value) {
+      return Integer.BYTES;
+    } // size(Integer)
+
+    @Override
+    public void write(Integer value, ByteBuffer out) {
+      out.putInt(value);
+    } // write(Integer, ByteBuffer)
+
+    @Override
+    public Integer read(ByteBuffer in, int size) {
+      return in.getInt();
+    } // read(ByteBuffer, int)
+  }; // INTEGER
+
+  /**
+   * Longs, as eight big-endian bytes.
+   */
+  public static final Serializer<Long> LONG = new Serializer<Long>() {
+    @Override
+    public int size(Long value) {
+      return Long.BYTES;
+    } // size(Long)
+
+    @Override
+    public void write(Long value, ByteBuffer out) {
+      out.putLong(value);
+    } // write(Long, ByteBuffer)
+
+    @Override
+    public Long read(ByteBuffer in, int size) {
+      return in.getLong();
+    } // read(ByteBuffer, int)
+  }; // LONG
+
+  /**
+   * Strings, as UTF-8.
+   */
+  public static final Serializer<String> STRING = new Serializer<String>() {
+    @Override
+    public int size(String value) {
+      return value.getBytes(StandardCharsets.UTF_8).length;
+    } // size(String)
+
+    @Override
+    public void write(String value, ByteBuffer out) {
+      out.put(value.getBytes(StandardCharsets.UTF_8));
+    } // write(String, ByteBuffer)
+
+    @Override
+    public String read(ByteBuffer in, int size) {
+      byte[] bytes = new byte[size];
+      in.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    } // read(ByteBuffer, int)
+  }; // STRING
+} // interface Serializer<T>
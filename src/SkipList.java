@@ -1,9 +1,20 @@
 import java.io.PrintWriter;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Random;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.lang.Math;
 
 /**
@@ -19,25 +30,27 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
   // +------+
 
   /**
-   * Tests to find Big O for SkipLists
+   * Tests to find Big O for SkipLists, by counting abstract steps. (For wall-clock time and
+   * allocation, see SkipListBenchmark.)
    */
   public static void main(String[] args) throws Exception {
     PrintWriter pen = new PrintWriter(System.out, true);
     int numlists = 6; // Number of different list sizes to test
-    int avSetCounts[] = new int[numlists];
-    int avGetCounts[] = new int[numlists];
-    int avRemCounts[] = new int[numlists];
+    double avSetCounts[] = new double[numlists];
+    double avGetCounts[] = new double[numlists];
+    double avRemCounts[] = new double[numlists];
     
     // Run tests for numlists number of different list sizes
     for (int lst = 1; lst <= numlists; lst++) {
-      int setCounts[] = new int[4];
-      int getCounts[] = new int[4];
-      int remCounts[] = new int[4];
+      long setCounts[] = new long[4];
+      long getCounts[] = new long[4];
+      long remCounts[] = new long[4];
       double lstlen = 500 * Math.pow(2, lst - 1); // List size
       
       // Run 4 trials of each list size
       for (int test = 1; test <= 4; test++) {
         SkipList<Integer, String> sklst = new SkipList<Integer, String>((i, j) -> i - j);
+        sklst.setMetrics(SkipListMetrics.striped());
 
         // Run the operations of interest on the list
         for (int i = 0; i < lstlen; i++) {
@@ -48,26 +61,28 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
           sklst.remove(i);
         } // for
 
-        // Log the raw data
-        setCounts[test - 1] = sklst.setCount;
-        getCounts[test - 1] = sklst.getCount;
-        remCounts[test - 1] = sklst.remCount;
+        // Log the raw data (total search-path lengths)
+        SkipListMetrics.Snapshot counts = sklst.metrics().snapshot();
+        setCounts[test - 1] = counts.steps(SkipListMetrics.Op.SET)
+            + counts.levels(SkipListMetrics.Op.SET);
+        getCounts[test - 1] = counts.steps(SkipListMetrics.Op.GET)
+            + counts.levels(SkipListMetrics.Op.GET);
+        remCounts[test - 1] = counts.steps(SkipListMetrics.Op.REMOVE)
+            + counts.levels(SkipListMetrics.Op.REMOVE);
 
         // Print the raw data
         /*
          * pen.println("List length " + (int) lstlen);
-         * pen.println(" Set = " + sklst.setCount);
-         * pen.println(" Get = " + sklst.getCount);
-         * pen.println(" Remove = " + sklst.remCount);
+         * pen.print(counts);
          * pen.println();
          */
 
       } // for 4 test cycles
 
       // Calculate the averages
-      avSetCounts[lst - 1] = ((setCounts[0] + setCounts[1] + setCounts[2] + setCounts[3]) / 4);
-      avGetCounts[lst - 1] = ((getCounts[0] + getCounts[1] + getCounts[2] + getCounts[3]) / 4);
-      avRemCounts[lst - 1] = ((remCounts[0] + remCounts[1] + remCounts[2] + remCounts[3]) / 4);
+      avSetCounts[lst - 1] = ((setCounts[0] + setCounts[1] + setCounts[2] + setCounts[3]) / 4.0);
+      avGetCounts[lst - 1] = ((getCounts[0] + getCounts[1] + getCounts[2] + getCounts[3]) / 4.0);
+      avRemCounts[lst - 1] = ((remCounts[0] + remCounts[1] + remCounts[2] + remCounts[3]) / 4.0);
 
       // Print header
       pen.println("-----------------------");
@@ -99,12 +114,6 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
    */
   static final int INITIAL_HEIGHT = 16;
 
-  // +---------------+-----------------------------------------------
-  // | Static Fields |
-  // +---------------+
-
-  static Random rand = new Random();
-
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
@@ -130,33 +139,19 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
   int height;
 
   /**
-   * The probability used to determine the height of nodes.
-   */
-  double prob = 0.5;
-
-  /**
-   * The counter of core operations in set method: 
-   *  - switch a level
-   *  - look across list on current level
-   *  - move across the list on the current level
+   * How we pick the heights of new nodes.
    */
-  int setCount = 0;
+  LevelGenerator levels = LevelGenerator.DEFAULT;
 
   /**
-   * The counter of core operations in get method:
-   *   - switch a level
-   *   - look across list on current level
-   *   - move across the list on the current level
+   * Where set, get, containsKey and remove report their search paths.
    */
-  int getCount = 0;
+  SkipListMetrics metrics = SkipListMetrics.NONE;
 
   /**
-   * The counter of core operations in remove method:
-   *   - switch a level
-   *   - look across list on current level
-   *   - move across the list on the current level
+   * The values saved for open snapshots (null, when there are none).
    */
-  int remCount = 0;
+  VersionHistory<K, V> history;
 
   // +--------------+------------------------------------------------
   // | Constructors |
@@ -183,6 +178,18 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
   } // SkipList()
 
 
+  /**
+   * Build a skip list from entries that are already sorted by comparator, in O(n) time.
+   *
+   * @see #loadSorted(Iterator, boolean)
+   */
+  public static <K, V> SkipList<K, V> fromSorted(Comparator<K> comparator,
+      Iterator<? extends Map.Entry<? extends K, ? extends V>> entries, boolean balanced) {
+    SkipList<K, V> result = new SkipList<K, V>(comparator);
+    result.loadSorted(entries, balanced);
+    return result;
+  } // fromSorted(Comparator<K>, Iterator<Map.Entry<K,V>>, boolean)
+
   // +-------------------+-------------------------------------------
   // | SimpleMap methods |
   // +-------------------+
@@ -193,7 +200,7 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
    * @pre key is not null
    * @post If key exists in list, change associated value to given value
    * @post If key not in list, add key/value pair to list
-   * @post Updates setCount counter
+   * @post Records a SET in metrics
    * @return the previous value associated with key (or null, if there's no such value)
    * @throws NullPointerException if the key is null.
    */
@@ -203,75 +210,15 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       throw new NullPointerException();
     } // if key null
 
-    // array of prev pointers
-    ArrayList<SLNode<K, V>> prev = new ArrayList<SLNode<K, V>>(this.height);
-    for (int i = 0; i < this.height; i++) {
-      prev.add(null);
-    } // for (initialize prev array)
-
-    // Search SkipList for key
-    SLNode<K, V> current = this.front.get(this.height - 1);
-    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
-      if (current == null && lvl > 0) {
-        current = this.front.get(lvl - 1);
-        setCount++;
-      } // if
-      else if (current != null) {
-        if (current == this.front.get(lvl) && this.comparator.compare(current.key, key) == 0) {
-          V temp = current.value;
-          current.value = value;
-          return temp;
-        } else if (current == this.front.get(lvl)
-            && this.comparator.compare(current.key, key) > 0) {
-          if (lvl > 0) {
-            current = this.front.get(lvl - 1);
-            setCount++;
-          } // if not already at bottom level, move down a level
-        } // else if
-        else {
-          setCount++;
-          while (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) < 0) {
-            setCount++;
-            current = current.next.get(lvl);
-            setCount++;
-          } // while current < key at level lvl
-          prev.set(lvl, current); // add prev pointer to prev array
-          setCount++;
-          if (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) == 0) {
-            setCount++;
-            setCount++;           
-            current = current.next.get(lvl);
-            setCount++;
-            V temp = current.value;
-            current.value = value;
-            return temp;
-          } // if found key, update value
-        } // else
-      } // if current not null
-    } // for each level
-
-    // Set new node if applicable
-    SLNode<K, V> setNode = new SLNode<K, V>(key, value, this.randomHeight());
-    for (int lvl = this.height; lvl <= setNode.next.size(); lvl++) {
-      this.front.add(setNode);
-      setNode.next.set(lvl - 1, null);
-    } // if node largest yet
-    if (this.height < setNode.next.size()) {
-      this.height = setNode.next.size();
-    } // if (update height)
-    for (int lvl = 0; lvl < setNode.next.size() && lvl < prev.size(); lvl++) {
-      setCount++;
-      if (prev.get(lvl) == null) {
-        setNode.next.set(lvl, front.get(lvl));
-        front.set(lvl, setNode);
-      } else {
-        setNode.next.set(lvl, prev.get(lvl).next.get(lvl));
-        prev.get(lvl).next.set(lvl, setNode);
-      } // else
-    } // for (initialize new node)
-    this.size++;
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    SLNode<K, V> found = this.descend(key, prev, SkipListMetrics.Op.SET);
+    this.preserve(key, found);
+    if (found != null) {
+      V temp = found.value;
+      found.value = value;
+      return temp;
+    } // if found key, update value
+    this.insert(key, value, prev);
     return null;
   } // set(K,V)
 
@@ -281,7 +228,7 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
    * @pre key is not null
    * @pre key exists in list
    * @post Returns value associated with key
-   * @post Updates getCount counter
+   * @post Records a GET in metrics
    * @throws IndexOutOfBoundsException if the key is not in the map.
    * @throws NullPointerException if the key is null.
    */
@@ -291,43 +238,11 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       throw new NullPointerException("null key");
     } // if
 
-    // Search SkipList for key
-    SLNode<K, V> current = this.front.get(this.height - 1);
-    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
-      if (current == null && lvl > 0) {
-        current = this.front.get(lvl - 1);
-        getCount++;
-      } // if
-      else if (current != null) {
-        if (current == this.front.get(lvl) && this.comparator.compare(current.key, key) == 0) {
-          return current.value;
-        } else if (current == this.front.get(lvl)
-            && this.comparator.compare(current.key, key) > 0) {
-          if (lvl > 0) {
-            current = this.front.get(lvl - 1);
-            getCount++;
-          } // if not already at bottom level, move down a level
-        } // else if
-        else {
-          getCount++;
-          while (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) < 0) {
-            getCount++;
-            current = current.next.get(lvl);
-            getCount++;
-          } // while current < key at level lvl
-          getCount++;
-          if (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) == 0) {
-            getCount++;
-            current = current.next.get(lvl);
-            getCount++;
-            return current.value;
-          } // if found key, update value
-        } // else
-      } // if current not null
-    } // for each level
-    throw new IndexOutOfBoundsException("key invalid: " + key);
+    SLNode<K, V> found = this.find(key, SkipListMetrics.Op.GET);
+    if (found == null) {
+      throw new IndexOutOfBoundsException("key invalid: " + key);
+    } // if
+    return found.value;
   } // get(K,V)
 
   /**
@@ -346,6 +261,7 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
    * 
    * @pre key is not null
    * @post Returns true if key exists in list, false otherwise
+   * @post Records a CONTAINS_KEY in metrics
    * @throws NullPointerException precondition not met
    */
   @Override
@@ -354,35 +270,7 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       throw new NullPointerException("null key");
     } // if
 
-    // Search SkipList for key
-    SLNode<K, V> current = this.front.get(this.height - 1);
-    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
-      if (current == null && lvl > 0) {
-        current = this.front.get(lvl - 1);
-      } // if
-      else if (current != null) {
-        if (current == this.front.get(lvl) && this.comparator.compare(current.key, key) == 0) {
-          return true;
-        } else if (current == this.front.get(lvl)
-            && this.comparator.compare(current.key, key) > 0) {
-          if (lvl > 0) {
-            current = this.front.get(lvl - 1);
-          } // if not already at bottom level, move down a level
-        } // else if
-        else {
-          while (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) < 0) {
-            current = current.next.get(lvl);
-          } // while current < key at level lvl
-          if (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) == 0) {
-            current = current.next.get(lvl);
-            return true;
-          } // if found key, update value
-        } // else
-      } // if current not null
-    } // for each level
-    return false;
+    return this.find(key, SkipListMetrics.Op.CONTAINS_KEY) != null;
   } // containsKey(K)
 
   /**
@@ -390,7 +278,7 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
    * 
    * @pre key is not null
    * @post Entry with given key removed from list, if present
-   * @post Updates remCount counter
+   * @post Records a REMOVE in metrics
    * @return The associated value (or null, if there is no associated value).
    * @throws NullPointerException if the key is null.
    */
@@ -400,72 +288,14 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       throw new NullPointerException("null key");
     } // if
 
-    // array of prev pointers
-    ArrayList<SLNode<K, V>> prev = new ArrayList<SLNode<K, V>>(this.height);
-    for (int i = 0; i < this.height; i++) {
-      prev.add(null);
-    } // for (initialize prev array)
-
-    // Search SkipList for key
-    SLNode<K, V> current = this.front.get(this.height - 1);
-    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
-      if (current == null && lvl > 0) {
-        current = this.front.get(lvl - 1);
-        remCount++;
-      } // if
-      else if (current != null) {
-        if (current == this.front.get(lvl) && this.comparator.compare(current.key, key) >= 0) {
-          if (lvl > 0) {
-            current = this.front.get(lvl - 1);
-            remCount++;
-          } // if not already at bottom level, move down a level
-        } // else if
-        else {
-          remCount++;
-          while (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) < 0) {
-            remCount++;
-            current = current.next.get(lvl);
-            remCount++;
-          } // while current < key at level lvl
-          remCount++;
-          if (current.next.get(lvl) != null
-              && this.comparator.compare(current.next.get(lvl).key, key) == 0) {
-            remCount++;
-            prev.set(lvl, current);
-          } // if found key, update value
-        } // else
-      } // if current not null
-    } // for each level
-
-    // Remove value
-    if (current == null) {
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    SLNode<K, V> found = this.descend(key, prev, SkipListMetrics.Op.REMOVE);
+    if (found == null) {
       return null;
     } // if key not found
-    SLNode<K, V> temp;
-    if (this.comparator.compare(current.key, key) == 0) {
-      temp = current;
-    } // if current is the key
-    else {
-      temp = current.next.get(0);
-      remCount++;
-    } // else
-    if (temp != null && temp.next != null) {
-      for (int lvl = 0; lvl < temp.next.size(); lvl++) {
-        if (prev.get(lvl) != null) {
-          prev.get(lvl).next.set(lvl, prev.get(lvl).next.get(lvl).next.get(lvl));
-        } else if (this.comparator.compare(this.front.get(lvl).key, key) == 0) {
-          this.front.set(lvl, this.front.get(lvl).next.get(lvl));
-        } else {
-          return null;
-        } // else
-      } // for
-    } // if
-    else {
-      return null;
-    } // if temp is null
-    size--;
-    return temp.value;
+    this.preserve(key, found);
+    this.unlink(found, prev);
+    return found.value;
   } // remove(K)
 
   /**
@@ -497,9 +327,9 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       } // next()
 
       /**
-       * Remove not implemented.
+       * Remove the entry whose key next returned last, in O(1) expected time.
        * 
-       * @throws UnsupportedOperationException
+       * @throws IllegalStateException if next hasn't been called since the last remove
        */
       @Override
       public void remove() {
@@ -537,9 +367,9 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       } // next()
 
       /**
-       * Remove not implemented.
+       * Remove the entry whose value next returned last, in O(1) expected time.
        * 
-       * @throws UnsupportedOperationException
+       * @throws IllegalStateException if next hasn't been called since the last remove
        */
       @Override
       public void remove() {
@@ -563,10 +393,740 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
     } // while
   } // forEach
 
+  // +------------------+--------------------------------------------
+  // | Batch operations |
+  // +------------------+
+
+  /**
+   * Look up many keys at once. The keys are sorted, and each search resumes from where the
+   * previous one left off (a finger search), so k keys that are near each other cost about
+   * O(k + log n) rather than O(k log n).
+   *
+   * @return a new list holding the entries for the keys that are present. Missing keys are
+   *   simply absent, so callers can check with containsKey rather than catching exceptions.
+   * @throws NullPointerException if any key is null.
+   */
+  public SkipList<K, V> getAll(Collection<? extends K> keys) {
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    ArrayList<Map.Entry<K, V>> found = new ArrayList<Map.Entry<K, V>>();
+    SLNode<K, V> lastFound = null;
+    for (K key : this.sorted(keys)) {
+      SLNode<K, V> next = this.after(this.fingerSearch(key, prev), 0);
+      if (next != null && next != lastFound && this.comparator.compare(next.key, key) == 0) {
+        found.add(new AbstractMap.SimpleEntry<K, V>(next.key, next.value));
+        lastFound = next;
+      } // if found key (and not already reported)
+    } // for
+    return SkipList.fromSorted(this.comparator, found.iterator(), false);
+  } // getAll(Collection<K>)
+
+  /**
+   * Set many key/value pairs at once, using finger search between consecutive keys as in
+   * getAll. If the same key appears more than once, the last one wins.
+   *
+   * @return the number of keys that were not already in the list
+   * @throws NullPointerException if any key is null.
+   */
+  public int setAll(Collection<? extends Map.Entry<? extends K, ? extends V>> entries) {
+    ArrayList<Map.Entry<? extends K, ? extends V>> sorted =
+        new ArrayList<Map.Entry<? extends K, ? extends V>>(entries);
+    for (Map.Entry<? extends K, ? extends V> entry : sorted) {
+      if (entry.getKey() == null) {
+        throw new NullPointerException("null key");
+      } // if
+    } // for
+    sorted.sort((e1, e2) -> this.comparator.compare(e1.getKey(), e2.getKey()));
+
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    int added = 0;
+    for (Map.Entry<? extends K, ? extends V> entry : sorted) {
+      K key = entry.getKey();
+      SLNode<K, V> next = this.after(this.fingerSearch(key, prev), 0);
+      if (next != null && this.comparator.compare(next.key, key) == 0) {
+        this.preserve(key, next);
+        next.value = entry.getValue();
+      } else {
+        this.preserve(key, null);
+        this.insert(key, entry.getValue(), prev);
+        added++;
+      } // if/else
+    } // for
+    return added;
+  } // setAll(Collection<Map.Entry<K,V>>)
+
+  /**
+   * Remove many keys at once, using finger search between consecutive keys as in getAll.
+   *
+   * @return a new list holding the entries that were removed
+   * @throws NullPointerException if any key is null.
+   */
+  public SkipList<K, V> removeAll(Collection<? extends K> keys) {
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    ArrayList<Map.Entry<K, V>> removed = new ArrayList<Map.Entry<K, V>>();
+    for (K key : this.sorted(keys)) {
+      SLNode<K, V> next = this.after(this.fingerSearch(key, prev), 0);
+      if (next != null && this.comparator.compare(next.key, key) == 0) {
+        this.preserve(key, next);
+        this.unlink(next, prev);
+        removed.add(new AbstractMap.SimpleEntry<K, V>(next.key, next.value));
+      } // if found key
+    } // for
+    return SkipList.fromSorted(this.comparator, removed.iterator(), false);
+  } // removeAll(Collection<K>)
+
+  /**
+   * Remove every entry for which filter returns true, in one pass along level 0. The walk
+   * keeps the predecessor of the current node at every level, so each removal just relinks
+   * the node's tower, with no search.
+   *
+   * @return the number of entries removed
+   */
+  public int removeIf(BiPredicate<? super K, ? super V> filter) {
+    int removed = 0;
+    for (Cursor cursor = new Cursor(null, null); cursor.hasNext();) {
+      SLNode<K, V> node = cursor.next();
+      if (filter.test(node.key, node.value)) {
+        cursor.remove();
+        removed++;
+      } // if
+    } // for
+    return removed;
+  } // removeIf(BiPredicate)
+
+  /**
+   * Remove every entry whose key is not in keys, in one pass along level 0 (after sorting
+   * keys), as in removeIf.
+   *
+   * @return the number of entries removed
+   * @throws NullPointerException if any key is null.
+   */
+  public int retainAll(Collection<? extends K> keys) {
+    ArrayList<K> sorted = this.sorted(keys);
+    int i = 0;
+    int removed = 0;
+    for (Cursor cursor = new Cursor(null, null); cursor.hasNext();) {
+      SLNode<K, V> node = cursor.next();
+      while (i < sorted.size() && this.comparator.compare(sorted.get(i), node.key) < 0) {
+        i++;
+      } // while (skip keys that aren't in the list)
+      if (i == sorted.size() || this.comparator.compare(sorted.get(i), node.key) != 0) {
+        cursor.remove();
+        removed++;
+      } // if
+    } // for
+    return removed;
+  } // retainAll(Collection<K>)
+
+  // +----------+----------------------------------------------------
+  // | Splicing |
+  // +----------+
+
+  /**
+   * Remove every entry whose key is in [from, to), where a null bound means that end of the
+   * list. One descent finds the last node before the range at every level, and a finger
+   * search from there finds the last node in it, so each level is relinked just once, past
+   * the whole range. Counting the entries removed (and saving them for open snapshots) takes
+   * a walk along level 0 of the range, so this costs O(log n + k) for k entries.
+   *
+   * @return the number of entries removed
+   * @throws IllegalArgumentException if from is greater than to.
+   */
+  public int removeRange(K from, K to) {
+    if (from != null && to != null && this.comparator.compare(from, to) > 0) {
+      throw new IllegalArgumentException("from > to");
+    } // if
+    ArrayList<SLNode<K, V>> before = this.newFinger();
+    if (from != null) {
+      this.fingerSearch(from, before);
+    } // if
+    ArrayList<SLNode<K, V>> last = new ArrayList<SLNode<K, V>>(before);
+    if (to != null) {
+      this.fingerSearch(to, last);
+    } // if
+    SLNode<K, V> end = (to == null) ? null : this.after(last.get(0), 0);
+    int removed = 0;
+    for (SLNode<K, V> node = this.after(before.get(0), 0); node != end; node = node.next[0]) {
+      this.preserve(node.key, node);
+      removed++;
+    } // for
+    if (removed == 0) {
+      return 0;
+    } // if
+    for (int lvl = 0; lvl < this.height; lvl++) {
+      SLNode<K, V> next = (to == null) ? null : this.after(last.get(lvl), lvl);
+      if (before.get(lvl) == null) {
+        this.front.set(lvl, next);
+      } else {
+        before.get(lvl).next[lvl] = next;
+      } // if/else
+    } // for (link past the range)
+    this.size -= removed;
+    this.structureChanged();
+    return removed;
+  } // removeRange(K, K)
+
+  /**
+   * Move the entries whose keys are at least key into a new list, which is returned; this
+   * list keeps the rest. One descent finds where to cut each level, and the new list just
+   * takes over the nodes past the cut, so nothing is copied. We still have to work out the
+   * two sizes, which we do by walking both halves in step until the shorter one ends, so
+   * this costs O(log n + min(k, n - k)) for k entries moved (plus a walk over the k entries
+   * to save them, if there are open snapshots).
+   *
+   * The new list is of the same kind as this one where that makes sense (see newList), with
+   * the same comparator and level generator (but not our tuner; see levelsForCopy).
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public SkipList<K, V> split(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    this.fingerSearch(key, prev);
+    SkipList<K, V> result = this.newList();
+    result.levels = this.levelsForCopy();
+    for (int lvl = result.height; lvl < this.height; lvl++) {
+      result.front.add(null);
+    } // for (make the new list as tall as this one)
+    result.height = Math.max(result.height, this.height);
+    for (int lvl = 0; lvl < this.height; lvl++) {
+      result.front.set(lvl, this.after(prev.get(lvl), lvl));
+      if (prev.get(lvl) == null) {
+        this.front.set(lvl, null);
+      } else {
+        prev.get(lvl).next[lvl] = null;
+      } // if/else
+    } // for (cut each level)
+    if (this.history != null) {
+      for (SLNode<K, V> node = result.front.get(0); node != null; node = node.next[0]) {
+        this.preserve(node.key, node);
+      } // for
+    } // if
+
+    int shorter = 0;
+    SLNode<K, V> kept = this.front.get(0);
+    SLNode<K, V> moved = result.front.get(0);
+    while (kept != null && moved != null) {
+      kept = kept.next[0];
+      moved = moved.next[0];
+      shorter++;
+    } // while (walk both halves until one ends)
+    result.size = (kept == null) ? this.size - shorter : shorter;
+    this.size -= result.size;
+    this.structureChanged();
+    result.structureChanged();
+    return result;
+  } // split(K)
+
+  /**
+   * Move all of other's entries onto the end of this list, leaving other empty. Every key in
+   * other must be greater than every key here. One descent finds the last node at every
+   * level, and each is linked to other's first node at that level, so this costs O(log n)
+   * (plus a walk over other's entries to save them, if either list has open snapshots).
+   *
+   * @throws IllegalArgumentException if other is this list or the key ranges overlap.
+   */
+  public void concatenate(SkipList<K, V> other) {
+    if (other == this) {
+      throw new IllegalArgumentException("can't concatenate a list to itself");
+    } // if
+    SLNode<K, V> first = other.front.get(0);
+    if (first == null) {
+      return;
+    } // if
+    ArrayList<SLNode<K, V>> last = this.lastNodes();
+    if (last.get(0) != null && this.comparator.compare(last.get(0).key, first.key) >= 0) {
+      throw new IllegalArgumentException("key ranges overlap at " + first.key);
+    } // if
+    ArrayList<SLNode<K, V>> heads = new ArrayList<SLNode<K, V>>(other.front);
+    int count = other.size;
+    // Emptying other leaves its nodes linked to each other, just not to other
+    other.dropAll();
+    if (this.history != null) {
+      for (SLNode<K, V> node = first; node != null; node = node.next[0]) {
+        this.preserve(node.key, null);
+      } // for
+    } // if
+    for (int lvl = this.height; lvl < heads.size(); lvl++) {
+      this.front.add(null);
+      last.add(null);
+    } // for (grow the list if other is taller)
+    this.height = Math.max(this.height, heads.size());
+    for (int lvl = 0; lvl < heads.size(); lvl++) {
+      if (last.get(lvl) == null) {
+        this.front.set(lvl, heads.get(lvl));
+      } else {
+        last.get(lvl).next[lvl] = heads.get(lvl);
+      } // if/else
+    } // for (link in other's nodes)
+    this.size += count;
+    this.structureChanged();
+  } // concatenate(SkipList<K,V>)
+
+  // +---------+-----------------------------------------------------
+  // | Merging |
+  // +---------+
+
+  /**
+   * Make a new list holding the entries of both this list and other, which must use the
+   * same ordering. Where both have a key, the new list holds resolver's result for this
+   * list's value and other's value. Neither list changes.
+   *
+   * We walk the two lists' level 0 in step, as in merge sort, and append each entry to the
+   * new list as in loadSorted, so this takes O(n + m) time, with no searching, and one
+   * comparison per entry.
+   *
+   * The new list is of the same kind as this one where that makes sense (see newList), with
+   * the same comparator and level generator (but not our tuner; see levelsForCopy).
+   */
+  public SkipList<K, V> merge(SkipList<K, V> other,
+      BiFunction<? super V, ? super V, ? extends V> resolver) {
+    SkipList<K, V> result = this.newList();
+    result.levels = this.levelsForCopy();
+    this.mergeInto(result, other, resolver, false);
+    return result;
+  } // merge(SkipList<K,V>, BiFunction)
+
+  /**
+   * Add other's entries to this list, which must use the same ordering, resolving keys that
+   * are in both as merge does. other doesn't change.
+   *
+   * If other is no larger than this list, we walk it in order and set each entry with a
+   * finger search from the last one, as in setAll. That costs O(m log(n/m)) for m entries
+   * in other, which is much less than O(n + m) when other is small, and allocates only the
+   * nodes for new keys. Otherwise inserting other's entries would cost more than building
+   * the result from scratch, so we merge into a new list as merge does and take over its
+   * nodes.
+   *
+   * @return the number of keys added
+   */
+  public int mergeFrom(SkipList<K, V> other,
+      BiFunction<? super V, ? super V, ? extends V> resolver) {
+    int oldSize = this.size;
+    if (other.size > this.size) {
+      SkipList<K, V> result = this.newList();
+      // The nodes become ours, so they get their heights from our generator (tuner and all)
+      result.levels = this.levels;
+      this.mergeInto(result, other, resolver, true);
+      this.front = result.front;
+      this.height = result.height;
+      this.size = result.size;
+      this.structureChanged();
+      return this.size - oldSize;
+    } // if
+    ArrayList<SLNode<K, V>> prev = this.newFinger();
+    for (SLNode<K, V> node = other.front.get(0); node != null; node = node.next[0]) {
+      SLNode<K, V> next = this.after(this.fingerSearch(node.key, prev), 0);
+      if (next != null && this.comparator.compare(next.key, node.key) == 0) {
+        this.preserve(next.key, next);
+        next.value = resolver.apply(next.value, node.value);
+      } else {
+        this.preserve(node.key, null);
+        this.insert(node.key, node.value, prev);
+      } // if/else
+    } // for
+    return this.size - oldSize;
+  } // mergeFrom(SkipList<K,V>, BiFunction)
+
+  // +-------------+-------------------------------------------------
+  // | Range views |
+  // +-------------+
+
+  /**
+   * Get a view of the entries whose keys are at least from and less than to. Lookups,
+   * iteration, and forEach on the view start with one descent to from and then walk level 0
+   * only as far as to, so they cost O(log n + k) for k entries in range.
+   *
+   * @pre from is not greater than to
+   * @throws NullPointerException if either bound is null.
+   */
+  public SimpleMap<K, V> subMap(K from, K to) {
+    if (from == null || to == null) {
+      throw new NullPointerException("null bound");
+    } // if
+    if (this.comparator.compare(from, to) > 0) {
+      throw new IllegalArgumentException("from > to");
+    } // if
+    return new SubMap(from, to);
+  } // subMap(K, K)
+
+  /**
+   * Get a view of the entries whose keys are less than to.
+   *
+   * @throws NullPointerException if to is null.
+   */
+  public SimpleMap<K, V> headMap(K to) {
+    if (to == null) {
+      throw new NullPointerException("null bound");
+    } // if
+    return new SubMap(null, to);
+  } // headMap(K)
+
+  /**
+   * Get a view of the entries whose keys are at least from.
+   *
+   * @throws NullPointerException if from is null.
+   */
+  public SimpleMap<K, V> tailMap(K from) {
+    if (from == null) {
+      throw new NullPointerException("null bound");
+    } // if
+    return new SubMap(from, null);
+  } // tailMap(K)
+
+  /**
+   * Apply a function to each key/value pair whose key is at least from and less than to, in
+   * order.
+   *
+   * @throws NullPointerException if either bound is null.
+   */
+  public void forEach(K from, K to, BiConsumer<? super K, ? super V> action) {
+    this.subMap(from, to).forEach(action);
+  } // forEach(K, K, BiConsumer)
+
+  // +------------+--------------------------------------------------
+  // | Navigation |
+  // +------------+
+
+  /**
+   * Get the smallest key, in O(1) time.
+   *
+   * @throws NoSuchElementException if the list is empty.
+   */
+  public K firstKey() {
+    return key(this.nonEmpty(this.front.get(0)));
+  } // firstKey()
+
+  /**
+   * Get the largest key, with one descent that takes the last link at every level.
+   *
+   * @throws NoSuchElementException if the list is empty.
+   */
+  public K lastKey() {
+    return key(this.nonEmpty(this.lastNode()));
+  } // lastKey()
+
+  /**
+   * Get the largest key that is at most key (or null, if there's no such key).
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public K floorKey(K key) {
+    return key(this.lastBefore(key, true));
+  } // floorKey(K)
+
+  /**
+   * Get the smallest key that is at least key (or null, if there's no such key).
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public K ceilingKey(K key) {
+    return key(this.after(this.lastBefore(key, false), 0));
+  } // ceilingKey(K)
+
+  /**
+   * Get the smallest key that is greater than key (or null, if there's no such key).
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public K higherKey(K key) {
+    return key(this.after(this.lastBefore(key, true), 0));
+  } // higherKey(K)
+
+  /**
+   * Get the largest key that is less than key (or null, if there's no such key).
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public K lowerKey(K key) {
+    return key(this.lastBefore(key, false));
+  } // lowerKey(K)
+
+  /**
+   * Get the entry with the smallest key (or null, if the list is empty). The entry is a
+   * copy, so changing the list doesn't change it, and it doesn't support setValue.
+   */
+  public Map.Entry<K, V> firstEntry() {
+    return entry(this.front.get(0));
+  } // firstEntry()
+
+  /**
+   * Get the entry with the largest key (or null, if the list is empty), as in firstEntry.
+   */
+  public Map.Entry<K, V> lastEntry() {
+    return entry(this.lastNode());
+  } // lastEntry()
+
+  /**
+   * Get the entry whose key is floorKey(key) (or null, if there's no such key).
+   */
+  public Map.Entry<K, V> floorEntry(K key) {
+    return entry(this.lastBefore(key, true));
+  } // floorEntry(K)
+
+  /**
+   * Get the entry whose key is ceilingKey(key) (or null, if there's no such key).
+   */
+  public Map.Entry<K, V> ceilingEntry(K key) {
+    return entry(this.after(this.lastBefore(key, false), 0));
+  } // ceilingEntry(K)
+
+  /**
+   * Get the entry whose key is higherKey(key) (or null, if there's no such key).
+   */
+  public Map.Entry<K, V> higherEntry(K key) {
+    return entry(this.after(this.lastBefore(key, true), 0));
+  } // higherEntry(K)
+
+  /**
+   * Get the entry whose key is lowerKey(key) (or null, if there's no such key).
+   */
+  public Map.Entry<K, V> lowerEntry(K key) {
+    return entry(this.lastBefore(key, false));
+  } // lowerEntry(K)
+
+  /**
+   * Remove and return the entry with the smallest key (or null, if the list is empty), so
+   * that the list can serve as a priority queue. Removing goes through remove, so that
+   * subclasses see it, and costs O(log n).
+   */
+  public Map.Entry<K, V> pollFirst() {
+    return this.poll(this.front.get(0));
+  } // pollFirst()
+
+  /**
+   * Remove and return the entry with the largest key (or null, if the list is empty).
+   */
+  public Map.Entry<K, V> pollLast() {
+    return this.poll(this.lastNode());
+  } // pollLast()
+
+  // +---------+-----------------------------------------------------
+  // | Streams |
+  // +---------+
+
+  /**
+   * Get a spliterator over the entries, in key order. Splitting uses the upper levels of the
+   * towers: it finds the highest level with a node strictly inside the range and cuts at the
+   * middle such node, so the halves come out about the same size and each split costs
+   * O(log n). The entries it hands out are snapshots, so setting their values does nothing.
+   *
+   * Like the other iterators, the spliterator must not be used while the list is changing.
+   */
+  public Spliterator<Map.Entry<K, V>> spliterator() {
+    return new EntrySpliterator(null, this.front.get(0), null, this.height - 1, this.size, true);
+  } // spliterator()
+
+  /**
+   * Get a sequential stream of the entries, in key order.
+   */
+  public Stream<Map.Entry<K, V>> stream() {
+    return StreamSupport.stream(this.spliterator(), false);
+  } // stream()
+
+  /**
+   * Get a parallel stream of the entries, in key order.
+   */
+  public Stream<Map.Entry<K, V>> parallelStream() {
+    return StreamSupport.stream(this.spliterator(), true);
+  } // parallelStream()
+
+  /**
+   * Apply a function to each key/value pair, in parallel on the common ForkJoinPool. The pairs
+   * are not visited in any particular order, so action must be safe to call from several
+   * threads at once.
+   */
+  public void parallelForEach(BiConsumer<? super K, ? super V> action) {
+    this.parallelForEach(ForkJoinPool.commonPool(), action);
+  } // parallelForEach(BiConsumer)
+
+  /**
+   * Apply a function to each key/value pair, in parallel on the given pool.
+   */
+  public void parallelForEach(ForkJoinPool pool, BiConsumer<? super K, ? super V> action) {
+    if (action == null) {
+      throw new NullPointerException("null action");
+    } // if
+    // About four chunks per thread, so that threads that finish early can steal
+    long chunk = Math.max(1, this.size / (4L * pool.getParallelism()));
+    pool.invoke(new ForEachTask(this.spliterator(), chunk, action));
+  } // parallelForEach(ForkJoinPool, BiConsumer)
+
+  // +-----------+---------------------------------------------------
+  // | Bulk load |
+  // +-----------+
+
+  /**
+   * Fill an empty list from entries in strictly increasing key order, in one left-to-right
+   * pass. Rather than searching for each key, we remember the rightmost node at every level
+   * and link each new node after those. The only comparisons are the ones that check that the
+   * input really is sorted.
+   *
+   * If balanced is true, heights are assigned deterministically rather than randomly: the i-th
+   * node (counting from 1) is one level taller than the number of times 2 divides i. That gives
+   * a perfectly balanced list, with every level holding every other node of the level below.
+   *
+   * @pre the list is empty
+   * @post the list holds exactly the given entries
+   * @throws IllegalStateException if the list is not empty.
+   * @throws IllegalArgumentException if the keys are not in strictly increasing order, in which
+   *   case the list is left empty.
+   * @throws NullPointerException if a key is null, in which case the list is left empty.
+   */
+  public void loadSorted(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries,
+      boolean balanced) {
+    if (this.size != 0) {
+      throw new IllegalStateException("loadSorted requires an empty list");
+    } // if
+
+    // The rightmost node at each level (null while a level is still empty)
+    ArrayList<SLNode<K, V>> last = new ArrayList<SLNode<K, V>>(this.height);
+    for (int i = 0; i < this.height; i++) {
+      last.add(null);
+    } // for (initialize last array)
+
+    try {
+      while (entries.hasNext()) {
+        Map.Entry<? extends K, ? extends V> entry = entries.next();
+        K key = entry.getKey();
+        if (key == null) {
+          throw new NullPointerException("null key");
+        } // if
+        if (last.get(0) != null && this.comparator.compare(last.get(0).key, key) >= 0) {
+          throw new IllegalArgumentException("keys out of order at " + key);
+        } // if
+        this.preserve(key, null);
+        int nodeHeight = balanced ? 1 + Integer.numberOfTrailingZeros(this.size + 1)
+            : this.randomHeight();
+        this.append(key, entry.getValue(), nodeHeight, last);
+      } // while
+    } catch (RuntimeException e) {
+      for (int lvl = 0; lvl < this.height; lvl++) {
+        this.front.set(lvl, null);
+      } // for
+      this.size = 0;
+      throw e;
+    } finally {
+      this.structureChanged();
+    } // try/catch/finally
+  } // loadSorted(Iterator<Map.Entry<K,V>>, boolean)
+
   // +----------------------+----------------------------------------
   // | Other public methods |
   // +----------------------+
 
+  /**
+   * Copy the list into an immutable FrozenSkipList, which keeps its keys in flat arrays
+   * laid out for cache-friendly search. Takes O(n) time. The copy does not see later
+   * changes to the list.
+   */
+  public FrozenSkipList<K, V> freeze() {
+    Object[] keys = new Object[this.size];
+    Object[] values = new Object[this.size];
+    int i = 0;
+    for (SLNode<K, V> node = this.front.get(0); node != null; node = node.next[0]) {
+      keys[i] = node.key;
+      values[i++] = node.value;
+    } // for
+    return new FrozenSkipList<K, V>(this.comparator, keys, values);
+  } // freeze()
+
+  /**
+   * Get a read-only view of the list as it is now. The view costs O(1) to make and doesn't
+   * change when the list does: until the view is closed, the list saves the old value of
+   * each key the first time it changes. Close the view when done with it.
+   *
+   * @see VersionedSnapshot
+   */
+  public VersionedSnapshot<K, V> snapshot() {
+    if (this.history == null || this.history.reclaim()) {
+      this.history = new VersionHistory<K, V>(this);
+    } // if
+    return new VersionedSnapshot<K, V>(this, this.history);
+  } // snapshot()
+
+  /**
+   * Get the metrics that set, get, containsKey and remove report to.
+   */
+  public SkipListMetrics metrics() {
+    return this.metrics;
+  } // metrics()
+
+  /**
+   * Start reporting set, get, containsKey and remove to metrics (for example,
+   * SkipListMetrics.striped()), or stop with SkipListMetrics.NONE. Turns tuning off.
+   *
+   * @throws NullPointerException if metrics is null.
+   */
+  public void setMetrics(SkipListMetrics metrics) {
+    if (metrics == null) {
+      throw new NullPointerException("null metrics");
+    } // if
+    this.disableTuning();
+    this.metrics = metrics;
+  } // setMetrics(SkipListMetrics)
+
+  /**
+   * Get the generator that picks the heights of new nodes.
+   */
+  public LevelGenerator levelGenerator() {
+    return this.levels;
+  } // levelGenerator()
+
+  /**
+   * Pick the heights of nodes added from now on with levels (for example,
+   * LevelGenerator.seeded(42, 0.5) for reproducible runs). Existing nodes keep their heights.
+   * Turns tuning off.
+   *
+   * @throws NullPointerException if levels is null.
+   */
+  public void setLevelGenerator(LevelGenerator levels) {
+    if (levels == null) {
+      throw new NullPointerException("null level generator");
+    } // if
+    this.disableTuning();
+    this.levels = levels;
+  } // setLevelGenerator(LevelGenerator)
+
+  /**
+   * Start tuning the list to its workload: from now on, it picks p for new nodes and its
+   * height from its own read/write mix and search-path lengths, weighing memory against
+   * latency by memoryWeight (0 for fastest, 1 for smallest). Metrics already set up keep
+   * receiving reports.
+   *
+   * @return the tuner, for checking its state or overriding p
+   * @throws IllegalArgumentException if memoryWeight is not in [0, 1].
+   * @see SkipListTuner
+   */
+  public SkipListTuner enableTuning(double memoryWeight) {
+    this.disableTuning();
+    SkipListTuner tuner = new SkipListTuner(this, this.metrics, memoryWeight);
+    this.metrics = tuner;
+    this.levels = tuner;
+    return tuner;
+  } // enableTuning(double)
+
+  /**
+   * Stop tuning. New nodes keep the last p the tuner chose, without its height cap.
+   */
+  public void disableTuning() {
+    SkipListTuner tuner = this.tuner();
+    if (tuner != null) {
+      this.metrics = tuner.delegate;
+      this.levels = tuner.levels;
+    } // if
+  } // disableTuning()
+
+  /**
+   * Get the tuner, if the list is being tuned.
+   *
+   * @return the tuner, or null if tuning is off
+   */
+  public SkipListTuner tuner() {
+    return (this.metrics instanceof SkipListTuner) ? (SkipListTuner) this.metrics : null;
+  } // tuner()
+
   /**
    * Dump the tree to some output location.
    */
@@ -599,17 +1159,17 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
       } // if/else
 
       // Print an indication for the links it has.
-      for (int level = 0; level < current.next.size(); level++) {
+      for (int level = 0; level < current.next.length; level++) {
         pen.print("-*");
       } // for
       // Print an indication for the links it lacks.
-      for (int level = current.next.size(); level < this.height; level++) {
+      for (int level = current.next.length; level < this.height; level++) {
         pen.print(" |");
       } // for
       pen.println();
       printLinks(pen, leading);
 
-      current = current.next.get(0);
+      current = current.next[0];
     } // while
 
     // Print some O's at the start
@@ -635,27 +1195,95 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
   // | Helpers |
   // +---------+
 
+  /**
+   * Make a node for the list. (Subclasses that keep extra information in their nodes
+   * override this.)
+   */
+  SLNode<K, V> newNode(K key, V value, int n) {
+    return new SLNode<K, V>(key, value, n);
+  } // newNode(K, V, int)
+
+  /**
+   * Make an empty list of the same kind, with the same comparator, for split. (Subclasses
+   * whose nodes carry extra information override this.)
+   */
+  SkipList<K, V> newList() {
+    return new SkipList<K, V>(this.comparator);
+  } // newList()
+
+  /**
+   * Get the level generator for a new list made from this one. That's ours, unless it's a
+   * tuner, which is tied to this list's size and height; then it's the generator for the
+   * last p the tuner chose, without the height cap.
+   */
+  LevelGenerator levelsForCopy() {
+    return (this.levels instanceof SkipListTuner) ? ((SkipListTuner) this.levels).levels
+        : this.levels;
+  } // levelsForCopy()
+
+  /**
+   * Note that nodes have been linked or unlinked by something other than set or remove.
+   * Does nothing here; subclasses that keep per-link information override it.
+   */
+  void structureChanged() {
+  } // structureChanged()
+
+  /**
+   * Save the current value of key (node's value, or the fact that there isn't one, if node
+   * is null) for any open snapshots. Every change to the entries must call this first.
+   */
+  void preserve(K key, SLNode<K, V> node) {
+    if (this.history != null) {
+      if (this.history.reclaim()) {
+        this.history = null;
+      } else {
+        this.history.preserve(key, (node == null) ? VersionHistory.ABSENT : node.value);
+      } // if/else
+    } // if
+  } // preserve(K, SLNode<K,V>)
+
   /**
    * Pick a random height for a new node.
    */
   int randomHeight() {
-    int result = 1;
-    while (rand.nextDouble() < prob) {
-      result = result + 1;
-    } // while
-    return result;
+    return this.levels.nextLevel();
   } // randomHeight()
 
   /**
-   * Get an iterator for all of the nodes. (Useful for implementing the other iterators.)
+   * Lower the height toward target, dropping empty levels from the top (but never any level
+   * that holds a node, and never below 1).
+   */
+  void trimHeight(int target) {
+    int newHeight = this.height;
+    while (newHeight > Math.max(target, 1) && this.front.get(newHeight - 1) == null) {
+      newHeight--;
+    } // while
+    if (newHeight < this.height) {
+      this.front.subList(newHeight, this.height).clear();
+      this.height = newHeight;
+      this.structureChanged();
+    } // if
+  } // trimHeight(int)
+
+  /**
+   * Get an iterator for all of the nodes, which supports remove. (Useful for implementing
+   * the other iterators.)
    */
   Iterator<SLNode<K, V>> nodes() {
+    return new Cursor(null, null);
+  } // nodes()
+
+  /**
+   * Get an iterator for the nodes from start up to (but not including) the first node whose
+   * key is at least to. A null to means go to the end of the list.
+   */
+  Iterator<SLNode<K, V>> nodes(SLNode<K, V> start, K to) {
     return new Iterator<SLNode<K, V>>() {
 
       /**
        * A reference to the next node to return.
        */
-      SLNode<K, V> next = SkipList.this.front.get(0);
+      SLNode<K, V> next = this.bounded(start);
 
       @Override
       public boolean hasNext() {
@@ -668,60 +1296,798 @@ public class SkipList<K, V> implements SimpleMap<K, V> {
           throw new IllegalStateException();
         }
         SLNode<K, V> temp = this.next;
-        this.next = this.next.next.get(0);
+        this.next = this.bounded(this.next.next[0]);
         return temp;
       } // next();
+
+      /**
+       * Return node, or null if it's past the end of the range.
+       */
+      SLNode<K, V> bounded(SLNode<K, V> node) {
+        if (node != null && to != null && SkipList.this.comparator.compare(node.key, to) >= 0) {
+          return null;
+        } // if
+        return node;
+      } // bounded(SLNode<K,V>)
     }; // new Iterator
-  } // nodes()
+  } // nodes(SLNode<K,V>, K)
 
-  // +---------+-----------------------------------------------------
-  // | Helpers |
-  // +---------+
+  /**
+   * Get the node after node at level lvl, where a null node stands for the front of the list.
+   */
+  SLNode<K, V> after(SLNode<K, V> node, int lvl) {
+    return (node == null) ? this.front.get(lvl) : node.next[lvl];
+  } // after(SLNode<K,V>, int)
 
-} // class SkipList
+  /**
+   * Find the last node at every level (null where a level is empty), with one descent.
+   */
+  ArrayList<SLNode<K, V>> lastNodes() {
+    ArrayList<SLNode<K, V>> last = this.newFinger();
+    SLNode<K, V> current = null; // null stands for the front of the list
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      for (SLNode<K, V> next = this.after(current, lvl); next != null; next = next.next[lvl]) {
+        current = next;
+      } // for
+      last.set(lvl, current);
+    } // for each level
+    return last;
+  } // lastNodes()
 
+  /**
+   * Make a finger for fingerSearch that starts at the front of the list.
+   */
+  ArrayList<SLNode<K, V>> newFinger() {
+    ArrayList<SLNode<K, V>> prev = new ArrayList<SLNode<K, V>>(this.height);
+    for (int i = 0; i < this.height; i++) {
+      prev.add(null);
+    } // for (initialize prev array)
+    return prev;
+  } // newFinger()
 
-/**
- * Nodes in the skip list.
- */
-class SLNode<K, V> {
+  /**
+   * Sort a batch of keys with our comparator.
+   *
+   * @throws NullPointerException if any key is null.
+   */
+  ArrayList<K> sorted(Collection<? extends K> keys) {
+    ArrayList<K> result = new ArrayList<K>(keys);
+    for (K key : result) {
+      if (key == null) {
+        throw new NullPointerException("null key");
+      } // if
+    } // for
+    result.sort(this.comparator);
+    return result;
+  } // sorted(Collection<K>)
 
-  // +--------+------------------------------------------------------
-  // | Fields |
-  // +--------+
+  /**
+   * Move a finger forward to key. On entry, prev must hold the predecessors (null for the
+   * front) of some key no greater than key, at every level. On exit, it holds the predecessors
+   * of key.
+   *
+   * A level's predecessor is still right for key unless its successor is now less than key,
+   * and if that happens at some level it happens at every level below it too. So we climb
+   * from level 0 to the highest stale level and only search from there down, which costs
+   * O(log d) for keys d positions apart rather than O(log n).
+   *
+   * @return prev.get(0)
+   */
+  SLNode<K, V> fingerSearch(K key, ArrayList<SLNode<K, V>> prev) {
+    int top = -1;
+    while (top + 1 < this.height) {
+      SLNode<K, V> next = this.after(prev.get(top + 1), top + 1);
+      if (next == null || this.comparator.compare(next.key, key) >= 0) {
+        break;
+      } // if the predecessor at this level is still right
+      top++;
+    } // while (find the highest stale level)
+
+    SLNode<K, V> current = (top >= 0) ? prev.get(top) : null;
+    for (int lvl = top; lvl >= 0; lvl--) {
+      SLNode<K, V> old = prev.get(lvl);
+      if (old != null && (current == null || this.comparator.compare(old.key, current.key) > 0)) {
+        current = old;
+      } // if the old predecessor is further along
+      SLNode<K, V> next = this.after(current, lvl);
+      while (next != null && this.comparator.compare(next.key, key) < 0) {
+        current = next;
+        next = current.next[lvl];
+      } // while next < key at level lvl
+      prev.set(lvl, current);
+    } // for each stale level
+    return prev.get(0);
+  } // fingerSearch(K, ArrayList<SLNode<K,V>>)
+
+  /**
+   * Insert a new node for key after its predecessors in prev (as found by fingerSearch),
+   * growing the list and prev if the new node is the tallest yet.
+   */
+  SLNode<K, V> insert(K key, V value, ArrayList<SLNode<K, V>> prev) {
+    SLNode<K, V> setNode = this.newNode(key, value, this.randomHeight());
+    for (int lvl = this.height; lvl < setNode.next.length; lvl++) {
+      this.front.add(null);
+      prev.add(null);
+    } // for (grow the list if node is the largest yet)
+    if (this.height < setNode.next.length) {
+      this.height = setNode.next.length;
+    } // if (update height)
+    for (int lvl = 0; lvl < setNode.next.length; lvl++) {
+      setNode.next[lvl] = this.after(prev.get(lvl), lvl);
+      if (prev.get(lvl) == null) {
+        this.front.set(lvl, setNode);
+      } else {
+        prev.get(lvl).next[lvl] = setNode;
+      } // if/else
+    } // for (link in new node)
+    this.size++;
+    this.structureChanged();
+    return setNode;
+  } // insert(K, V, ArrayList<SLNode<K,V>>)
 
   /**
-   * The key.
+   * Empty the list by dropping the links out of the front, after saving every entry for any
+   * open snapshots. The nodes themselves are left linked to each other, for concatenate to
+   * take over.
    */
-  K key;
+  void dropAll() {
+    if (this.history != null) {
+      for (SLNode<K, V> node = this.front.get(0); node != null; node = node.next[0]) {
+        this.preserve(node.key, node);
+      } // for
+    } // if
+    for (int lvl = 0; lvl < this.height; lvl++) {
+      this.front.set(lvl, null);
+    } // for
+    this.size = 0;
+    this.structureChanged();
+  } // dropAll()
 
   /**
-   * The value.
+   * Add a node of the given height after every other node, given the rightmost node at
+   * every level in last (which it updates). Doesn't check the order of the keys.
    */
-  V value;
+  void append(K key, V value, int nodeHeight, ArrayList<SLNode<K, V>> last) {
+    SLNode<K, V> node = this.newNode(key, value, nodeHeight);
+    for (int lvl = this.height; lvl < nodeHeight; lvl++) {
+      this.front.add(null);
+      last.add(null);
+    } // for (grow the list if node is the largest yet)
+    if (this.height < nodeHeight) {
+      this.height = nodeHeight;
+    } // if (update height)
+    for (int lvl = 0; lvl < nodeHeight; lvl++) {
+      if (last.get(lvl) == null) {
+        this.front.set(lvl, node);
+      } else {
+        last.get(lvl).next[lvl] = node;
+      } // if/else
+      last.set(lvl, node);
+    } // for (link in new node)
+    this.size++;
+  } // append(K, V, int, ArrayList<SLNode<K,V>>)
 
   /**
-   * Pointers to the next nodes.
+   * Append the entries of this list and other, in order, to the empty list result, as in
+   * merge. If replacing is true, result is about to replace this list's contents (see
+   * mergeFrom), so we save each of other's keys for open snapshots as we go.
    */
-  ArrayList<SLNode<K, V>> next;
+  void mergeInto(SkipList<K, V> result, SkipList<K, V> other,
+      BiFunction<? super V, ? super V, ? extends V> resolver, boolean replacing) {
+    ArrayList<SLNode<K, V>> last = result.newFinger();
+    SLNode<K, V> mine = this.front.get(0);
+    SLNode<K, V> theirs = other.front.get(0);
+    while (mine != null || theirs != null) {
+      int order = (mine == null) ? 1
+          : (theirs == null) ? -1 : this.comparator.compare(mine.key, theirs.key);
+      if (order < 0) {
+        result.append(mine.key, mine.value, result.randomHeight(), last);
+        mine = mine.next[0];
+      } else if (order > 0) {
+        if (replacing) {
+          this.preserve(theirs.key, null);
+        } // if
+        result.append(theirs.key, theirs.value, result.randomHeight(), last);
+        theirs = theirs.next[0];
+      } else {
+        if (replacing) {
+          this.preserve(mine.key, mine);
+        } // if
+        result.append(mine.key, resolver.apply(mine.value, theirs.value),
+            result.randomHeight(), last);
+        mine = mine.next[0];
+        theirs = theirs.next[0];
+      } // if/else
+    } // while
+    result.structureChanged();
+  } // mergeInto(SkipList<K,V>, SkipList<K,V>, BiFunction, boolean)
 
-  // +--------------+------------------------------------------------
-  // | Constructors |
-  // +--------------+
+  /**
+   * Remove a node, given its predecessors at every level, saving its value for any open
+   * snapshots first.
+   */
+  void removeNode(SLNode<K, V> node, ArrayList<SLNode<K, V>> prev) {
+    this.preserve(node.key, node);
+    this.unlink(node, prev);
+  } // removeNode(SLNode<K,V>, ArrayList<SLNode<K,V>>)
 
   /**
-   * Create a new node of height n with the specified key and value.
+   * Unlink a node, given its predecessors at every level (as found by fingerSearch).
    */
-  public SLNode(K key, V value, int n) {
-    this.key = key;
-    this.value = value;
-    this.next = new ArrayList<SLNode<K, V>>(n);
-    for (int i = 0; i < n; i++) {
-      this.next.add(null);
+  void unlink(SLNode<K, V> node, ArrayList<SLNode<K, V>> prev) {
+    for (int lvl = 0; lvl < node.next.length; lvl++) {
+      if (prev.get(lvl) == null) {
+        this.front.set(lvl, node.next[lvl]);
+      } else {
+        prev.get(lvl).next[lvl] = node.next[lvl];
+      } // if/else
     } // for
-  } // SLNode(K, V, int)
+    this.size--;
+    this.structureChanged();
+  } // unlink(SLNode<K,V>, ArrayList<SLNode<K,V>>)
 
-  // +---------+-----------------------------------------------------
-  // | Methods |
-  // +---------+
-} // SLNode<K,V>
+  /**
+   * Find the node for key with one top-down descent, stopping as soon as we see it, and
+   * report the search to metrics as op.
+   *
+   * @return the node, or null if key isn't in the list
+   */
+  SLNode<K, V> find(K key, SkipListMetrics.Op op) {
+    int steps = 0;
+    int levels = 0;
+    int comparisons = 0;
+    SLNode<K, V> current = null; // null stands for the front of the list
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      levels++;
+      SLNode<K, V> next = this.after(current, lvl);
+      while (next != null) {
+        comparisons++;
+        int order = this.comparator.compare(next.key, key);
+        if (order == 0) {
+          this.metrics.record(op, true, steps, levels, comparisons);
+          return next;
+        } else if (order > 0) {
+          break;
+        } // if/else
+        current = next;
+        next = current.next[lvl];
+        steps++;
+      } // while next < key at level lvl
+    } // for each level
+    this.metrics.record(op, false, steps, levels, comparisons);
+    return null;
+  } // find(K, SkipListMetrics.Op)
+
+  /**
+   * Fill prev (as made by newFinger) with the predecessors of key at every level, and report
+   * the search to metrics as op.
+   *
+   * @return the node for key, or null if key isn't in the list
+   */
+  SLNode<K, V> descend(K key, ArrayList<SLNode<K, V>> prev, SkipListMetrics.Op op) {
+    int steps = 0;
+    int levels = 0;
+    int comparisons = 0;
+    SLNode<K, V> current = null; // null stands for the front of the list
+    SLNode<K, V> next = null;
+    int order = 1;
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      levels++;
+      next = this.after(current, lvl);
+      order = 1;
+      while (next != null) {
+        comparisons++;
+        order = this.comparator.compare(next.key, key);
+        if (order >= 0) {
+          break;
+        } // if
+        current = next;
+        next = current.next[lvl];
+        steps++;
+      } // while next < key at level lvl
+      prev.set(lvl, current);
+    } // for each level
+    boolean hit = (next != null && order == 0);
+    this.metrics.record(op, hit, steps, levels, comparisons);
+    return hit ? next : null;
+  } // descend(K, ArrayList<SLNode<K,V>>, SkipListMetrics.Op)
+
+  /**
+   * Find the first node whose key is at least key, with one top-down descent.
+   *
+   * @return that node, or null if every key is less than key
+   */
+  SLNode<K, V> ceilingNode(K key) {
+    return this.after(this.lastBefore(key, false), 0);
+  } // ceilingNode(K)
+
+  /**
+   * Find the last node whose key is less than key (or at most key, if inclusive), with one
+   * top-down descent. If inclusive, we stop as soon as we see key itself.
+   *
+   * @return that node, or null if there isn't one
+   * @throws NullPointerException if the key is null.
+   */
+  SLNode<K, V> lastBefore(K key, boolean inclusive) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    SLNode<K, V> current = null; // null stands for the front of the list
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      SLNode<K, V> next = this.after(current, lvl);
+      while (next != null) {
+        int order = this.comparator.compare(next.key, key);
+        if (order > 0 || (order == 0 && !inclusive)) {
+          break;
+        } else if (order == 0) {
+          return next;
+        } // if/else
+        current = next;
+        next = current.next[lvl];
+      } // while next < key at level lvl
+    } // for each level
+    return current;
+  } // lastBefore(K, boolean)
+
+  /**
+   * Find the last node, with one descent that takes the last link at every level.
+   *
+   * @return that node, or null if the list is empty
+   */
+  SLNode<K, V> lastNode() {
+    SLNode<K, V> current = null; // null stands for the front of the list
+    for (int lvl = this.height - 1; lvl >= 0; lvl--) {
+      for (SLNode<K, V> next = this.after(current, lvl); next != null; next = next.next[lvl]) {
+        current = next;
+      } // for
+    } // for each level
+    return current;
+  } // lastNode()
+
+  /**
+   * Make sure a node we're about to report as the first or last one exists.
+   *
+   * @throws NoSuchElementException if node is null.
+   */
+  SLNode<K, V> nonEmpty(SLNode<K, V> node) {
+    if (node == null) {
+      throw new NoSuchElementException("empty list");
+    } // if
+    return node;
+  } // nonEmpty(SLNode<K,V>)
+
+  /**
+   * Remove node (if it isn't null) with remove, and return a copy of its entry.
+   */
+  Map.Entry<K, V> poll(SLNode<K, V> node) {
+    Map.Entry<K, V> result = entry(node);
+    if (node != null) {
+      this.remove(node.key);
+    } // if
+    return result;
+  } // poll(SLNode<K,V>)
+
+  /**
+   * Get a node's key (or null, for no node).
+   */
+  static <K, V> K key(SLNode<K, V> node) {
+    return (node == null) ? null : node.key;
+  } // key(SLNode<K,V>)
+
+  /**
+   * Get a copy of a node's entry (or null, for no node).
+   */
+  static <K, V> Map.Entry<K, V> entry(SLNode<K, V> node) {
+    return (node == null) ? null
+        : new AbstractMap.SimpleImmutableEntry<K, V>(node.key, node.value);
+  } // entry(SLNode<K,V>)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A view of the part of the list with keys in [lo, hi). A null bound means that side is
+   * unbounded. Changes to the view change the list and vice versa.
+   */
+  class SubMap implements SimpleMap<K, V> {
+    /**
+     * The smallest key in the view (or null, if there's no lower bound).
+     */
+    final K lo;
+
+    /**
+     * The key just past the end of the view (or null, if there's no upper bound).
+     */
+    final K hi;
+
+    /**
+     * Create a view of the keys in [lo, hi).
+     */
+    SubMap(K lo, K hi) {
+      this.lo = lo;
+      this.hi = hi;
+    } // SubMap(K, K)
+
+    /**
+     * Determine if a key falls within the view.
+     */
+    boolean inRange(K key) {
+      return (this.lo == null || SkipList.this.comparator.compare(key, this.lo) >= 0)
+          && (this.hi == null || SkipList.this.comparator.compare(key, this.hi) < 0);
+    } // inRange(K)
+
+    /**
+     * Get the first node in the view (or null, if the view is empty).
+     */
+    SLNode<K, V> first() {
+      return (this.lo == null) ? SkipList.this.front.get(0) : SkipList.this.ceilingNode(this.lo);
+    } // first()
+
+    /**
+     * Set the value associated with key.
+     *
+     * @throws IllegalArgumentException if the key is outside the view.
+     * @throws NullPointerException if the key is null.
+     */
+    @Override
+    public V set(K key, V value) {
+      if (key == null) {
+        throw new NullPointerException("null key");
+      } // if
+      if (!this.inRange(key)) {
+        throw new IllegalArgumentException("key out of range: " + key);
+      } // if
+      return SkipList.this.set(key, value);
+    } // set(K,V)
+
+    /**
+     * Get the value associated with key.
+     *
+     * @throws IndexOutOfBoundsException if the key is not in the view.
+     * @throws NullPointerException if the key is null.
+     */
+    @Override
+    public V get(K key) {
+      if (key == null) {
+        throw new NullPointerException("null key");
+      } // if
+      if (!this.inRange(key)) {
+        throw new IndexOutOfBoundsException("key invalid: " + key);
+      } // if
+      return SkipList.this.get(key);
+    } // get(K)
+
+    /**
+     * Count the values in the view. Takes O(log n + k) time.
+     */
+    @Override
+    public int size() {
+      int count = 0;
+      for (Iterator<SLNode<K, V>> it = SkipList.this.nodes(this.first(), this.hi); it.hasNext();) {
+        it.next();
+        count++;
+      } // for
+      return count;
+    } // size()
+
+    @Override
+    public boolean containsKey(K key) {
+      return this.inRange(key) && SkipList.this.containsKey(key);
+    } // containsKey(K)
+
+    /**
+     * Remove the value with the given key, if it's in the view.
+     */
+    @Override
+    public V remove(K key) {
+      if (key == null) {
+        throw new NullPointerException("null key");
+      } // if
+      if (!this.inRange(key)) {
+        return null;
+      } // if
+      return SkipList.this.remove(key);
+    } // remove(K)
+
+    @Override
+    public Iterator<K> keys() {
+      Cursor nit = new Cursor(this.lo, this.hi);
+      return new Iterator<K>() {
+        @Override
+        public boolean hasNext() {
+          return nit.hasNext();
+        } // hasNext()
+
+        @Override
+        public K next() {
+          return nit.next().key;
+        } // next()
+
+        @Override
+        public void remove() {
+          nit.remove();
+        } // remove()
+      };
+    } // keys()
+
+    @Override
+    public Iterator<V> values() {
+      Cursor nit = new Cursor(this.lo, this.hi);
+      return new Iterator<V>() {
+        @Override
+        public boolean hasNext() {
+          return nit.hasNext();
+        } // hasNext()
+
+        @Override
+        public V next() {
+          return nit.next().value;
+        } // next()
+
+        @Override
+        public void remove() {
+          nit.remove();
+        } // remove()
+      };
+    } // values()
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+      for (Iterator<SLNode<K, V>> it = SkipList.this.nodes(this.first(), this.hi); it.hasNext();) {
+        SLNode<K, V> temp = it.next();
+        action.accept(temp.key, temp.value);
+      } // for
+    } // forEach(BiConsumer)
+  } // class SubMap
+
+  /**
+   * An iterator over the nodes with keys in [from, to) (where null bounds mean the ends of
+   * the list) that can remove the node it returned last. It keeps the predecessors of the
+   * next node at every level, which costs O(height of the node) per step, so O(1) expected.
+   * Removing then just relinks the node's tower.
+   *
+   * The list must not change during the walk, except through remove.
+   */
+  class Cursor implements Iterator<SLNode<K, V>> {
+    /**
+     * The predecessors (null for the front) of next, at every level, except that last
+     * hasn't been folded in yet.
+     */
+    final ArrayList<SLNode<K, V>> prev;
+
+    /**
+     * The key just past the end of the walk (or null, if there's no upper bound).
+     */
+    final K to;
+
+    /**
+     * The next node to return (or null, at the end).
+     */
+    SLNode<K, V> next;
+
+    /**
+     * The node next returned last, if it hasn't been removed.
+     */
+    SLNode<K, V> last;
+
+    /**
+     * Start a walk at the first key that is at least from.
+     */
+    Cursor(K from, K to) {
+      this.prev = SkipList.this.newFinger();
+      if (from != null) {
+        SkipList.this.fingerSearch(from, this.prev);
+      } // if
+      this.to = to;
+      this.next = this.bounded(SkipList.this.after(this.prev.get(0), 0));
+    } // Cursor(K, K)
+
+    @Override
+    public boolean hasNext() {
+      return this.next != null;
+    } // hasNext()
+
+    @Override
+    public SLNode<K, V> next() {
+      if (this.next == null) {
+        throw new IllegalStateException();
+      } // if
+      if (this.last != null) {
+        for (int lvl = 0; lvl < this.last.next.length; lvl++) {
+          this.prev.set(lvl, this.last);
+        } // for
+      } // if (we kept the last node, so it's a predecessor now)
+      this.last = this.next;
+      this.next = this.bounded(this.next.next[0]);
+      return this.last;
+    } // next()
+
+    /**
+     * Remove the node next returned last.
+     *
+     * @throws IllegalStateException if next hasn't been called since the last remove.
+     */
+    @Override
+    public void remove() {
+      if (this.last == null) {
+        throw new IllegalStateException("nothing to remove");
+      } // if
+      SkipList.this.removeNode(this.last, this.prev);
+      this.last = null;
+    } // remove()
+
+    /**
+     * Return node, or null if it's past the end of the range.
+     */
+    SLNode<K, V> bounded(SLNode<K, V> node) {
+      if (node != null && this.to != null
+          && SkipList.this.comparator.compare(node.key, this.to) >= 0) {
+        return null;
+      } // if
+      return node;
+    } // bounded(SLNode<K,V>)
+  } // class Cursor
+
+  /**
+   * A spliterator over the nodes from current up to (but not including) fence, where a null
+   * fence means the end of the list. base (null for the front) is a node at or before current
+   * whose tower reaches level, so that trySplit can look for split points by walking level
+   * from base.
+   */
+  class EntrySpliterator implements Spliterator<Map.Entry<K, V>> {
+    /**
+     * Where to start looking for split points (null for the front of the list).
+     */
+    SLNode<K, V> base;
+
+    /**
+     * The next node to hand out (or null, if we're at the end of the list).
+     */
+    SLNode<K, V> current;
+
+    /**
+     * The first node that isn't ours (or null, if we go to the end of the list).
+     */
+    final SLNode<K, V> fence;
+
+    /**
+     * The highest level that might still have a split point.
+     */
+    int level;
+
+    /**
+     * The number of nodes left, exactly if sized and roughly otherwise.
+     */
+    long estimate;
+
+    /**
+     * Whether estimate is exact.
+     */
+    boolean sized;
+
+    EntrySpliterator(SLNode<K, V> base, SLNode<K, V> current, SLNode<K, V> fence, int level,
+        long estimate, boolean sized) {
+      this.base = base;
+      this.current = current;
+      this.fence = fence;
+      this.level = level;
+      this.estimate = estimate;
+      this.sized = sized;
+    } // EntrySpliterator(...)
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map.Entry<K, V>> action) {
+      if (this.current == this.fence) {
+        return false;
+      } // if
+      SLNode<K, V> node = this.current;
+      this.current = node.next[0];
+      this.estimate--;
+      action.accept(new AbstractMap.SimpleImmutableEntry<K, V>(node.key, node.value));
+      return true;
+    } // tryAdvance(Consumer)
+
+    @Override
+    public void forEachRemaining(Consumer<? super Map.Entry<K, V>> action) {
+      SLNode<K, V> node = this.current;
+      this.current = this.fence;
+      this.estimate = 0;
+      for (; node != this.fence; node = node.next[0]) {
+        action.accept(new AbstractMap.SimpleImmutableEntry<K, V>(node.key, node.value));
+      } // for
+    } // forEachRemaining(Consumer)
+
+    /**
+     * Split off the first half of what's left. Only levels above 0 are searched for split
+     * points, so a range with no tall nodes inside it (a few nodes, on average) won't split.
+     */
+    @Override
+    public Spliterator<Map.Entry<K, V>> trySplit() {
+      if (this.current == this.fence) {
+        return null;
+      } // if
+      Comparator<K> comparator = SkipList.this.comparator;
+      ArrayList<SLNode<K, V>> inside = new ArrayList<SLNode<K, V>>();
+      for (; this.level > 0; this.level--) {
+        SLNode<K, V> node = SkipList.this.after(this.base, this.level);
+        while (node != null && node != this.fence
+            && (this.fence == null || comparator.compare(node.key, this.fence.key) < 0)) {
+          if (comparator.compare(node.key, this.current.key) > 0) {
+            inside.add(node);
+          } // if
+          node = node.next[this.level];
+        } // while
+        if (!inside.isEmpty()) {
+          break;
+        } // if
+      } // for (find the highest level with a node inside the range)
+      if (inside.isEmpty()) {
+        return null;
+      } // if
+
+      SLNode<K, V> mid = inside.get(inside.size() / 2);
+      long half = this.estimate / 2;
+      EntrySpliterator prefix = new EntrySpliterator(this.base, this.current, mid,
+          this.level - 1, this.estimate - half, false);
+      this.base = mid;
+      this.current = mid;
+      this.estimate = half;
+      this.sized = false;
+      return prefix;
+    } // trySplit()
+
+    @Override
+    public long estimateSize() {
+      return this.estimate;
+    } // estimateSize()
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+          | Spliterator.NONNULL | (this.sized ? Spliterator.SIZED : 0);
+    } // characteristics()
+
+    @Override
+    public Comparator<? super Map.Entry<K, V>> getComparator() {
+      return Map.Entry.comparingByKey(SkipList.this.comparator);
+    } // getComparator()
+  } // class EntrySpliterator
+
+  /**
+   * Applies an action to every entry of a spliterator, forking off halves until the pieces
+   * are no bigger than chunk.
+   */
+  class ForEachTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final Spliterator<Map.Entry<K, V>> entries;
+    final long chunk;
+    final BiConsumer<? super K, ? super V> action;
+
+    ForEachTask(Spliterator<Map.Entry<K, V>> entries, long chunk,
+        BiConsumer<? super K, ? super V> action) {
+      this.entries = entries;
+      this.chunk = chunk;
+      this.action = action;
+    } // ForEachTask(Spliterator<Map.Entry<K,V>>, long, BiConsumer)
+
+    @Override
+    protected void compute() {
+      ArrayList<ForEachTask> forked = new ArrayList<ForEachTask>();
+      Spliterator<Map.Entry<K, V>> prefix;
+      while (this.entries.estimateSize() > this.chunk
+          && (prefix = this.entries.trySplit()) != null) {
+        ForEachTask task = new ForEachTask(prefix, this.chunk, this.action);
+        task.fork();
+        forked.add(task);
+      } // while
+      this.entries.forEachRemaining((entry) -> this.action.accept(entry.getKey(),
+          entry.getValue()));
+      for (ForEachTask task : forked) {
+        task.join();
+      } // for
+    } // compute()
+  } // class ForEachTask
+
+} // class SkipList
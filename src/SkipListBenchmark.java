@@ -0,0 +1,530 @@
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Wall-clock benchmarks for SkipList. Where SkipList.main counts abstract steps, this measures
+ * throughput (ops/s), average time (ns/op) and allocation (bytes/op and MB/s, the numbers JMH
+ * reports with -prof gc) for set, get, containsKey, remove, removeIf (purging 30% of the
+ * entries in one pass, counted per entry visited), removeRange (dropping the middle third of
+ * the keys in one splice, counted per entry removed), merging in a second list of the same
+ * size (by set for each entry, by merge, or by mergeFrom; counted per entry merged in),
+ * floorKey, pollFirst (draining the list like a priority queue), keys() iteration, forEach, a
+ * mixed read/write workload, and sequential versus parallel streams over CPU-heavy per-entry
+ * work. The frozenGet, frozenContainsKey and frozenIterate benchmarks do the same work on
+ * list.freeze(), so they can be compared with get, containsKey and iterate on the live list.
+ *
+ * Every benchmark runs over each combination of map size, key distribution (sequential,
+ * uniformly random, or Zipfian) and, for the mixed workload, read percentage. Each combination
+ * gets warmup iterations that are thrown away, followed by measured iterations whose results
+ * are averaged.
+ *
+ * Usage: java SkipListBenchmark [option=value ...]
+ *
+ *   benchmarks=set,get,containsKey,remove,removeIf,removeRange,setMerge,merge,
+ *              mergeFrom,floorKey,pollFirst,iterate,forEach,mixed,stream,
+ *              parallelStream,frozenGet,frozenContainsKey,frozenIterate
+ *   sizes=500,10000,1000000,10000000
+ *   distributions=sequential,random,zipfian
+ *   reads=50,90,99           (percent reads for the mixed benchmark)
+ *   warmup=3 iterations=5
+ *
+ * Run with a large fixed heap (e.g., -Xms8g -Xmx8g) for the big sizes.
+ */
+public class SkipListBenchmark {
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    String[] benchmarks = {"set", "get", "containsKey", "remove", "removeIf", "removeRange",
+        "setMerge", "merge", "mergeFrom", "floorKey", "pollFirst", "iterate", "forEach",
+        "mixed", "stream", "parallelStream", "frozenGet", "frozenContainsKey",
+        "frozenIterate"};
+    int[] sizes = {500, 10000, 1000000};
+    String[] distributions = {"sequential", "random", "zipfian"};
+    int[] reads = {50, 90, 99};
+    int warmup = 3;
+    int iterations = 5;
+
+    for (String arg : args) {
+      String[] parts = arg.split("=", 2);
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("expected option=value, got " + arg);
+      } // if
+      switch (parts[0]) {
+        case "benchmarks":
+          benchmarks = parts[1].split(",");
+          break;
+        case "sizes":
+          sizes = parseInts(parts[1]);
+          break;
+        case "distributions":
+          distributions = parts[1].split(",");
+          break;
+        case "reads":
+          reads = parseInts(parts[1]);
+          break;
+        case "warmup":
+          warmup = Integer.parseInt(parts[1]);
+          break;
+        case "iterations":
+          iterations = Integer.parseInt(parts[1]);
+          break;
+        default:
+          throw new IllegalArgumentException("unknown option " + parts[0]);
+      } // switch
+    } // for
+
+    pen.printf("%-17s %10s %-11s %5s %14s %12s %10s %10s%n", "Benchmark", "Size", "Keys",
+        "Reads", "ops/s", "ns/op", "B/op", "MB/s");
+    for (String benchmark : benchmarks) {
+      for (int size : sizes) {
+        for (String distribution : distributions) {
+          int[] mixes = benchmark.equals("mixed") ? reads : new int[] {-1};
+          for (int percentReads : mixes) {
+            Result result = measure(new Workload(benchmark, size, distribution, percentReads),
+                warmup, iterations);
+            pen.printf("%-17s %10d %-11s %5s %14.0f %12.1f %10.1f %10.1f%n", benchmark, size,
+                distribution, (percentReads < 0) ? "-" : "" + percentReads, result.opsPerSecond(),
+                result.nanosPerOp(), result.bytesPerOp(), result.megabytesPerSecond());
+          } // for each read percentage
+        } // for each distribution
+      } // for each size
+    } // for each benchmark
+  } // main(String[])
+
+  // +---------------+-----------------------------------------------
+  // | Static Fields |
+  // +---------------+
+
+  /**
+   * Somewhere to put results so the JIT can't throw the work away.
+   */
+  static volatile long sink;
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Parse a comma-separated list of ints.
+   */
+  static int[] parseInts(String str) {
+    String[] parts = str.split(",");
+    int[] result = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      result[i] = Integer.parseInt(parts[i].trim());
+    } // for
+    return result;
+  } // parseInts(String)
+
+  /**
+   * Run a workload through its warmup and measured iterations.
+   */
+  static Result measure(Workload workload, int warmup, int iterations) {
+    for (int i = 0; i < warmup; i++) {
+      workload.setup();
+      workload.run();
+    } // for
+    Result result = new Result();
+    for (int i = 0; i < iterations; i++) {
+      workload.setup();
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      long ops = workload.run();
+      result.nanos += System.nanoTime() - start;
+      result.bytes += allocatedBytes() - bytes;
+      result.ops += ops;
+    } // for
+    return result;
+  } // measure(Workload, int, int)
+
+  /**
+   * Determine how many bytes the current thread has allocated so far, or 0 if the JVM can't
+   * tell us.
+   */
+  static long allocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    } // if
+    return 0;
+  } // allocatedBytes()
+
+  /**
+   * Generate count keys in [0, size) with the given distribution.
+   */
+  static int[] keys(String distribution, int size, int count, Random rand) {
+    int[] result = new int[count];
+    switch (distribution) {
+      case "sequential":
+        for (int i = 0; i < count; i++) {
+          result[i] = i % size;
+        } // for
+        break;
+      case "random":
+        for (int i = 0; i < count; i++) {
+          result[i] = rand.nextInt(size);
+        } // for
+        break;
+      case "zipfian":
+        Zipf zipf = new Zipf(size, 0.99, rand);
+        for (int i = 0; i < count; i++) {
+          // Scatter the popular ranks so they aren't all at the front of the list
+          result[i] = (int) (Integer.toUnsignedLong(zipf.next() * 0x9E3779B1) % size);
+        } // for
+        break;
+      default:
+        throw new IllegalArgumentException("unknown distribution " + distribution);
+    } // switch
+    return result;
+  } // keys(String, int, int, Random)
+
+  /**
+   * Some CPU-bound work on one entry, for the stream benchmarks (a few dozen rounds of
+   * xorshift, so that the work dominates the traversal).
+   */
+  static long work(int key) {
+    long x = key + 1;
+    for (int i = 0; i < 64; i++) {
+      x ^= x << 13;
+      x ^= x >>> 7;
+      x ^= x << 17;
+    } // for
+    return x;
+  } // work(int)
+
+  /**
+   * Shuffle an array in place.
+   */
+  static void shuffle(int[] values, Random rand) {
+    for (int i = values.length - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = values[i];
+      values[i] = values[j];
+      values[j] = temp;
+    } // for
+  } // shuffle(int[], Random)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Accumulated measurements for one workload.
+   */
+  static class Result {
+    long ops;
+    long nanos;
+    long bytes;
+
+    double opsPerSecond() {
+      return this.ops * 1e9 / this.nanos;
+    } // opsPerSecond()
+
+    double nanosPerOp() {
+      return this.nanos / (double) this.ops;
+    } // nanosPerOp()
+
+    double bytesPerOp() {
+      return this.bytes / (double) this.ops;
+    } // bytesPerOp()
+
+    double megabytesPerSecond() {
+      return (this.bytes / (1024.0 * 1024.0)) / (this.nanos / 1e9);
+    } // megabytesPerSecond()
+  } // class Result
+
+  /**
+   * One benchmark at one size, distribution, and read mix. setup() does the untimed
+   * preparation for an iteration and run() does the timed work.
+   */
+  static class Workload {
+    /**
+     * The number of operations per iteration for the lookup and mixed benchmarks.
+     */
+    static final int OPS = 1000000;
+
+    final String benchmark;
+    final int size;
+    final String distribution;
+    final int percentReads;
+    final Random rand = new Random(42);
+
+    /**
+     * The list for the current iteration.
+     */
+    SkipList<Integer, String> list;
+
+    /**
+     * The list to merge into list, for the merge benchmarks.
+     */
+    SkipList<Integer, String> delta;
+
+    /**
+     * The frozen copy of list, for the frozen benchmarks.
+     */
+    FrozenSkipList<Integer, String> frozen;
+
+    /**
+     * Boxed keys, preallocated so that we measure the list rather than Integer.valueOf.
+     */
+    Integer[] boxed;
+
+    /**
+     * The keys to use in the current iteration.
+     */
+    int[] keys;
+
+    /**
+     * For the mixed workload: which operations are reads.
+     */
+    boolean[] isRead;
+
+    Workload(String benchmark, int size, String distribution, int percentReads) {
+      this.benchmark = benchmark;
+      this.size = size;
+      this.distribution = distribution;
+      this.percentReads = percentReads;
+      this.boxed = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        this.boxed[i] = i;
+      } // for
+    } // Workload(String, int, String, int)
+
+    /**
+     * Build a list holding every key in [0, size).
+     */
+    SkipList<Integer, String> fill() {
+      SkipList<Integer, String> result = new SkipList<Integer, String>((i, j) -> i - j);
+      int[] order = keys("sequential", this.size, this.size, this.rand);
+      shuffle(order, this.rand);
+      for (int key : order) {
+        result.set(this.boxed[key], "");
+      } // for
+      return result;
+    } // fill()
+
+    /**
+     * Determine how many full walks make an iteration of the traversal benchmarks, so that
+     * small lists still run long enough to time.
+     */
+    int passes() {
+      return Math.max(1, OPS / this.size);
+    } // passes()
+
+    void setup() {
+      switch (this.benchmark) {
+        case "set":
+          this.list = new SkipList<Integer, String>((i, j) -> i - j);
+          this.keys = keys(this.distribution, this.size, this.size, this.rand);
+          if (this.distribution.equals("random")) {
+            // A permutation, so every set is an insert
+            this.keys = keys("sequential", this.size, this.size, this.rand);
+            shuffle(this.keys, this.rand);
+          } // if
+          break;
+        case "remove":
+        case "removeIf":
+        case "removeRange":
+        case "pollFirst":
+          this.list = this.fill();
+          this.keys = keys(this.distribution, this.size, this.size, this.rand);
+          break;
+        case "setMerge":
+        case "merge":
+        case "mergeFrom":
+          this.list = this.fill();
+          this.delta = new SkipList<Integer, String>((i, j) -> i - j);
+          for (int key : keys(this.distribution, this.size, this.size, this.rand)) {
+            this.delta.set(this.boxed[key], "delta");
+          } // for
+          break;
+        case "mixed":
+          if (this.list == null) {
+            this.list = this.fill();
+          } // if
+          this.keys = keys(this.distribution, this.size, OPS, this.rand);
+          this.isRead = new boolean[OPS];
+          for (int i = 0; i < OPS; i++) {
+            this.isRead[i] = this.rand.nextInt(100) < this.percentReads;
+          } // for
+          break;
+        default:
+          if (this.list == null) {
+            this.list = this.fill();
+            this.frozen = this.list.freeze();
+          } // if
+          this.keys = keys(this.distribution, this.size, OPS, this.rand);
+          break;
+      } // switch
+    } // setup()
+
+    /**
+     * Do one iteration of the work.
+     *
+     * @return the number of operations performed
+     */
+    long run() {
+      long acc = 0;
+      SkipList<Integer, String> list = this.list;
+      FrozenSkipList<Integer, String> frozen = this.frozen;
+      switch (this.benchmark) {
+        case "set":
+          for (int key : this.keys) {
+            list.set(this.boxed[key], "");
+          } // for
+          return this.keys.length;
+        case "get":
+          for (int key : this.keys) {
+            acc += list.get(this.boxed[key]).length();
+          } // for
+          break;
+        case "containsKey":
+          for (int key : this.keys) {
+            acc += list.containsKey(this.boxed[key]) ? 1 : 0;
+          } // for
+          break;
+        case "floorKey":
+          for (int key : this.keys) {
+            acc += list.floorKey(this.boxed[key]);
+          } // for
+          break;
+        case "frozenGet":
+          for (int key : this.keys) {
+            acc += frozen.get(this.boxed[key]).length();
+          } // for
+          break;
+        case "frozenContainsKey":
+          for (int key : this.keys) {
+            acc += frozen.containsKey(this.boxed[key]) ? 1 : 0;
+          } // for
+          break;
+        case "remove":
+          for (int key : this.keys) {
+            acc += (list.remove(this.boxed[key]) == null) ? 0 : 1;
+          } // for
+          break;
+        case "removeIf":
+          acc += list.removeIf((key, value) -> key % 10 < 3);
+          sink = acc;
+          return this.size;
+        case "removeRange":
+          acc += list.removeRange(this.boxed[this.size / 3], this.boxed[2 * this.size / 3]);
+          sink = acc;
+          return acc;
+        case "setMerge":
+          this.delta.forEach(list::set);
+          return this.delta.size();
+        case "merge":
+          sink = list.merge(this.delta, (a, b) -> b).size();
+          return this.delta.size();
+        case "mergeFrom":
+          acc += list.mergeFrom(this.delta, (a, b) -> b);
+          sink = acc;
+          return this.delta.size();
+        case "pollFirst":
+          for (Map.Entry<Integer, String> entry = list.pollFirst(); entry != null;
+              entry = list.pollFirst()) {
+            acc += entry.getKey();
+          } // for
+          sink = acc;
+          return this.size;
+        case "iterate":
+          for (int pass = 0; pass < this.passes(); pass++) {
+            for (Iterator<Integer> it = list.keys(); it.hasNext();) {
+              acc += it.next();
+            } // for
+          } // for
+          sink = acc;
+          return (long) this.passes() * list.size();
+        case "frozenIterate":
+          for (int pass = 0; pass < this.passes(); pass++) {
+            for (Iterator<Integer> it = frozen.keys(); it.hasNext();) {
+              acc += it.next();
+            } // for
+          } // for
+          sink = acc;
+          return (long) this.passes() * frozen.size();
+        case "forEach":
+          long[] sum = new long[1];
+          for (int pass = 0; pass < this.passes(); pass++) {
+            list.forEach((key, value) -> sum[0] += key);
+          } // for
+          sink = sum[0];
+          return (long) this.passes() * list.size();
+        case "stream":
+        case "parallelStream":
+          for (int pass = 0; pass < this.passes(); pass++) {
+            acc += (this.benchmark.equals("stream") ? list.stream() : list.parallelStream())
+                .mapToLong((entry) -> work(entry.getKey())).sum();
+          } // for
+          sink = acc;
+          return (long) this.passes() * list.size();
+        case "mixed":
+          for (int i = 0; i < this.keys.length; i++) {
+            Integer key = this.boxed[this.keys[i]];
+            if (this.isRead[i]) {
+              acc += list.containsKey(key) ? 1 : 0;
+            } else if ((i & 1) == 0) {
+              list.set(key, "");
+            } else {
+              list.remove(key);
+            } // if/else
+          } // for
+          break;
+        default:
+          throw new IllegalArgumentException("unknown benchmark " + this.benchmark);
+      } // switch
+      sink = acc;
+      return this.keys.length;
+    } // run()
+  } // class Workload
+
+  /**
+   * Zipf-distributed ranks in [0, n), using the method from Gray et al., "Quickly Generating
+   * Billion-Record Synthetic Databases".
+   */
+  static class Zipf {
+    final int n;
+    final double theta;
+    final double alpha;
+    final double zetan;
+    final double eta;
+    final Random rand;
+
+    Zipf(int n, double theta, Random rand) {
+      this.n = n;
+      this.theta = theta;
+      this.rand = rand;
+      this.zetan = zeta(n, theta);
+      this.alpha = 1.0 / (1.0 - theta);
+      this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / this.zetan);
+    } // Zipf(int, double, Random)
+
+    static double zeta(int n, double theta) {
+      double sum = 0;
+      for (int i = 1; i <= n; i++) {
+        sum += 1 / Math.pow(i, theta);
+      } // for
+      return sum;
+    } // zeta(int, double)
+
+    int next() {
+      double u = this.rand.nextDouble();
+      double uz = u * this.zetan;
+      if (uz < 1.0) {
+        return 0;
+      } else if (uz < 1.0 + Math.pow(0.5, this.theta)) {
+        return Math.min(1, this.n - 1);
+      } // if/else
+      int rank = (int) (this.n * Math.pow(this.eta * u - this.eta + 1, this.alpha));
+      return Math.min(rank, this.n - 1);
+    } // next()
+  } // class Zipf
+} // class SkipListBenchmark
@@ -0,0 +1,113 @@
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Report how many bytes of heap each SkipList entry costs, and how much of that is the tower.
+ *
+ * Measures the heap retained by a list of n entries, then measures the two tower layouts on
+ * their own, with the same heights as the list's nodes: the right-sized SLNode[] that nodes use
+ * now and the ArrayList<SLNode> they used to use. The difference between the two is what each
+ * entry would cost on top of the current layout with the old one.
+ *
+ * Usage: java SkipListFootprint [entries]
+ *
+ * Run with a fixed heap (e.g., -Xms2g -Xmx2g) for stable numbers.
+ */
+public class SkipListFootprint {
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+
+    // Keys are preallocated so that we only measure the list
+    Integer[] keys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = i;
+    } // for
+    String value = "";
+
+    long before = usedHeap();
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < n; i++) {
+      list.set(keys[i], value);
+    } // for
+    long after = usedHeap();
+    double perEntry = (after - before) / (double) n;
+
+    // Record the heights so we can rebuild just the towers
+    int[] heights = new int[n];
+    int pos = 0;
+    for (Iterator<SLNode<Integer, String>> it = list.nodes(); it.hasNext();) {
+      heights[pos++] = it.next().next.length;
+    } // for
+    double arrayTower = towerBytes(heights, false);
+    double listTower = towerBytes(heights, true);
+
+    pen.println("Entries: " + n);
+    pen.printf("Bytes per entry (array towers, measured):      %8.1f%n", perEntry);
+    pen.printf("Bytes per entry (ArrayList towers, estimated): %8.1f%n",
+        perEntry - arrayTower + listTower);
+    pen.println();
+    pen.printf("  SLNode[] tower alone:          %8.1f bytes/entry%n", arrayTower);
+    pen.printf("  ArrayList<SLNode> tower alone: %8.1f bytes/entry%n", listTower);
+    pen.printf("  Saved per entry:               %8.1f bytes (%.0f%%)%n", listTower - arrayTower,
+        100.0 * (listTower - arrayTower) / (perEntry - arrayTower + listTower));
+
+    // Keep everything reachable until we're done measuring
+    if (list.size() != n || keys.length != n) {
+      throw new IllegalStateException();
+    } // if
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Measure the heap cost of one tower per height, in bytes per tower.
+   *
+   * @param asList true for the old ArrayList layout, false for right-sized arrays
+   */
+  static double towerBytes(int[] heights, boolean asList) {
+    Object[] towers = new Object[heights.length];
+    long before = usedHeap();
+    for (int i = 0; i < heights.length; i++) {
+      if (asList) {
+        ArrayList<Object> tower = new ArrayList<Object>(heights[i]);
+        for (int lvl = 0; lvl < heights[i]; lvl++) {
+          tower.add(null);
+        } // for
+        towers[i] = tower;
+      } else {
+        towers[i] = new Object[heights[i]];
+      } // if/else
+    } // for
+    long after = usedHeap();
+    if (towers[towers.length - 1] == null) {
+      throw new IllegalStateException();
+    } // if (keeps towers reachable)
+    return (after - before) / (double) heights.length;
+  } // towerBytes(int[], boolean)
+
+  /**
+   * Get the amount of heap in use, after doing our best to get rid of garbage.
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } // try/catch
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    } // for
+    return used;
+  } // usedHeap()
+} // class SkipListFootprint
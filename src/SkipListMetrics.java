@@ -0,0 +1,245 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation for SkipList. After each set, get, containsKey or remove, the list reports
+ * whether the key was there and how long the search path was: the steps it took along levels,
+ * the levels it went through, and the comparator calls it made.
+ *
+ * The default, NONE, ignores everything. SkipList counts into local variables and makes one
+ * record call per operation, so when NONE is the only implementation in use the JIT inlines
+ * the empty call and then drops the counting as dead code. striped() collects into LongAdders,
+ * which many threads can update without contending.
+ */
+public interface SkipListMetrics {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The operations we instrument.
+   */
+  public enum Op {
+    SET, GET, CONTAINS_KEY, REMOVE
+  } // enum Op
+
+  /**
+   * The number of buckets in a path-length histogram. Bucket 0 counts paths of length 0, and
+   * bucket b counts lengths in [2^(b-1), 2^b).
+   */
+  public static final int BUCKETS = 33;
+
+  /**
+   * Metrics that record nothing.
+   */
+  public static final SkipListMetrics NONE = new SkipListMetrics() {
+    @Override
+    public void record(Op op, boolean hit, int steps, int levels, int comparisons) {
+    } // record(Op, boolean, int, int, int)
+
+    @Override
+    public Snapshot snapshot() {
+      return new Snapshot(new long[Op.values().length][Snapshot.FIELDS],
+          new long[Op.values().length][BUCKETS]);
+    } // snapshot()
+  }; // NONE
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Record one operation.
+   *
+   * @param hit whether the key was in the list
+   * @param steps how many links the search followed along levels
+   * @param levels how many levels the search went through
+   * @param comparisons how many times the search called the comparator
+   */
+  public void record(Op op, boolean hit, int steps, int levels, int comparisons);
+
+  /**
+   * Get the totals so far.
+   */
+  public Snapshot snapshot();
+
+  /**
+   * Make metrics that collect into LongAdders.
+   */
+  public static SkipListMetrics striped() {
+    return new Striped();
+  } // striped()
+
+  /**
+   * Find the histogram bucket for a path length.
+   */
+  static int bucket(int pathLength) {
+    return 32 - Integer.numberOfLeadingZeros(pathLength);
+  } // bucket(int)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Metrics kept in LongAdders, one set per operation.
+   */
+  public static class Striped implements SkipListMetrics {
+    /**
+     * The counters for each operation, indexed like Snapshot's fields.
+     */
+    final LongAdder[][] counters;
+
+    /**
+     * The path-length histogram for each operation.
+     */
+    final LongAdder[][] histograms;
+
+    Striped() {
+      int ops = Op.values().length;
+      this.counters = new LongAdder[ops][Snapshot.FIELDS];
+      this.histograms = new LongAdder[ops][BUCKETS];
+      for (int op = 0; op < ops; op++) {
+        for (int i = 0; i < Snapshot.FIELDS; i++) {
+          this.counters[op][i] = new LongAdder();
+        } // for
+        for (int i = 0; i < BUCKETS; i++) {
+          this.histograms[op][i] = new LongAdder();
+        } // for
+      } // for
+    } // Striped()
+
+    @Override
+    public void record(Op op, boolean hit, int steps, int levels, int comparisons) {
+      LongAdder[] counters = this.counters[op.ordinal()];
+      counters[hit ? Snapshot.HITS : Snapshot.MISSES].increment();
+      counters[Snapshot.STEPS].add(steps);
+      counters[Snapshot.LEVELS].add(levels);
+      counters[Snapshot.COMPARISONS].add(comparisons);
+      this.histograms[op.ordinal()][bucket(steps + levels)].increment();
+    } // record(Op, boolean, int, int, int)
+
+    /**
+     * Get the totals so far. Each counter is read separately, so a snapshot taken while
+     * operations are running may be slightly inconsistent (a hit counted but not yet its
+     * steps, say).
+     */
+    @Override
+    public Snapshot snapshot() {
+      int ops = Op.values().length;
+      long[][] counts = new long[ops][Snapshot.FIELDS];
+      long[][] histograms = new long[ops][BUCKETS];
+      for (int op = 0; op < ops; op++) {
+        for (int i = 0; i < Snapshot.FIELDS; i++) {
+          counts[op][i] = this.counters[op][i].sum();
+        } // for
+        for (int i = 0; i < BUCKETS; i++) {
+          histograms[op][i] = this.histograms[op][i].sum();
+        } // for
+      } // for
+      return new Snapshot(counts, histograms);
+    } // snapshot()
+  } // class Striped
+
+  /**
+   * The totals at some point in time. Immutable.
+   */
+  public static class Snapshot {
+    /**
+     * Indices into counts.
+     */
+    static final int HITS = 0;
+    static final int MISSES = 1;
+    static final int STEPS = 2;
+    static final int LEVELS = 3;
+    static final int COMPARISONS = 4;
+    static final int FIELDS = 5;
+
+    /**
+     * The counters for each operation.
+     */
+    final long[][] counts;
+
+    /**
+     * The path-length histogram for each operation.
+     */
+    final long[][] histograms;
+
+    Snapshot(long[][] counts, long[][] histograms) {
+      this.counts = counts;
+      this.histograms = histograms;
+    } // Snapshot(long[][], long[][])
+
+    /**
+     * Get the number of times op ran.
+     */
+    public long operations(Op op) {
+      return this.hits(op) + this.misses(op);
+    } // operations(Op)
+
+    /**
+     * Get the number of times op found its key.
+     */
+    public long hits(Op op) {
+      return this.counts[op.ordinal()][HITS];
+    } // hits(Op)
+
+    /**
+     * Get the number of times op didn't find its key.
+     */
+    public long misses(Op op) {
+      return this.counts[op.ordinal()][MISSES];
+    } // misses(Op)
+
+    /**
+     * Get the total number of links followed along levels by op.
+     */
+    public long steps(Op op) {
+      return this.counts[op.ordinal()][STEPS];
+    } // steps(Op)
+
+    /**
+     * Get the total number of levels op went through.
+     */
+    public long levels(Op op) {
+      return this.counts[op.ordinal()][LEVELS];
+    } // levels(Op)
+
+    /**
+     * Get the total number of comparator calls made by op.
+     */
+    public long comparisons(Op op) {
+      return this.counts[op.ordinal()][COMPARISONS];
+    } // comparisons(Op)
+
+    /**
+     * Get the average search-path length (steps plus levels) of op, or 0 if it never ran.
+     */
+    public double meanPathLength(Op op) {
+      long n = this.operations(op);
+      return (n == 0) ? 0 : (double) (this.steps(op) + this.levels(op)) / n;
+    } // meanPathLength(Op)
+
+    /**
+     * Get the path-length histogram for op. Element 0 counts paths of length 0, and element b
+     * counts lengths in [2^(b-1), 2^b).
+     */
+    public long[] pathLengths(Op op) {
+      return this.histograms[op.ordinal()].clone();
+    } // pathLengths(Op)
+
+    /**
+     * Summarize, one line per operation.
+     */
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder();
+      for (Op op : Op.values()) {
+        result.append(String.format("%-12s ops=%d hits=%d misses=%d steps=%d levels=%d "
+            + "comparisons=%d meanPath=%.1f%n", op, this.operations(op), this.hits(op),
+            this.misses(op), this.steps(op), this.levels(op), this.comparisons(op),
+            this.meanPathLength(op)));
+      } // for
+      return result.toString();
+    } // toString()
+  } // class Snapshot
+} // interface SkipListMetrics
@@ -0,0 +1,450 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary snapshots of skip lists, for backups and fast restarts.
+ *
+ * Format: a header (long MAGIC, int VERSION, int flags, long entry count), then a series of
+ * blocks, then an empty block (raw length 0) to mark the end. Each block is int raw length,
+ * int stored length, int CRC32C of the stored bytes, and the stored bytes. When the snapshot
+ * is compressed, blocks are deflated, unless that wouldn't make them smaller, in which case
+ * the stored length equals the raw length and the block is kept as is. The raw bytes of a
+ * block are a sequence of entries, each int key size, key bytes, int value size (-1 for null)
+ * and value bytes.
+ *
+ * The checksum covers what's on disk rather than the raw bytes, since damage to a deflated
+ * block can leave it inflating to the same bytes (in a long run of one byte, for example,
+ * many back-reference distances decode alike).
+ *
+ * Writing is a single pass over level 0 of the list. The block, compression, and output
+ * buffers are allocated once and reused, so apart from whatever the serializers allocate,
+ * there's no per-entry garbage. Reading streams the entries, in order, straight into
+ * SkipList.loadSorted, so a restore costs one linear pass with no searching.
+ */
+public class SkipListSnapshot {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The first eight bytes of every snapshot ("SLSNAPSH").
+   */
+  static final long MAGIC = 0x534C534E41505348L;
+
+  /**
+   * The version of the format.
+   */
+  static final int VERSION = 1;
+
+  /**
+   * The flag for compressed blocks.
+   */
+  static final int COMPRESSED = 1;
+
+  /**
+   * The size of the snapshot header.
+   */
+  static final int HEADER_SIZE = 24;
+
+  /**
+   * The size of a block header.
+   */
+  static final int BLOCK_HEADER = 12;
+
+  /**
+   * How many bytes of entries we aim to put in each block.
+   */
+  static final int BLOCK_SIZE = 1 << 16;
+
+  // +---------+-----------------------------------------------------
+  // | Writing |
+  // +---------+
+
+  /**
+   * Write a snapshot of list to out.
+   *
+   * @throws IOException if out can't be written.
+   */
+  public static <K, V> void write(SkipList<K, V> list, WritableByteChannel out,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer, boolean compress)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putLong(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(compress ? COMPRESSED : 0);
+    header.putLong(list.size());
+    writeFully(out, header.flip());
+
+    BlockWriter writer = new BlockWriter(out, compress);
+    for (Iterator<SLNode<K, V>> nodes = list.nodes(); nodes.hasNext();) {
+      SLNode<K, V> node = nodes.next();
+      int keySize = keySerializer.size(node.key);
+      int valueSize = (node.value == null) ? -1 : valueSerializer.size(node.value);
+      ByteBuffer block = writer.reserve(8 + keySize + Math.max(valueSize, 0));
+      block.putInt(keySize);
+      keySerializer.write(node.key, block);
+      block.putInt(valueSize);
+      if (node.value != null) {
+        valueSerializer.write(node.value, block);
+      } // if
+    } // for
+    writer.finish();
+  } // write(SkipList<K,V>, WritableByteChannel, Serializer<K>, Serializer<V>, boolean)
+
+  // +---------+-----------------------------------------------------
+  // | Reading |
+  // +---------+
+
+  /**
+   * Read a snapshot from in into a new list.
+   *
+   * @throws IOException if in can't be read or doesn't hold a valid snapshot.
+   */
+  public static <K, V> SkipList<K, V> read(ReadableByteChannel in, Comparator<K> comparator,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+    SkipList<K, V> result = new SkipList<K, V>(comparator);
+    read(in, result, keySerializer, valueSerializer);
+    return result;
+  } // read(ReadableByteChannel, Comparator<K>, Serializer<K>, Serializer<V>)
+
+  /**
+   * Read a snapshot from in into list, which must be empty (e.g., a fresh list of some
+   * subclass of SkipList). Reads up to the end marker, and no further.
+   *
+   * @throws IOException if in can't be read or doesn't hold a valid snapshot, in which case
+   *   the list is left empty.
+   * @throws IllegalStateException if the list is not empty.
+   */
+  public static <K, V> void read(ReadableByteChannel in, SkipList<K, V> list,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(in, header);
+    header.flip();
+    if (header.getLong() != MAGIC) {
+      throw new IOException("not a skip list snapshot");
+    } // if
+    int version = header.getInt();
+    if (version != VERSION) {
+      throw new IOException("unsupported snapshot version " + version);
+    } // if
+    int flags = header.getInt();
+    long count = header.getLong();
+
+    EntryReader<K, V> entries = new EntryReader<K, V>(new BlockReader(in,
+        (flags & COMPRESSED) != 0), keySerializer, valueSerializer, count);
+    try {
+      list.loadSorted(entries, true);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (IllegalArgumentException | NullPointerException e) {
+      throw new IOException("snapshot entries are not in order", e);
+    } // try/catch
+  } // read(ReadableByteChannel, SkipList<K,V>, Serializer<K>, Serializer<V>)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Write all of buffer.
+   */
+  static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    } // while
+  } // writeFully(WritableByteChannel, ByteBuffer)
+
+  /**
+   * Fill buffer.
+   *
+   * @throws EOFException if in ends first.
+   */
+  static void readFully(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (in.read(buffer) < 0) {
+        throw new EOFException("snapshot is truncated");
+      } // if
+    } // while
+  } // readFully(ReadableByteChannel, ByteBuffer)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Collects entries into blocks and writes them out.
+   */
+  static class BlockWriter {
+    final WritableByteChannel out;
+    final Deflater deflater;
+    final CRC32C crc = new CRC32C();
+
+    /**
+     * The entries in the current block.
+     */
+    ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+    /**
+     * The block header and stored bytes, as written.
+     */
+    ByteBuffer stored = ByteBuffer.allocate(BLOCK_HEADER + BLOCK_SIZE);
+
+    BlockWriter(WritableByteChannel out, boolean compress) {
+      this.out = out;
+      this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+    } // BlockWriter(WritableByteChannel, boolean)
+
+    /**
+     * Make room for an entry of the given size, writing out the current block if it's full.
+     *
+     * @return the block to put the entry in
+     */
+    ByteBuffer reserve(int bytes) throws IOException {
+      if (this.block.remaining() < bytes) {
+        if (this.block.position() > 0) {
+          this.flush();
+        } // if
+        if (this.block.capacity() < bytes) {
+          this.block = ByteBuffer.allocate(bytes);
+        } // if the entry is bigger than a block
+      } // if
+      return this.block;
+    } // reserve(int)
+
+    /**
+     * Write out the current block.
+     */
+    void flush() throws IOException {
+      int raw = this.block.position();
+      if (this.stored.capacity() < BLOCK_HEADER + raw) {
+        this.stored = ByteBuffer.allocate(BLOCK_HEADER + raw);
+      } // if
+      int storedLength = raw;
+      if (this.deflater != null && raw > 0) {
+        this.deflater.reset();
+        this.deflater.setInput(this.block.array(), 0, raw);
+        this.deflater.finish();
+        int deflated = this.deflater.deflate(this.stored.array(), BLOCK_HEADER, raw);
+        if (this.deflater.finished() && deflated < raw) {
+          storedLength = deflated;
+        } // if compression helped
+      } // if
+      if (storedLength == raw) {
+        System.arraycopy(this.block.array(), 0, this.stored.array(), BLOCK_HEADER, raw);
+      } // if we're storing the raw bytes
+      this.crc.reset();
+      this.crc.update(this.stored.array(), BLOCK_HEADER, storedLength);
+      this.stored.clear();
+      this.stored.putInt(raw);
+      this.stored.putInt(storedLength);
+      this.stored.putInt((int) this.crc.getValue());
+      this.stored.limit(BLOCK_HEADER + storedLength);
+      this.stored.position(0);
+      writeFully(this.out, this.stored);
+      this.block.clear();
+    } // flush()
+
+    /**
+     * Write out the last block and the end marker.
+     */
+    void finish() throws IOException {
+      if (this.block.position() > 0) {
+        this.flush();
+      } // if
+      this.flush();
+      if (this.deflater != null) {
+        this.deflater.end();
+      } // if
+    } // finish()
+  } // class BlockWriter
+
+  /**
+   * Reads blocks back in.
+   */
+  static class BlockReader {
+    final ReadableByteChannel in;
+    final Inflater inflater;
+    final CRC32C crc = new CRC32C();
+    final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER);
+
+    /**
+     * The raw bytes of the current block.
+     */
+    ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+    /**
+     * The stored bytes of the current block, when it's compressed.
+     */
+    ByteBuffer stored = ByteBuffer.allocate(BLOCK_SIZE);
+
+    BlockReader(ReadableByteChannel in, boolean compressed) {
+      this.in = in;
+      this.inflater = compressed ? new Inflater() : null;
+    } // BlockReader(ReadableByteChannel, boolean)
+
+    /**
+     * Read the next block.
+     *
+     * @return the block's raw bytes, or null at the end marker
+     */
+    ByteBuffer next() throws IOException {
+      this.header.clear();
+      readFully(this.in, this.header);
+      int raw = this.header.getInt(0);
+      int storedLength = this.header.getInt(4);
+      int checksum = this.header.getInt(8);
+      if (raw == 0) {
+        if (storedLength != 0 || checksum != 0) {
+          throw new IOException("snapshot end marker is corrupt");
+        } // if
+        if (this.inflater != null) {
+          this.inflater.end();
+        } // if
+        return null;
+      } // if
+      if (raw < 0 || storedLength <= 0 || storedLength > raw) {
+        throw new IOException("snapshot block header is corrupt");
+      } // if
+      if (this.block.capacity() < raw) {
+        this.block = ByteBuffer.allocate(raw);
+      } // if
+      this.block.clear().limit(raw);
+      if (storedLength == raw) {
+        readFully(this.in, this.block);
+        this.verify(this.block.array(), raw, checksum);
+      } else {
+        if (this.inflater == null) {
+          throw new IOException("compressed block in an uncompressed snapshot");
+        } // if
+        if (this.stored.capacity() < storedLength) {
+          this.stored = ByteBuffer.allocate(storedLength);
+        } // if
+        this.stored.clear().limit(storedLength);
+        readFully(this.in, this.stored);
+        this.verify(this.stored.array(), storedLength, checksum);
+        this.inflater.reset();
+        this.inflater.setInput(this.stored.array(), 0, storedLength);
+        try {
+          // The stored bytes must inflate to exactly raw bytes, not merely start with them
+          if (this.inflater.inflate(this.block.array(), 0, raw) != raw
+              || !this.inflater.finished() || this.inflater.getRemaining() != 0) {
+            throw new IOException("snapshot block is corrupt");
+          } // if
+        } catch (DataFormatException e) {
+          throw new IOException("snapshot block is corrupt", e);
+        } // try/catch
+      } // if/else
+      this.block.position(0);
+      return this.block;
+    } // next()
+
+    /**
+     * Check the first length bytes of bytes against a checksum.
+     *
+     * @throws IOException if they don't match.
+     */
+    void verify(byte[] bytes, int length, int checksum) throws IOException {
+      this.crc.reset();
+      this.crc.update(bytes, 0, length);
+      if ((int) this.crc.getValue() != checksum) {
+        throw new IOException("snapshot block is corrupt (bad checksum)");
+      } // if
+    } // verify(byte[], int, int)
+  } // class BlockReader
+
+  /**
+   * The entries of a snapshot, for loadSorted. To avoid allocating per entry, next returns the
+   * same entry object every time, which is fine for loadSorted since it copies the key and
+   * value out before asking for the next entry. Read errors are thrown as
+   * UncheckedIOExceptions.
+   */
+  static class EntryReader<K, V> implements Iterator<Map.Entry<K, V>>, Map.Entry<K, V> {
+    final BlockReader blocks;
+    final Serializer<K> keySerializer;
+    final Serializer<V> valueSerializer;
+
+    /**
+     * The current block, or null once we've seen the end marker.
+     */
+    ByteBuffer block;
+
+    /**
+     * The number of entries the header says are still to come.
+     */
+    long remaining;
+
+    /**
+     * The current entry.
+     */
+    K key;
+    V value;
+
+    EntryReader(BlockReader blocks, Serializer<K> keySerializer,
+        Serializer<V> valueSerializer, long count) {
+      this.blocks = blocks;
+      this.keySerializer = keySerializer;
+      this.valueSerializer = valueSerializer;
+      this.block = ByteBuffer.allocate(0);
+      this.remaining = count;
+    } // EntryReader(BlockReader, Serializer<K>, Serializer<V>, long)
+
+    @Override
+    public boolean hasNext() {
+      try {
+        while (this.block != null && !this.block.hasRemaining()) {
+          this.block = this.blocks.next();
+        } // while
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } // try/catch
+      if ((this.block == null) != (this.remaining == 0)) {
+        throw new UncheckedIOException(new IOException("snapshot entry count is wrong"));
+      } // if
+      return this.block != null;
+    } // hasNext()
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      } // if
+      try {
+        int keySize = this.block.getInt();
+        this.key = this.keySerializer.read(this.block, keySize);
+        int valueSize = this.block.getInt();
+        this.value = (valueSize < 0) ? null : this.valueSerializer.read(this.block, valueSize);
+        this.remaining--;
+      } catch (RuntimeException e) {
+        throw new UncheckedIOException(new IOException("snapshot entry is corrupt", e));
+      } // try/catch
+      return this;
+    } // next()
+
+    @Override
+    public K getKey() {
+      return this.key;
+    } // getKey()
+
+    @Override
+    public V getValue() {
+      return this.value;
+    } // getValue()
+
+    @Override
+    public V setValue(V value) {
+      throw new UnsupportedOperationException();
+    } // setValue(V)
+  } // class EntryReader<K,V>
+} // class SkipListSnapshot
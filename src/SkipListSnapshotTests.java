@@ -0,0 +1,126 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of binary snapshots.
+ */
+public class SkipListSnapshotTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make a snapshot of a list.
+   */
+  static byte[] snapshot(SkipList<Integer, String> list, boolean compress) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    SkipListSnapshot.write(list, Channels.newChannel(bytes), Serializer.INTEGER,
+        Serializer.STRING, compress);
+    return bytes.toByteArray();
+  } // snapshot(SkipList<Integer,String>, boolean)
+
+  /**
+   * Restore a list from a snapshot.
+   */
+  static SkipList<Integer, String> restore(byte[] snapshot) throws IOException {
+    return SkipListSnapshot.read(Channels.newChannel(new ByteArrayInputStream(snapshot)),
+        (i, j) -> i - j, Serializer.INTEGER, Serializer.STRING);
+  } // restore(byte[])
+
+  /**
+   * Make a list with a mix of short, long, and null values, spanning several blocks.
+   */
+  SkipList<Integer, String> sample() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 20000; i++) {
+      int key = random.nextInt(100000);
+      int kind = random.nextInt(1000);
+      list.set(key, (kind == 0) ? null
+          : (kind == 1) ? "x".repeat(SkipListSnapshot.BLOCK_SIZE + random.nextInt(100))
+          : "value " + key);
+    } // for
+    return list;
+  } // sample()
+
+  /**
+   * Make sure two lists hold the same entries, in the same order.
+   */
+  static void assertSameEntries(SkipList<Integer, String> expected,
+      SkipList<Integer, String> actual) {
+    assertEquals(expected.size(), actual.size());
+    Iterator<Integer> actualKeys = actual.keys();
+    for (Iterator<Integer> keys = expected.keys(); keys.hasNext();) {
+      Integer key = keys.next();
+      assertEquals(key, actualKeys.next());
+      assertEquals(expected.get(key), actual.get(key));
+    } // for
+    assertFalse(actualKeys.hasNext());
+  } // assertSameEntries(SkipList<Integer,String>, SkipList<Integer,String>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Snapshots should round-trip, with and without compression, and compression should help
+   * on repetitive data.
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    SkipList<Integer, String> list = sample();
+    byte[] plain = snapshot(list, false);
+    byte[] compressed = snapshot(list, true);
+    assertTrue(compressed.length < plain.length);
+    assertSameEntries(list, restore(plain));
+    assertSameEntries(list, restore(compressed));
+    assertEquals(0, restore(snapshot(new SkipList<Integer, String>((i, j) -> i - j), true))
+        .size());
+  } // testRoundTrip()
+
+  /**
+   * Damaged or truncated snapshots should be refused, leaving the target list empty.
+   */
+  @Test
+  public void testDamage() throws IOException {
+    SkipList<Integer, String> list = sample();
+    for (boolean compress : new boolean[] { false, true }) {
+      byte[] good = snapshot(list, compress);
+
+      byte[] flipped = good.clone();
+      flipped[good.length / 2] ^= 0x10;
+      SkipList<Integer, String> target = new SkipList<Integer, String>((i, j) -> i - j);
+      try {
+        SkipListSnapshot.read(Channels.newChannel(new ByteArrayInputStream(flipped)), target,
+            Serializer.INTEGER, Serializer.STRING);
+        fail("a damaged snapshot should be refused");
+      } catch (IOException e) {
+        assertEquals(0, target.size());
+      } // try/catch
+
+      byte[] truncated = Arrays.copyOf(good, good.length - 5);
+      try {
+        restore(truncated);
+        fail("a truncated snapshot should be refused");
+      } catch (IOException e) {
+        // Expected
+      } // try/catch
+    } // for
+  } // testDamage()
+} // class SkipListSnapshotTests
@@ -1,7 +1,15 @@
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.AbstractMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import org.junit.jupiter.api.BeforeEach;
@@ -428,6 +436,637 @@ public class SkipListTests {
     } // for
   } // testLargeList()
 
+  // +-------------+-----------------------------------------------------
+  // | Range Tests |
+  // +-------------+
+
+  /**
+   * A sub map should see exactly the keys in its range, in order.
+   */
+  @Test
+  public void testSubMap() {
+    setup();
+    for (int i = 0; i < 100; i += 2) {
+      set(i);
+    } // for
+    SimpleMap<Integer, String> sub = ints.subMap(11, 31);
+    Iterator<Integer> it = sub.keys();
+    for (int i = 12; i < 31; i += 2) {
+      assertEquals((Integer) i, it.next());
+    } // for
+    assertFalse(it.hasNext());
+    assertEquals(10, sub.size());
+    assertTrue(sub.containsKey(30));
+    assertFalse(sub.containsKey(10));
+    assertEquals(value(20), sub.get(20));
+    assertNull(sub.remove(40));
+    assertTrue(ints.containsKey(40));
+    assertEquals(value(20), sub.remove(20));
+    assertFalse(ints.containsKey(20));
+    try {
+      sub.set(31, "thirty-one");
+      fail("set outside the range should throw");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    } // try/catch
+  } // testSubMap()
+
+  /**
+   * Head and tail maps, including ranges that hit the ends of the list.
+   */
+  @Test
+  public void testHeadAndTailMaps() {
+    setup();
+    for (int i = 0; i < 50; i++) {
+      set(i);
+    } // for
+    ArrayList<Integer> head = new ArrayList<Integer>();
+    ints.headMap(5).forEach((key, value) -> head.add(key));
+    assertEquals(5, head.size());
+    assertEquals((Integer) 4, head.get(4));
+    ArrayList<Integer> tail = new ArrayList<Integer>();
+    ints.tailMap(45).forEach((key, value) -> tail.add(key));
+    assertEquals(5, tail.size());
+    assertEquals((Integer) 45, tail.get(0));
+    assertEquals(0, ints.tailMap(50).size());
+    assertEquals(0, ints.headMap(-1).size());
+    assertEquals(50, ints.tailMap(-1).size());
+    assertEquals(0, ints.subMap(10, 10).size());
+  } // testHeadAndTailMaps()
+
+  /**
+   * Randomized ranges should match a filtered walk over the whole list.
+   */
+  @Test
+  public void testRandomRanges() {
+    setup();
+    for (int i = 0; i < 500; i++) {
+      set(random.nextInt(1000));
+    } // for
+    for (int trial = 0; trial < 50; trial++) {
+      int lo = random.nextInt(1000);
+      int hi = lo + random.nextInt(200);
+      ArrayList<Integer> expected = new ArrayList<Integer>();
+      ints.forEach((key, value) -> {
+        if (key >= lo && key < hi) {
+          expected.add(key);
+        } // if
+      });
+      ArrayList<Integer> actual = new ArrayList<Integer>();
+      ints.forEach(lo, hi, (key, value) -> actual.add(key));
+      assertEquals(expected, actual);
+    } // for
+  } // testRandomRanges()
+
+  // +-----------------+-------------------------------------------------
+  // | Bulk Load Tests |
+  // +-----------------+
+
+  /**
+   * Make a sorted list of entries for the ints list.
+   */
+  static ArrayList<Map.Entry<Integer, String>> entries(int count) {
+    ArrayList<Map.Entry<Integer, String>> result = new ArrayList<Map.Entry<Integer, String>>();
+    for (int i = 0; i < count; i++) {
+      result.add(new AbstractMap.SimpleEntry<Integer, String>(i, value(i)));
+    } // for
+    return result;
+  } // entries(int)
+
+  /**
+   * A bulk-loaded list should hold everything, in order, and still support updates.
+   */
+  @Test
+  public void testLoadSorted() {
+    for (boolean balanced : new boolean[] {false, true}) {
+      SkipList<Integer, String> list =
+          SkipList.fromSorted((i, j) -> i - j, entries(1000).iterator(), balanced);
+      assertEquals(1000, list.size());
+      Iterator<Integer> it = list.keys();
+      for (int i = 0; i < 1000; i++) {
+        assertEquals((Integer) i, it.next());
+        assertEquals(value(i), list.get(i));
+      } // for
+      assertFalse(it.hasNext());
+      assertNull(list.set(1000, value(1000)));
+      assertEquals(value(500), list.remove(500));
+      assertFalse(list.containsKey(500));
+      assertEquals(1000, list.size());
+    } // for
+  } // testLoadSorted()
+
+  /**
+   * A balanced load should give every other node of each level a place on the next.
+   */
+  @Test
+  public void testLoadSortedBalanced() {
+    SkipList<Integer, String> list =
+        SkipList.fromSorted((i, j) -> i - j, entries(64).iterator(), true);
+    Iterator<SLNode<Integer, String>> it = list.nodes();
+    for (int i = 1; i <= 64; i++) {
+      assertEquals(1 + Integer.numberOfTrailingZeros(i), it.next().next.length);
+    } // for
+  } // testLoadSortedBalanced()
+
+  /**
+   * Unsorted input should be rejected and leave the list empty.
+   */
+  @Test
+  public void testLoadUnsorted() {
+    setup();
+    ArrayList<Map.Entry<Integer, String>> input = entries(10);
+    input.add(new AbstractMap.SimpleEntry<Integer, String>(5, value(5)));
+    try {
+      ints.loadSorted(input.iterator(), false);
+      fail("unsorted input should be rejected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    } // try/catch
+    assertEquals(0, ints.size());
+    assertFalse(ints.keys().hasNext());
+    set(3);
+    assertTrue(ints.containsKey(3));
+  } // testLoadUnsorted()
+
+  // +-------------+-----------------------------------------------------
+  // | Batch Tests |
+  // +-------------+
+
+  /**
+   * Batch operations should agree with doing the same operations one at a time.
+   */
+  @Test
+  public void testBatches() {
+    setup();
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int round = 0; round < 20; round++) {
+      ArrayList<Map.Entry<Integer, String>> toSet = new ArrayList<Map.Entry<Integer, String>>();
+      int added = 0;
+      for (int i = 0; i < 50; i++) {
+        int key = random.nextInt(1000);
+        String val = value(key) + round;
+        toSet.add(new AbstractMap.SimpleEntry<Integer, String>(key, val));
+        if (!expected.containsKey(key)) {
+          added++;
+        } // if
+        expected.set(key, val);
+      } // for
+      assertEquals(added, ints.setAll(toSet));
+      assertEquals(expected.size(), ints.size());
+
+      ArrayList<Integer> toRemove = new ArrayList<Integer>();
+      for (int i = 0; i < 20; i++) {
+        toRemove.add(random.nextInt(1000));
+      } // for
+      SkipList<Integer, String> removed = ints.removeAll(toRemove);
+      for (Integer key : toRemove) {
+        if (expected.containsKey(key)) {
+          assertEquals(expected.remove(key), removed.get(key));
+        } // if
+        assertFalse(ints.containsKey(key));
+      } // for
+      assertEquals(expected.size(), ints.size());
+    } // for each round
+
+    ArrayList<Integer> toGet = new ArrayList<Integer>();
+    for (int i = 0; i < 1000; i += 3) {
+      toGet.add(i);
+    } // for
+    SkipList<Integer, String> found = ints.getAll(toGet);
+    for (Integer key : toGet) {
+      assertEquals(expected.containsKey(key), found.containsKey(key));
+      if (expected.containsKey(key)) {
+        assertEquals(expected.get(key), found.get(key));
+      } // if
+    } // for
+    Iterator<Integer> expectedKeys = expected.keys();
+    Iterator<Integer> actualKeys = ints.keys();
+    while (expectedKeys.hasNext()) {
+      assertEquals(expectedKeys.next(), actualKeys.next());
+    } // while
+    assertFalse(actualKeys.hasNext());
+  } // testBatches()
+
+  /**
+   * Duplicate keys in a batch: the last value set wins, and gets report each key once.
+   */
+  @Test
+  public void testBatchDuplicates() {
+    setup();
+    ArrayList<Map.Entry<Integer, String>> toSet = new ArrayList<Map.Entry<Integer, String>>();
+    toSet.add(new AbstractMap.SimpleEntry<Integer, String>(2, "first"));
+    toSet.add(new AbstractMap.SimpleEntry<Integer, String>(1, "one"));
+    toSet.add(new AbstractMap.SimpleEntry<Integer, String>(2, "second"));
+    assertEquals(2, ints.setAll(toSet));
+    assertEquals("second", ints.get(2));
+    ArrayList<Integer> keys = new ArrayList<Integer>();
+    keys.add(2);
+    keys.add(2);
+    keys.add(3);
+    assertEquals(1, ints.getAll(keys).size());
+    assertEquals(1, ints.removeAll(keys).size());
+    assertEquals(1, ints.size());
+  } // testBatchDuplicates()
+
+  /**
+   * Every level should hold only nodes that are still in level 0, in increasing order.
+   */
+  static void assertLinked(SkipList<Integer, String> list) {
+    HashSet<SLNode<Integer, String>> bottom = new HashSet<SLNode<Integer, String>>();
+    for (SLNode<Integer, String> node = list.front.get(0); node != null; node = node.next[0]) {
+      bottom.add(node);
+    } // for
+    assertEquals(list.size(), bottom.size());
+    for (int lvl = 0; lvl < list.height; lvl++) {
+      Integer last = null;
+      for (SLNode<Integer, String> node = list.front.get(lvl); node != null;
+          node = node.next[lvl]) {
+        assertTrue(bottom.contains(node));
+        assertTrue(last == null || last < node.key);
+        last = node.key;
+      } // for
+    } // for
+  } // assertLinked(SkipList<Integer,String>)
+
+  /**
+   * removeIf and retainAll should remove exactly the right entries and leave every level
+   * linked properly.
+   */
+  @Test
+  public void testRemoveIf() {
+    setup();
+    for (int i = 0; i < 3000; i++) {
+      ints.set(random.nextInt(10000), value(i % 100));
+    } // for
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    ints.forEach((key, value) -> {
+      if (key % 10 >= 3) {
+        expected.set(key, value);
+      } // if
+    });
+    assertEquals(ints.size() - expected.size(), ints.removeIf((key, value) -> key % 10 < 3));
+    assertLinked(ints);
+    assertEquals(expected.size(), ints.size());
+    for (int key = 0; key < 10000; key++) {
+      assertEquals(expected.containsKey(key), ints.containsKey(key));
+    } // for
+
+    ArrayList<Integer> keep = new ArrayList<Integer>();
+    for (int i = 0; i < 2000; i++) {
+      keep.add(random.nextInt(12000));
+    } // for
+    int before = ints.size();
+    int removed = ints.retainAll(keep);
+    assertLinked(ints);
+    assertEquals(before - removed, ints.size());
+    for (int key = 0; key < 10000; key++) {
+      assertEquals(expected.containsKey(key) && keep.contains(key), ints.containsKey(key));
+    } // for
+    assertEquals(ints.size(), ints.removeIf((key, value) -> true));
+    assertLinked(ints);
+    assertEquals(0, ints.size());
+  } // testRemoveIf()
+
+  /**
+   * Removing through the iterators, of the whole list and of a range, should work and leave
+   * every level linked properly.
+   */
+  @Test
+  public void testIteratorRemove() {
+    setup();
+    for (int i = 0; i < 2000; i++) {
+      ints.set(i, value(i % 100));
+    } // for
+    for (Iterator<Integer> it = ints.keys(); it.hasNext();) {
+      if (it.next() % 3 == 0) {
+        it.remove();
+      } // if
+    } // for
+    assertLinked(ints);
+    Iterator<String> values = ints.values();
+    try {
+      values.remove();
+      fail("remove before next should throw");
+    } catch (IllegalStateException e) {
+      // Expected
+    } // try/catch
+    values.next();
+    values.remove();
+    try {
+      values.remove();
+      fail("a second remove should throw");
+    } catch (IllegalStateException e) {
+      // Expected
+    } // try/catch
+    assertFalse(ints.containsKey(1));
+    for (Iterator<Integer> it = ints.subMap(500, 1000).keys(); it.hasNext();) {
+      it.next();
+      it.remove();
+    } // for
+    assertLinked(ints);
+    for (int key = 0; key < 2000; key++) {
+      assertEquals(key != 1 && key % 3 != 0 && (key < 500 || key >= 1000),
+          ints.containsKey(key));
+    } // for
+  } // testIteratorRemove()
+
+  /**
+   * removeRange should remove exactly the keys in range, with either bound missing, and
+   * leave every level linked properly.
+   */
+  @Test
+  public void testRemoveRange() {
+    setup();
+    for (int i = 0; i < 5000; i++) {
+      ints.set(random.nextInt(10000), value(i % 100));
+    } // for
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    ints.forEach(expected::set);
+    for (int trial = 0; trial < 50; trial++) {
+      int from = random.nextInt(10000);
+      int to = from + random.nextInt(500);
+      Integer lo = (trial % 10 == 0) ? null : from;
+      Integer hi = (trial % 10 == 1) ? null : to;
+      int count = 0;
+      for (Iterator<Integer> it = expected.keys(); it.hasNext();) {
+        Integer key = it.next();
+        if ((lo == null || key >= lo) && (hi == null || key < hi)) {
+          it.remove();
+          count++;
+        } // if
+      } // for
+      assertEquals(count, ints.removeRange(lo, hi));
+      assertLinked(ints);
+      assertEquals(expected.size(), ints.size());
+    } // for
+    for (int key = 0; key < 10000; key++) {
+      assertEquals(expected.containsKey(key), ints.containsKey(key));
+    } // for
+    try {
+      ints.removeRange(10, 5);
+      fail("an empty range with from > to should throw");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    } // try/catch
+  } // testRemoveRange()
+
+  /**
+   * Splitting a list and concatenating the halves should give back the same entries, with
+   * every level linked properly, and the lists should keep working afterward.
+   */
+  @Test
+  public void testSplitConcatenate() {
+    setup();
+    for (int i = 0; i < 3000; i++) {
+      ints.set(random.nextInt(10000), value(i % 100));
+    } // for
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    ints.forEach(expected::set);
+    for (int trial = 0; trial < 20; trial++) {
+      int key = random.nextInt(11000) - 500;
+      SkipList<Integer, String> high = ints.split(key);
+      assertLinked(ints);
+      assertLinked(high);
+      assertEquals(expected.size(), ints.size() + high.size());
+      ints.forEach((k, v) -> assertTrue(k < key));
+      high.forEach((k, v) -> assertTrue(k >= key));
+      if (ints.size() > 0 && high.size() > 0) {
+        try {
+          high.concatenate(ints);
+          fail("overlapping lists shouldn't concatenate");
+        } catch (IllegalArgumentException e) {
+          // Expected
+        } // try/catch
+      } // if
+      ints.concatenate(high);
+      assertLinked(ints);
+      assertEquals(0, high.size());
+      assertEquals(expected.size(), ints.size());
+    } // for
+    for (int key = 0; key < 10000; key++) {
+      assertEquals(expected.containsKey(key), ints.containsKey(key));
+    } // for
+    ints.set(-1, "minus one");
+    ints.remove(5000);
+
+    // Indexed lists split into indexed lists, and only take indexed nodes
+    IndexedSkipList<Integer, String> indexed =
+        new IndexedSkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 100; i++) {
+      indexed.set(i, value(i));
+    } // for
+    IndexedSkipList<Integer, String> tail = (IndexedSkipList<Integer, String>) indexed.split(60);
+    assertEquals(60, indexed.size());
+    assertEquals(Integer.valueOf(70), tail.keyAt(10));
+    try {
+      indexed.concatenate(ints.split(10000));
+      fail("a plain list shouldn't concatenate to an indexed one");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    } // try/catch
+    indexed.concatenate(tail);
+    assertEquals(Integer.valueOf(70), indexed.keyAt(70));
+    assertEquals(99, indexed.rank(99));
+  } // testSplitConcatenate()
+
+  /**
+   * merge and both paths of mergeFrom should give the union, with resolver's value for the
+   * keys in both lists, and leave every level linked properly.
+   */
+  @Test
+  public void testMerge() {
+    for (int otherSize : new int[] {0, 50, 2000, 8000}) {
+      setup();
+      SkipList<Integer, String> other = new SkipList<Integer, String>((i, j) -> i - j);
+      for (int i = 0; i < 2000; i++) {
+        ints.set(random.nextInt(10000), "a");
+      } // for
+      for (int i = 0; i < otherSize; i++) {
+        other.set(random.nextInt(10000), "b");
+      } // for
+      SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+      ints.forEach(expected::set);
+      other.forEach((key, value) -> expected.set(key, expected.containsKey(key) ? "ab" : value));
+      int thisSize = ints.size();
+
+      SkipList<Integer, String> merged = ints.merge(other, (a, b) -> a + b);
+      assertLinked(merged);
+      assertEquals(thisSize, ints.size());
+      assertEquals(expected.size() - thisSize, ints.mergeFrom(other, (a, b) -> a + b));
+      assertLinked(ints);
+      for (SkipList<Integer, String> result : Arrays.asList(merged, ints)) {
+        assertEquals(expected.size(), result.size());
+        for (int key = 0; key < 10000; key++) {
+          assertEquals(expected.containsKey(key), result.containsKey(key));
+          if (expected.containsKey(key)) {
+            assertEquals(expected.get(key), result.get(key));
+          } // if
+        } // for
+      } // for
+    } // for
+  } // testMerge()
+
+  /**
+   * The navigation methods should agree with TreeMap's, and polling should empty the list
+   * from either end, in order.
+   */
+  @Test
+  public void testNavigation() {
+    setup();
+    TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    try {
+      ints.firstKey();
+      fail("firstKey of an empty list should throw");
+    } catch (NoSuchElementException e) {
+      // Expected
+    } // try/catch
+    assertNull(ints.lastEntry());
+    assertNull(ints.pollFirst());
+    for (int i = 0; i < 1000; i++) {
+      int key = random.nextInt(5000);
+      ints.set(key, value(key));
+      expected.put(key, value(key));
+    } // for
+    assertEquals(expected.firstKey(), ints.firstKey());
+    assertEquals(expected.lastKey(), ints.lastKey());
+    assertEquals(expected.firstEntry(), ints.firstEntry());
+    assertEquals(expected.lastEntry(), ints.lastEntry());
+    for (int key = -1; key <= 5000; key++) {
+      assertEquals(expected.floorKey(key), ints.floorKey(key));
+      assertEquals(expected.ceilingKey(key), ints.ceilingKey(key));
+      assertEquals(expected.higherKey(key), ints.higherKey(key));
+      assertEquals(expected.lowerKey(key), ints.lowerKey(key));
+      assertEquals(expected.floorEntry(key), ints.floorEntry(key));
+      assertEquals(expected.ceilingEntry(key), ints.ceilingEntry(key));
+      assertEquals(expected.higherEntry(key), ints.higherEntry(key));
+      assertEquals(expected.lowerEntry(key), ints.lowerEntry(key));
+    } // for
+    while (!expected.isEmpty()) {
+      if (random.nextBoolean()) {
+        assertEquals(expected.pollFirstEntry(), ints.pollFirst());
+      } else {
+        assertEquals(expected.pollLastEntry(), ints.pollLast());
+      } // if/else
+      assertEquals(expected.size(), ints.size());
+    } // while
+    assertLinked(ints);
+    assertNull(ints.pollLast());
+  } // testNavigation()
+
+  // +--------------+----------------------------------------------------
+  // | Stream Tests |
+  // +--------------+
+
+  /**
+   * Splitting a spliterator all the way down should cover every entry exactly once, in order.
+   */
+  @Test
+  public void testSpliterator() {
+    setup();
+    for (int i = 0; i < 5000; i++) {
+      ints.set(random.nextInt(20000), "");
+    } // for
+    Spliterator<Map.Entry<Integer, String>> entries = ints.spliterator();
+    assertEquals(ints.size(), entries.estimateSize());
+    assertTrue(entries.hasCharacteristics(Spliterator.SIZED | Spliterator.SORTED));
+    ArrayList<Spliterator<Map.Entry<Integer, String>>> pieces =
+        new ArrayList<Spliterator<Map.Entry<Integer, String>>>();
+    pieces.add(entries);
+    for (int i = 0; i < pieces.size(); i++) {
+      Spliterator<Map.Entry<Integer, String>> prefix;
+      while ((prefix = pieces.get(i).trySplit()) != null) {
+        pieces.add(i, prefix);
+      } // while
+    } // for
+    assertTrue(pieces.size() > 100);
+    Iterator<Integer> keys = ints.keys();
+    for (Spliterator<Map.Entry<Integer, String>> piece : pieces) {
+      piece.forEachRemaining((entry) -> assertEquals(keys.next(), entry.getKey()));
+    } // for
+    assertFalse(keys.hasNext());
+  } // testSpliterator()
+
+  /**
+   * Parallel streams and parallelForEach should see every entry once.
+   */
+  @Test
+  public void testParallel() {
+    setup();
+    long expected = 0;
+    for (int i = 0; i < 100000; i += 3) {
+      ints.set(i, value(i % 1000));
+      expected += i;
+    } // for
+    assertEquals(expected, ints.parallelStream().mapToLong(Map.Entry::getKey).sum());
+    assertEquals(ints.size(), ints.stream().count());
+    assertTrue(inOrder(ints.parallelStream().map(Map.Entry::getKey).iterator()));
+    LongAdder sum = new LongAdder();
+    ints.parallelForEach((key, value) -> {
+      assertEquals(value(key % 1000), value);
+      sum.add(key);
+    });
+    assertEquals(expected, sum.sum());
+    assertEquals(0, strings.parallelStream().count());
+  } // testParallel()
+
+  // +---------------+---------------------------------------------------
+  // | Metrics Tests |
+  // +---------------+
+
+  /**
+   * Metrics should count hits and misses per operation, and nothing by default.
+   */
+  @Test
+  public void testMetrics() {
+    setup();
+    assertSame(SkipListMetrics.NONE, ints.metrics());
+    ints.set(1, "one");
+    assertEquals(0, ints.metrics().snapshot().operations(SkipListMetrics.Op.SET));
+
+    ints.setMetrics(SkipListMetrics.striped());
+    for (int i = 0; i < 100; i++) {
+      ints.set(i, value(i));
+    } // for
+    for (int i = 50; i < 150; i++) {
+      ints.containsKey(i);
+      ints.remove(i);
+    } // for
+    ints.get(10);
+    SkipListMetrics.Snapshot counts = ints.metrics().snapshot();
+    assertEquals(1, counts.hits(SkipListMetrics.Op.SET));
+    assertEquals(99, counts.misses(SkipListMetrics.Op.SET));
+    assertEquals(50, counts.hits(SkipListMetrics.Op.CONTAINS_KEY));
+    assertEquals(50, counts.misses(SkipListMetrics.Op.CONTAINS_KEY));
+    assertEquals(50, counts.hits(SkipListMetrics.Op.REMOVE));
+    assertEquals(1, counts.operations(SkipListMetrics.Op.GET));
+    assertTrue(counts.comparisons(SkipListMetrics.Op.SET) > 0);
+    assertTrue(counts.meanPathLength(SkipListMetrics.Op.REMOVE) >= ints.height);
+    long histogram = 0;
+    for (long bucket : counts.pathLengths(SkipListMetrics.Op.REMOVE)) {
+      histogram += bucket;
+    } // for
+    assertEquals(100, histogram);
+
+    // Indexed lists run their own searches for set and remove, which should count too
+    IndexedSkipList<Integer, String> indexed =
+        new IndexedSkipList<Integer, String>((i, j) -> i - j);
+    indexed.setMetrics(SkipListMetrics.striped());
+    for (int i = 0; i < 100; i++) {
+      indexed.set(i % 60, value(i));
+    } // for
+    for (int i = 0; i < 80; i++) {
+      indexed.remove(i);
+    } // for
+    indexed.rank(10);
+    counts = indexed.metrics().snapshot();
+    assertEquals(40, counts.hits(SkipListMetrics.Op.SET));
+    assertEquals(60, counts.misses(SkipListMetrics.Op.SET));
+    assertEquals(60, counts.hits(SkipListMetrics.Op.REMOVE));
+    assertEquals(20, counts.misses(SkipListMetrics.Op.REMOVE));
+    assertTrue(counts.comparisons(SkipListMetrics.Op.REMOVE) > 0);
+    assertEquals(0, counts.operations(SkipListMetrics.Op.CONTAINS_KEY));
+  } // testMetrics()
+
   public static void main(String[] args) {
     SkipListTests slt = new SkipListTests();
     slt.setup();
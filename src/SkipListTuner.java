@@ -0,0 +1,330 @@
+/**
+ * Tunes a SkipList to its workload. The tuner sits in the list as both its metrics (to watch
+ * the read/write mix and the search-path lengths) and its level generator (to pick heights
+ * with the probability it chooses). Every WINDOW operations, it retunes:
+ *
+ * - p, the probability that a node reaching one level reaches the next, is set to whichever
+ *   of CANDIDATES best balances latency against memory, as weighted by memoryWeight. Latency
+ *   is modeled as (1/p) log_{1/p} n steps per search, scaled by how the observed path lengths
+ *   compare with that model, plus 1/(1-p) links to update per write. Memory is 1/(1-p) links
+ *   per node. Only nodes added from then on get the new p.
+ * - New nodes are capped at log_{1/p}(2n) + 1 levels, and empty levels above that are dropped
+ *   from the top of the list, so small lists don't pay for INITIAL_HEIGHT levels on every
+ *   search.
+ *
+ * override(p) fixes p until automatic() is called. Like SkipList, tuners are not thread-safe.
+ */
+public class SkipListTuner implements SkipListMetrics, LevelGenerator {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of operations between retunings.
+   */
+  static final int WINDOW = 4096;
+
+  /**
+   * The probabilities we choose among. Powers of two get the cheap bit-counting generator, and
+   * 1/e minimizes (1/p) log_{1/p} n, the expected search cost.
+   */
+  static final double[] CANDIDATES = {0.5, 1 / Math.E, 0.25, 0.125, 0.0625};
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list we tune.
+   */
+  final SkipList<?, ?> list;
+
+  /**
+   * Where we pass metrics along to.
+   */
+  final SkipListMetrics delegate;
+
+  /**
+   * How much to weigh memory against latency, from 0 (latency only) to 1 (memory only).
+   */
+  double memoryWeight;
+
+  /**
+   * Whether p was set by override.
+   */
+  boolean manual;
+
+  /**
+   * The current probability, and a generator for it.
+   */
+  double p;
+  LevelGenerator levels;
+
+  /**
+   * The most levels a new node may have.
+   */
+  int maxLevel;
+
+  /**
+   * Counts for the current window.
+   */
+  int reads;
+  int writes;
+  long pathLengths;
+
+  /**
+   * What we saw in the last full window.
+   */
+  double readFraction;
+  double meanPathLength;
+
+  /**
+   * The number of times we've retuned.
+   */
+  long retunes;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a tuner for list that passes metrics along to delegate. (SkipList.enableTuning
+   * is the usual way to make one.)
+   *
+   * @throws IllegalArgumentException if memoryWeight is not in [0, 1].
+   */
+  SkipListTuner(SkipList<?, ?> list, SkipListMetrics delegate, double memoryWeight) {
+    this.list = list;
+    this.delegate = delegate;
+    this.setMemoryWeight(memoryWeight);
+    this.p = list.levelGenerator().probability();
+    this.levels = LevelGenerator.random(this.p);
+    this.maxLevel = this.targetHeight();
+  } // SkipListTuner(SkipList<?,?>, SkipListMetrics, double)
+
+  // +----------------+----------------------------------------------
+  // | Public methods |
+  // +----------------+
+
+  /**
+   * Change how much to weigh memory against latency. Takes effect at the next retuning.
+   *
+   * @throws IllegalArgumentException if memoryWeight is not in [0, 1].
+   */
+  public void setMemoryWeight(double memoryWeight) {
+    if (!(memoryWeight >= 0 && memoryWeight <= 1)) {
+      throw new IllegalArgumentException("memoryWeight must be in [0, 1]: " + memoryWeight);
+    } // if
+    this.memoryWeight = memoryWeight;
+  } // setMemoryWeight(double)
+
+  /**
+   * Use p for new nodes from now on, whatever the workload.
+   *
+   * @throws IllegalArgumentException if p is not strictly between 0 and 1.
+   */
+  public void override(double p) {
+    this.levels = LevelGenerator.random(p);
+    this.p = p;
+    this.manual = true;
+  } // override(double)
+
+  /**
+   * Go back to choosing p from the workload.
+   */
+  public void automatic() {
+    this.manual = false;
+  } // automatic()
+
+  /**
+   * Get the current tuning state.
+   */
+  public State state() {
+    return new State(this.p, this.manual, this.memoryWeight, this.readFraction,
+        this.meanPathLength, this.list.height, this.maxLevel, this.retunes);
+  } // state()
+
+  // +-------------------------+-------------------------------------
+  // | SkipListMetrics methods |
+  // +-------------------------+
+
+  @Override
+  public void record(Op op, boolean hit, int steps, int levels, int comparisons) {
+    this.delegate.record(op, hit, steps, levels, comparisons);
+    if (op == Op.SET || op == Op.REMOVE) {
+      this.writes++;
+    } else {
+      this.reads++;
+    } // if/else
+    this.pathLengths += steps + levels;
+    if (this.reads + this.writes >= WINDOW) {
+      this.retune();
+    } // if
+  } // record(Op, boolean, int, int, int)
+
+  @Override
+  public Snapshot snapshot() {
+    return this.delegate.snapshot();
+  } // snapshot()
+
+  // +------------------------+--------------------------------------
+  // | LevelGenerator methods |
+  // +------------------------+
+
+  @Override
+  public int nextLevel() {
+    return Math.min(this.levels.nextLevel(), this.maxLevel);
+  } // nextLevel()
+
+  @Override
+  public double probability() {
+    return this.p;
+  } // probability()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Pick p and the height cap from the last window, and drop empty levels.
+   */
+  void retune() {
+    int ops = this.reads + this.writes;
+    this.readFraction = (double) this.reads / ops;
+    this.meanPathLength = (double) this.pathLengths / ops;
+    this.reads = 0;
+    this.writes = 0;
+    this.pathLengths = 0;
+    this.retunes++;
+
+    if (!this.manual) {
+      double best = this.choose();
+      if (best != this.p) {
+        this.p = best;
+        this.levels = LevelGenerator.random(best);
+      } // if
+    } // if
+    this.maxLevel = this.targetHeight();
+    this.list.trimHeight(this.maxLevel);
+  } // retune()
+
+  /**
+   * Find the candidate probability with the best weighted cost.
+   */
+  double choose() {
+    double n = Math.max(this.list.size(), 2);
+    // How far off the model is for the current p, so we can correct the others
+    double calibration = this.meanPathLength / searchCost(this.p, n);
+    if (!(calibration > 0)) {
+      calibration = 1;
+    } // if
+
+    double[] latency = new double[CANDIDATES.length];
+    double[] memory = new double[CANDIDATES.length];
+    double minLatency = Double.MAX_VALUE;
+    double minMemory = Double.MAX_VALUE;
+    for (int i = 0; i < CANDIDATES.length; i++) {
+      double p = CANDIDATES[i];
+      double links = 1 / (1 - p);
+      latency[i] = calibration * searchCost(p, n) + (1 - this.readFraction) * links;
+      memory[i] = links;
+      minLatency = Math.min(minLatency, latency[i]);
+      minMemory = Math.min(minMemory, memory[i]);
+    } // for
+
+    double best = this.p;
+    double bestScore = Double.MAX_VALUE;
+    for (int i = 0; i < CANDIDATES.length; i++) {
+      double score = (1 - this.memoryWeight) * latency[i] / minLatency
+          + this.memoryWeight * memory[i] / minMemory;
+      if (score < bestScore) {
+        bestScore = score;
+        best = CANDIDATES[i];
+      } // if
+    } // for
+    return best;
+  } // choose()
+
+  /**
+   * Get the height we aim for: enough levels for twice the current size.
+   */
+  int targetHeight() {
+    return LevelGenerator.maxLevelFor(2L * Math.max(this.list.size(), 1), this.p) + 1;
+  } // targetHeight()
+
+  /**
+   * Estimate the length of a search path (steps plus levels) in a list of n nodes.
+   */
+  static double searchCost(double p, double n) {
+    return Math.max(1, Math.log(n) / Math.log(1 / p)) / p;
+  } // searchCost(double, double)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * The tuning state at some point in time.
+   */
+  public static class State {
+    /**
+     * The probability used for new nodes.
+     */
+    public final double probability;
+
+    /**
+     * Whether the probability was set by override.
+     */
+    public final boolean manual;
+
+    /**
+     * How much memory is weighed against latency.
+     */
+    public final double memoryWeight;
+
+    /**
+     * The fraction of operations in the last window that were gets or containsKeys.
+     */
+    public final double readFraction;
+
+    /**
+     * The mean search-path length (steps plus levels) in the last window.
+     */
+    public final double meanPathLength;
+
+    /**
+     * The current height of the list.
+     */
+    public final int height;
+
+    /**
+     * The most levels a new node may have.
+     */
+    public final int maxLevel;
+
+    /**
+     * The number of times the tuner has retuned.
+     */
+    public final long retunes;
+
+    State(double probability, boolean manual, double memoryWeight, double readFraction,
+        double meanPathLength, int height, int maxLevel, long retunes) {
+      this.probability = probability;
+      this.manual = manual;
+      this.memoryWeight = memoryWeight;
+      this.readFraction = readFraction;
+      this.meanPathLength = meanPathLength;
+      this.height = height;
+      this.maxLevel = maxLevel;
+      this.retunes = retunes;
+    } // State(...)
+
+    @Override
+    public String toString() {
+      return String.format("p=%.3f%s memoryWeight=%.2f reads=%.0f%% meanPath=%.1f height=%d "
+          + "maxLevel=%d retunes=%d", this.probability, this.manual ? " (manual)" : "",
+          this.memoryWeight, 100 * this.readFraction, this.meanPathLength, this.height,
+          this.maxLevel, this.retunes);
+    } // toString()
+  } // class State
+} // class SkipListTuner
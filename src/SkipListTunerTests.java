@@ -0,0 +1,156 @@
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of skip-list tuning.
+ */
+public class SkipListTunerTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * A tuned list should still behave like a map while p and the height change under it.
+   */
+  @Test
+  public void testStillAMap() {
+    SkipList<Integer, String> tuned = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipList<Integer, String> plain = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipListTuner tuner = tuned.enableTuning(0.5);
+    for (int i = 0; i < 50000; i++) {
+      int key = random.nextInt(5000);
+      switch (random.nextInt(4)) {
+        case 0:
+          assertEquals(plain.set(key, "" + i), tuned.set(key, "" + i));
+          break;
+        case 1:
+          assertEquals(plain.remove(key), tuned.remove(key));
+          break;
+        default:
+          assertEquals(plain.containsKey(key), tuned.containsKey(key));
+          break;
+      } // switch
+    } // for
+    assertTrue(tuner.state().retunes > 0);
+    assertEquals(plain.size(), tuned.size());
+    Iterator<Integer> keys = tuned.keys();
+    for (Iterator<Integer> it = plain.keys(); it.hasNext();) {
+      Integer key = it.next();
+      assertEquals(key, keys.next());
+      assertEquals(plain.get(key), tuned.get(key));
+    } // for
+    assertFalse(keys.hasNext());
+  } // testStillAMap()
+
+  /**
+   * The goal should steer p: memory-only picks the smallest p, and a small list loses the
+   * empty levels above what it needs.
+   */
+  @Test
+  public void testGoals() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipListTuner tuner = list.enableTuning(1.0);
+    for (int i = 0; i < 100; i++) {
+      list.set(i, "");
+    } // for
+    for (int i = 0; i < 3 * SkipListTuner.WINDOW; i++) {
+      list.containsKey(i % 100);
+    } // for
+    SkipListTuner.State state = tuner.state();
+    assertEquals(0.0625, state.probability, 0);
+    assertEquals(1.0, state.readFraction, 0);
+    assertTrue(state.height < SkipList.INITIAL_HEIGHT);
+    assertTrue(state.meanPathLength > 0);
+
+    tuner.setMemoryWeight(0);
+    for (int i = 0; i < 2 * SkipListTuner.WINDOW; i++) {
+      list.containsKey(i % 100);
+    } // for
+    assertTrue(tuner.state().probability > 0.25);
+  } // testGoals()
+
+  /**
+   * A manual override should stick until automatic(), and disabling should restore metrics.
+   */
+  @Test
+  public void testOverride() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipListMetrics metrics = SkipListMetrics.striped();
+    list.setMetrics(metrics);
+    SkipListTuner tuner = list.enableTuning(1.0);
+    assertSame(tuner, list.tuner());
+    tuner.override(0.5);
+    for (int i = 0; i < 2 * SkipListTuner.WINDOW; i++) {
+      list.set(i, "");
+    } // for
+    assertEquals(0.5, tuner.state().probability, 0);
+    assertTrue(tuner.state().manual);
+    tuner.automatic();
+    for (int i = 0; i < SkipListTuner.WINDOW; i++) {
+      list.containsKey(i);
+    } // for
+    assertEquals(0.0625, tuner.state().probability, 0);
+
+    list.disableTuning();
+    assertNull(list.tuner());
+    assertSame(metrics, list.metrics());
+    assertEquals(3 * SkipListTuner.WINDOW,
+        metrics.snapshot().operations(SkipListMetrics.Op.SET)
+        + metrics.snapshot().operations(SkipListMetrics.Op.CONTAINS_KEY));
+  } // testOverride()
+
+  /**
+   * Trimming the height of an indexed list shouldn't confuse its widths.
+   */
+  @Test
+  public void testIndexed() {
+    IndexedSkipList<Integer, String> list = new IndexedSkipList<Integer, String>((i, j) -> i - j);
+    list.enableTuning(0.5);
+    for (int i = 0; i < 3 * SkipListTuner.WINDOW; i++) {
+      list.containsKey(i);
+    } // for
+    assertTrue(list.height < SkipList.INITIAL_HEIGHT);
+    for (int i = 0; i < 2000; i++) {
+      list.set(random.nextInt(100000), "");
+    } // for
+    int index = 0;
+    for (Iterator<Integer> it = list.keys(); it.hasNext(); index++) {
+      Integer key = it.next();
+      assertEquals(key, list.keyAt(index));
+      assertEquals(index, list.rank(key));
+    } // for
+  } // testIndexed()
+
+  /**
+   * A list split off a tuned list shouldn't share its tuner, but should start with the p it
+   * chose.
+   */
+  @Test
+  public void testSplit() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    SkipListTuner tuner = list.enableTuning(1.0);
+    for (int i = 0; i < 2 * SkipListTuner.WINDOW; i++) {
+      list.containsKey(i);
+    } // for
+    for (int i = 0; i < 1000; i++) {
+      list.set(i, "");
+    } // for
+    SkipList<Integer, String> high = list.split(500);
+    assertNull(high.tuner());
+    assertFalse(high.levelGenerator() instanceof SkipListTuner);
+    assertEquals(tuner.state().probability, high.levelGenerator().probability(), 0);
+    assertSame(tuner, list.levelGenerator());
+  } // testSplit()
+} // class SkipListTunerTests
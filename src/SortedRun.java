@@ -0,0 +1,394 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * An immutable, sorted file of entries, as written by MemtableStore when it flushes a memtable
+ * or compacts older runs. Entries may be tombstones, which record that a key was removed.
+ *
+ * Format: a header (long MAGIC, int VERSION, int unused, long sequence number of the oldest
+ * run this one replaces), the entries in key order, the sparse index, and a footer (long index
+ * offset, long entry count, int CRC32C of everything before the footer, long MAGIC). Each entry
+ * is int key size, key bytes, byte kind (VALUE, NULL_VALUE or TOMBSTONE_KIND), and for VALUE,
+ * int value size and value bytes. The index is an int count, then the key and offset of every
+ * INDEX_INTERVAL-th entry.
+ *
+ * Runs are memory-mapped, so they're limited to 2 GB each. The index is kept on the heap, which
+ * costs one key per INDEX_INTERVAL entries; a lookup binary-searches it and then scans at most
+ * INDEX_INTERVAL entries.
+ */
+public class SortedRun<K, V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The first (and last) eight bytes of every run ("SKIPRUN1").
+   */
+  static final long MAGIC = 0x534B495052554E31L;
+
+  /**
+   * The version of the format.
+   */
+  static final int VERSION = 1;
+
+  /**
+   * The sizes of the header and footer.
+   */
+  static final int HEADER_SIZE = 24;
+  static final int FOOTER_SIZE = 28;
+
+  /**
+   * Index every this-many entries.
+   */
+  static final int INDEX_INTERVAL = 16;
+
+  /**
+   * Entry kinds.
+   */
+  static final byte VALUE = 0;
+  static final byte NULL_VALUE = 1;
+  static final byte TOMBSTONE_KIND = 2;
+
+  /**
+   * What lookups and cursors give for removed keys.
+   */
+  static final Object TOMBSTONE = new Object();
+
+  /**
+   * What lookups give for keys the run knows nothing about.
+   */
+  static final Object MISSING = new Object();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where the run lives.
+   */
+  final Path path;
+
+  /**
+   * The sequence number of the run (newer runs have larger numbers).
+   */
+  final long seq;
+
+  /**
+   * The sequence number of the oldest run this one replaced (seq, for a flushed memtable).
+   */
+  final long firstSeq;
+
+  /**
+   * The run, mapped.
+   */
+  final MappedByteBuffer data;
+
+  /**
+   * Where the index starts (and the entries end).
+   */
+  final int indexOffset;
+
+  /**
+   * The sparse index.
+   */
+  final ArrayList<K> indexKeys;
+  final int[] indexOffsets;
+
+  final Comparator<? super K> comparator;
+  final Serializer<K> keySerializer;
+  final Serializer<V> valueSerializer;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Open an existing run.
+   *
+   * @throws IOException if the file can't be read or isn't a valid run.
+   */
+  SortedRun(Path path, long seq, Comparator<? super K> comparator, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer) throws IOException {
+    this.path = path;
+    this.seq = seq;
+    this.comparator = comparator;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("sorted run is too large to map: " + path);
+      } // if
+      if (size < HEADER_SIZE + FOOTER_SIZE) {
+        throw new IOException("sorted run is truncated: " + path);
+      } // if
+      this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    } // try
+    int footer = this.data.capacity() - FOOTER_SIZE;
+    if (this.data.getLong(0) != MAGIC || this.data.getLong(footer + 20) != MAGIC) {
+      throw new IOException("not a sorted run: " + path);
+    } // if
+    if (this.data.getInt(8) != VERSION) {
+      throw new IOException("unsupported sorted run version " + this.data.getInt(8));
+    } // if
+    CRC32C crc = new CRC32C();
+    crc.update(this.data.slice(0, footer));
+    if ((int) crc.getValue() != this.data.getInt(footer + 16)) {
+      throw new IOException("sorted run is corrupt (bad checksum): " + path);
+    } // if
+    this.firstSeq = this.data.getLong(16);
+    this.indexOffset = (int) this.data.getLong(footer);
+
+    ByteBuffer index = this.data.duplicate().position(this.indexOffset);
+    int entries = index.getInt();
+    this.indexKeys = new ArrayList<K>(entries);
+    this.indexOffsets = new int[entries];
+    for (int i = 0; i < entries; i++) {
+      this.indexKeys.add(keySerializer.read(index, index.getInt()));
+      this.indexOffsets[i] = (int) index.getLong();
+    } // for
+  } // SortedRun(Path, long, Comparator<K>, Serializer<K>, Serializer<V>)
+
+  /**
+   * Write entries, which must be in strictly increasing key order, to a new run at path, and
+   * open it. Values may be TOMBSTONE.
+   *
+   * @throws IOException if the file can't be written.
+   */
+  static <K, V> SortedRun<K, V> write(Path path, long seq, long firstSeq,
+      Iterator<? extends Map.Entry<K, ?>> entries, Comparator<? super K> comparator,
+      Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+    create(path, firstSeq, entries, keySerializer, valueSerializer);
+    return new SortedRun<K, V>(path, seq, comparator, keySerializer, valueSerializer);
+  } // write(...)
+
+  /**
+   * Write entries to a new run at path, as in write, but don't open (and so map) it.
+   *
+   * @throws IOException if the file can't be written.
+   */
+  static <K, V> void create(Path path, long firstSeq,
+      Iterator<? extends Map.Entry<K, ?>> entries, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE)) {
+      Writer<K, V> writer = new Writer<K, V>(channel, keySerializer, valueSerializer);
+      writer.header(firstSeq);
+      while (entries.hasNext()) {
+        Map.Entry<K, ?> entry = entries.next();
+        writer.entry(entry.getKey(), entry.getValue());
+      } // while
+      writer.finish();
+      channel.force(true);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(path);
+      throw e;
+    } // try/catch
+  } // create(...)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Look up key.
+   *
+   * @return the value, TOMBSTONE if the key was removed, or MISSING if the run doesn't
+   *   mention the key.
+   */
+  Object find(K key) {
+    RunCursor cursor = this.cursor(key);
+    if (cursor.valid && this.comparator.compare(cursor.key, key) == 0) {
+      return cursor.value;
+    } // if
+    return MISSING;
+  } // find(K)
+
+  /**
+   * Get a cursor at the first entry whose key is at least from (or the first entry, if from
+   * is null).
+   */
+  RunCursor cursor(K from) {
+    int i = (from == null) ? -1
+        : Collections.binarySearch(this.indexKeys, from, this.comparator);
+    if (i < 0) {
+      // Start at the last indexed entry before from
+      i = Math.max(-i - 2, 0);
+    } // if
+    RunCursor cursor = new RunCursor((this.indexOffsets.length == 0) ? this.indexOffset
+        : this.indexOffsets[i]);
+    while (cursor.valid && from != null && this.comparator.compare(cursor.key, from) < 0) {
+      cursor.advance();
+    } // while
+    return cursor;
+  } // cursor(K)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A cursor over the entries of this run, decoding as it goes.
+   */
+  class RunCursor {
+    final ByteBuffer in;
+
+    /**
+     * Whether the cursor is at an entry (rather than past the end).
+     */
+    boolean valid;
+    K key;
+    Object value;
+
+    RunCursor(int offset) {
+      this.in = SortedRun.this.data.duplicate().position(offset);
+      this.advance();
+    } // RunCursor(int)
+
+    /**
+     * Move to the next entry.
+     */
+    void advance() {
+      if (this.in.position() >= SortedRun.this.indexOffset) {
+        this.valid = false;
+        this.key = null;
+        this.value = null;
+        return;
+      } // if
+      this.valid = true;
+      this.key = SortedRun.this.keySerializer.read(this.in, this.in.getInt());
+      byte kind = this.in.get();
+      if (kind == VALUE) {
+        this.value = SortedRun.this.valueSerializer.read(this.in, this.in.getInt());
+      } else {
+        this.value = (kind == NULL_VALUE) ? null : TOMBSTONE;
+      } // if/else
+    } // advance()
+  } // class RunCursor
+
+  /**
+   * Lays out a run. Entries are staged in a reusable buffer and written a block at a time.
+   */
+  static class Writer<K, V> {
+    final FileChannel out;
+    final Serializer<K> keySerializer;
+    final Serializer<V> valueSerializer;
+    final CRC32C crc = new CRC32C();
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Where the next entry will go in the file.
+     */
+    long offset = 0;
+
+    /**
+     * The number of entries so far.
+     */
+    long count = 0;
+
+    /**
+     * The sparse index so far.
+     */
+    ArrayList<K> indexKeys = new ArrayList<K>();
+    ArrayList<Long> indexOffsets = new ArrayList<Long>();
+
+    Writer(FileChannel out, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+      this.out = out;
+      this.keySerializer = keySerializer;
+      this.valueSerializer = valueSerializer;
+    } // Writer(FileChannel, Serializer<K>, Serializer<V>)
+
+    void header(long firstSeq) throws IOException {
+      this.reserve(HEADER_SIZE);
+      this.buffer.putLong(MAGIC);
+      this.buffer.putInt(VERSION);
+      this.buffer.putInt(0);
+      this.buffer.putLong(firstSeq);
+      this.offset += HEADER_SIZE;
+    } // header(long)
+
+    @SuppressWarnings("unchecked")
+    void entry(K key, Object value) throws IOException {
+      if (this.count % INDEX_INTERVAL == 0) {
+        this.indexKeys.add(key);
+        this.indexOffsets.add(this.offset);
+      } // if
+      int keySize = this.keySerializer.size(key);
+      int valueSize = (value == null || value == TOMBSTONE) ? 0
+          : 4 + this.valueSerializer.size((V) value);
+      int bytes = 4 + keySize + 1 + valueSize;
+      this.reserve(bytes);
+      this.buffer.putInt(keySize);
+      this.keySerializer.write(key, this.buffer);
+      if (value == TOMBSTONE) {
+        this.buffer.put(TOMBSTONE_KIND);
+      } else if (value == null) {
+        this.buffer.put(NULL_VALUE);
+      } else {
+        this.buffer.put(VALUE);
+        this.buffer.putInt(valueSize - 4);
+        this.valueSerializer.write((V) value, this.buffer);
+      } // if/else
+      this.offset += bytes;
+      this.count++;
+    } // entry(K, Object)
+
+    void finish() throws IOException {
+      long index = this.offset;
+      this.reserve(4);
+      this.buffer.putInt(this.indexKeys.size());
+      this.offset += 4;
+      for (int i = 0; i < this.indexKeys.size(); i++) {
+        K key = this.indexKeys.get(i);
+        int keySize = this.keySerializer.size(key);
+        this.reserve(12 + keySize);
+        this.buffer.putInt(keySize);
+        this.keySerializer.write(key, this.buffer);
+        this.buffer.putLong(this.indexOffsets.get(i));
+        this.offset += 12 + keySize;
+      } // for
+      this.drain();
+      int checksum = (int) this.crc.getValue();
+      this.buffer.putLong(index);
+      this.buffer.putLong(this.count);
+      this.buffer.putInt(checksum);
+      this.buffer.putLong(MAGIC);
+      this.drain();
+    } // finish()
+
+    /**
+     * Make sure the buffer has room for bytes more bytes.
+     */
+    void reserve(int bytes) throws IOException {
+      if (this.buffer.remaining() < bytes) {
+        this.drain();
+        if (this.buffer.capacity() < bytes) {
+          this.buffer = ByteBuffer.allocate(bytes);
+        } // if
+      } // if
+    } // reserve(int)
+
+    /**
+     * Write out the buffer, adding it to the checksum.
+     */
+    void drain() throws IOException {
+      this.buffer.flip();
+      this.crc.update(this.buffer.array(), 0, this.buffer.limit());
+      while (this.buffer.hasRemaining()) {
+        this.out.write(this.buffer);
+      } // while
+      this.buffer.clear();
+    } // drain()
+  } // class Writer<K,V>
+} // class SortedRun<K,V>
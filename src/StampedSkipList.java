@@ -0,0 +1,326 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A thread-safe wrapper for read-mostly skip lists. Writes take the write lock of a
+ * StampedLock. Lookups first search the list with no lock at all and then check, with
+ * StampedLock.validate, that no write started or finished in the meantime. Only if one did
+ * do they search again under the read lock. So readers never write to shared memory, and
+ * they scale with the number of cores as long as writes are rare.
+ *
+ * A search that races with a write can see the list half-changed. Nothing is published
+ * safely to it: it may see a new node whose key or tower is still null, a front that has
+ * just grown or shrunk, or links to nodes that have just been unlinked. Links only ever
+ * point toward larger keys, so such a search still ends. It may throw, though, for example
+ * a NullPointerException from the comparator or an IndexOutOfBoundsException from the
+ * front. We treat any exception from an optimistic search as interference and search again
+ * under the lock, where real errors are rethrown. A search that validates never looked at
+ * anything a writer touched, so its result stands.
+ *
+ * keys, values and forEach walk a VersionedSnapshot taken when they start. They take the
+ * read lock for one step at a time, so writers aren't held up by long scans and actions
+ * may write to the map.
+ *
+ * The wrapped list must not be used directly while wrapped. Its metrics must be thread-safe
+ * (SkipListMetrics.striped() is). Tuning is turned off, since the tuner changes the list's
+ * height from inside reads.
+ */
+public class StampedSkipList<K, V> implements SimpleMap<K, V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * What an optimistic search gives when it can't be trusted.
+   */
+  static final Object RETRY = new Object();
+
+  /**
+   * What a search gives when the key isn't there.
+   */
+  static final Object MISSING = new Object();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list we guard.
+   */
+  final SkipList<K, V> list;
+
+  /**
+   * The lock.
+   */
+  final StampedLock lock = new StampedLock();
+
+  /**
+   * The number of optimistic reads that had to fall back to the read lock.
+   */
+  final LongAdder fallbacks = new LongAdder();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Wrap list, which nothing else may use from now on.
+   */
+  public StampedSkipList(SkipList<K, V> list) {
+    list.disableTuning();
+    this.list = list;
+  } // StampedSkipList(SkipList<K,V>)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Set the value associated with key, under the write lock.
+   *
+   * @return the previous value associated with key (or null, if there's no such value)
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V set(K key, V value) {
+    long stamp = this.lock.writeLock();
+    try {
+      return this.list.set(key, value);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try/finally
+  } // set(K,V)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @throws IndexOutOfBoundsException if the key is not in the map.
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    Object result = this.search(key, SkipListMetrics.Op.GET);
+    if (result == MISSING) {
+      throw new IndexOutOfBoundsException("key invalid: " + key);
+    } // if
+    return (V) result;
+  } // get(K)
+
+  @Override
+  public int size() {
+    long stamp = this.lock.tryOptimisticRead();
+    int size = this.list.size();
+    if (this.lock.validate(stamp)) {
+      return size;
+    } // if
+    stamp = this.lock.readLock();
+    try {
+      return this.list.size();
+    } finally {
+      this.lock.unlockRead(stamp);
+    } // try/finally
+  } // size()
+
+  /**
+   * Determine if a key appears in the map.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    return this.search(key, SkipListMetrics.Op.CONTAINS_KEY) != MISSING;
+  } // containsKey(K)
+
+  /**
+   * Remove the value with the given key, under the write lock.
+   *
+   * @return The associated value (or null, if there is no associated value).
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public V remove(K key) {
+    long stamp = this.lock.writeLock();
+    try {
+      return this.list.remove(key);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try/finally
+  } // remove(K)
+
+  /**
+   * Get an iterator for the keys as they were when this was called.
+   */
+  @Override
+  public Iterator<K> keys() {
+    Scan scan = new Scan();
+    return new Iterator<K>() {
+      @Override
+      public boolean hasNext() {
+        return scan.hasNext();
+      } // hasNext()
+
+      @Override
+      public K next() {
+        scan.next();
+        return scan.key;
+      } // next()
+    };
+  } // keys()
+
+  /**
+   * Get an iterator for the values as they were when this was called.
+   */
+  @Override
+  public Iterator<V> values() {
+    Scan scan = new Scan();
+    return new Iterator<V>() {
+      @Override
+      public boolean hasNext() {
+        return scan.hasNext();
+      } // hasNext()
+
+      @Override
+      public V next() {
+        scan.next();
+        return scan.value;
+      } // next()
+    };
+  } // values()
+
+  /**
+   * Apply a function to each key/value pair as they were when this was called.
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Scan scan = new Scan(); scan.hasNext();) {
+      scan.next();
+      action.accept(scan.key, scan.value);
+    } // for
+  } // forEach(BiConsumer)
+
+  // +----------------------+----------------------------------------
+  // | Other public methods |
+  // +----------------------+
+
+  /**
+   * Get the number of lookups that a write interfered with, so that they had to take the
+   * read lock.
+   */
+  public long fallbacks() {
+    return this.fallbacks.sum();
+  } // fallbacks()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Look up key, optimistically if we can.
+   *
+   * @return the value, or MISSING if the key isn't there
+   * @throws NullPointerException if the key is null.
+   */
+  Object search(K key, SkipListMetrics.Op op) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0) {
+      Object result = this.find(key, op);
+      if (this.lock.validate(stamp) && result != RETRY) {
+        return result;
+      } // if
+    } // if
+    this.fallbacks.increment();
+    stamp = this.lock.readLock();
+    try {
+      SLNode<K, V> node = this.list.find(key, op);
+      return (node == null) ? MISSING : node.value;
+    } finally {
+      this.lock.unlockRead(stamp);
+    } // try/finally
+  } // search(K, SkipListMetrics.Op)
+
+  /**
+   * Search the list with no lock.
+   *
+   * @return the value, MISSING if the key isn't there, or RETRY if the search failed
+   */
+  Object find(K key, SkipListMetrics.Op op) {
+    try {
+      SLNode<K, V> node = this.list.find(key, op);
+      // Read the value before the caller validates, so it's covered too
+      return (node == null) ? MISSING : node.value;
+    } catch (RuntimeException e) {
+      // Most likely a half-finished write; either way, the caller searches again
+      return RETRY;
+    } // try/catch
+  } // find(K, SkipListMetrics.Op)
+
+  /**
+   * Take a snapshot of the list. (Taking one changes the list's history, so it needs the
+   * write lock, but only briefly.)
+   */
+  VersionedSnapshot<K, V> snapshot() {
+    long stamp = this.lock.writeLock();
+    try {
+      return this.list.snapshot();
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try/finally
+  } // snapshot()
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A walk over a snapshot that takes the read lock for each step, and closes the snapshot
+   * when it reaches the end.
+   */
+  class Scan {
+    final VersionedSnapshot<K, V> snapshot = StampedSkipList.this.snapshot();
+    final VersionedSnapshot<K, V>.Walk walk = this.snapshot.new Walk();
+    boolean done;
+
+    /**
+     * The entry from the last call to next.
+     */
+    K key;
+    V value;
+
+    boolean hasNext() {
+      if (this.done) {
+        return false;
+      } // if
+      long stamp = StampedSkipList.this.lock.readLock();
+      try {
+        this.done = !this.walk.hasNext();
+      } finally {
+        StampedSkipList.this.lock.unlockRead(stamp);
+      } // try/finally
+      if (this.done) {
+        this.snapshot.close();
+      } // if
+      return !this.done;
+    } // hasNext()
+
+    void next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      } // if
+      long stamp = StampedSkipList.this.lock.readLock();
+      try {
+        this.walk.next();
+        this.key = this.walk.key;
+        this.value = this.walk.value;
+      } finally {
+        StampedSkipList.this.lock.unlockRead(stamp);
+      } // try/finally
+    } // next()
+  } // class Scan
+} // class StampedSkipList<K,V>
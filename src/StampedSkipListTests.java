@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of stamped skip lists.
+ */
+public class StampedSkipListTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * On one thread, the wrapper should behave just like the list.
+   */
+  @Test
+  public void testSequential() {
+    StampedSkipList<Integer, String> stamped =
+        new StampedSkipList<Integer, String>(new SkipList<Integer, String>((i, j) -> i - j));
+    SkipList<Integer, String> expected = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 10000; i++) {
+      int key = random.nextInt(1000);
+      switch (random.nextInt(4)) {
+        case 0:
+          assertEquals(expected.set(key, "" + i), stamped.set(key, "" + i));
+          break;
+        case 1:
+          assertEquals(expected.remove(key), stamped.remove(key));
+          break;
+        default:
+          assertEquals(expected.containsKey(key), stamped.containsKey(key));
+          break;
+      } // switch
+    } // for
+    assertEquals(expected.size(), stamped.size());
+    Iterator<String> values = stamped.values();
+    Iterator<Integer> keys = stamped.keys();
+    for (Iterator<Integer> it = expected.keys(); it.hasNext();) {
+      Integer key = it.next();
+      assertEquals(key, keys.next());
+      assertEquals(expected.get(key), values.next());
+      assertEquals(expected.get(key), stamped.get(key));
+    } // for
+    assertFalse(keys.hasNext());
+    assertEquals(0, stamped.fallbacks());
+    try {
+      stamped.get(-1);
+      fail("get of a missing key should throw");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+  } // testSequential()
+
+  /**
+   * Readers racing with writers should always find the even keys, which the writers never
+   * touch, with the right values, and scans should see each even key exactly once, in order.
+   */
+  @Test
+  public void testConcurrent() throws InterruptedException {
+    StampedSkipList<Integer, String> stamped =
+        new StampedSkipList<Integer, String>(new SkipList<Integer, String>((i, j) -> i - j));
+    for (int i = 0; i < 2000; i += 2) {
+      stamped.set(i, SkipListTests.value(i));
+    } // for
+    AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    ArrayList<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      boolean writer = (t == 0);
+      boolean scanner = (t == 1);
+      threads.add(new Thread(() -> {
+        try {
+          ThreadLocalRandom rand = ThreadLocalRandom.current();
+          for (int i = 0; i < 20000; i++) {
+            int key = rand.nextInt(2000);
+            if (writer) {
+              key |= 1;
+              if (rand.nextBoolean()) {
+                stamped.set(key, "odd");
+              } else {
+                stamped.remove(key);
+              } // if/else
+            } else if (scanner && i % 2000 == 0) {
+              int expected = 0;
+              for (Iterator<Integer> it = stamped.keys(); it.hasNext();) {
+                Integer next = it.next();
+                if (next % 2 == 0) {
+                  assertEquals(expected, next.intValue());
+                  expected += 2;
+                } // if
+              } // for
+              assertEquals(2000, expected);
+            } else if (key % 2 == 0) {
+              assertEquals(SkipListTests.value(key), stamped.get(key));
+            } else {
+              stamped.containsKey(key);
+            } // if/else
+          } // for
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        } // try/catch
+      }));
+    } // for
+    for (Thread thread : threads) {
+      thread.start();
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    } // if
+  } // testConcurrent()
+} // class StampedSkipListTests
@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The values a SkipList has saved for its open snapshots.
+ *
+ * Versions count snapshots: each snapshot pins the current version, and the version then goes
+ * up by one, so every write happens at a version newer than every open snapshot. For each
+ * key, the history keeps a chain of Version records, newest first. A record with until = u
+ * holds the value the key had before its first write at version u, which is the value every
+ * snapshot from the previous record's until up to u - 1 should see. A snapshot at version v
+ * therefore uses the oldest record with until > v. If there's no such record, the key hasn't
+ * changed since v, and the live list has the right value.
+ */
+class VersionHistory<K, V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The saved "value" of a key that wasn't in the list.
+   */
+  static final Object ABSENT = new Object();
+
+  /**
+   * What lookup gives when the live list has the right value.
+   */
+  static final Object LIVE = new Object();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The chain of saved values for each key that has one.
+   */
+  final SkipList<K, Version> chains;
+
+  /**
+   * The version the next snapshot gets.
+   */
+  long version;
+
+  /**
+   * The versions of the open snapshots.
+   */
+  final TreeSet<Long> open = new TreeSet<Long>();
+
+  /**
+   * Versions of snapshots that were closed (or collected) but not yet removed from open.
+   * Snapshots can be closed from any thread, so this is the one thread-safe part.
+   */
+  final ConcurrentLinkedQueue<Long> released = new ConcurrentLinkedQueue<Long>();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  VersionHistory(SkipList<K, V> list) {
+    this.chains = new SkipList<K, Version>(list.comparator);
+  } // VersionHistory(SkipList<K,V>)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Pin the current version for a new snapshot.
+   */
+  long pin() {
+    long pinned = this.version++;
+    this.open.add(pinned);
+    return pinned;
+  } // pin()
+
+  /**
+   * Handle snapshots that were released, and drop records that no open snapshot needs.
+   *
+   * @return true if no snapshots are open, so the whole history can go
+   */
+  boolean reclaim() {
+    if (this.released.isEmpty()) {
+      return this.open.isEmpty();
+    } // if
+    Long oldest = this.open.isEmpty() ? null : this.open.first();
+    for (Long done = this.released.poll(); done != null; done = this.released.poll()) {
+      this.open.remove(done);
+    } // for
+    if (this.open.isEmpty()) {
+      return true;
+    } // if
+    if (!this.open.first().equals(oldest)) {
+      this.prune(this.open.first());
+    } // if
+    return false;
+  } // reclaim()
+
+  /**
+   * Save the value key has now (or ABSENT), unless it was already saved at this version.
+   *
+   * @pre at least one snapshot is open
+   */
+  void preserve(K key, Object value) {
+    SLNode<K, Version> node = this.chains.find(key, SkipListMetrics.Op.GET);
+    if (node == null) {
+      this.chains.set(key, new Version(this.version, value, null));
+    } else if (node.value.until != this.version) {
+      node.value = new Version(this.version, value, node.value);
+    } // if/else
+  } // preserve(K, Object)
+
+  /**
+   * Find the value key had at version v.
+   *
+   * @return the value, ABSENT, or LIVE if the live list has it
+   */
+  Object lookup(K key, long v) {
+    SLNode<K, Version> node = this.chains.find(key, SkipListMetrics.Op.GET);
+    return (node == null) ? LIVE : resolve(node.value, v);
+  } // lookup(K, long)
+
+  /**
+   * Find the value at version v in a chain (which may be null).
+   *
+   * @return the value, ABSENT, or LIVE if the key hasn't changed since v
+   */
+  static Object resolve(Version chain, long v) {
+    if (chain == null || chain.until <= v) {
+      return LIVE;
+    } // if
+    while (chain.older != null && chain.older.until > v) {
+      chain = chain.older;
+    } // while
+    return chain.value;
+  } // resolve(Version, long)
+
+  /**
+   * Drop the records that no snapshot at oldest or newer needs: those with until <= oldest.
+   * We set the value of a key we remove from chains to null, so that walks sitting on its
+   * node know to search again.
+   */
+  void prune(long oldest) {
+    ArrayList<SLNode<K, Version>> empty = new ArrayList<SLNode<K, Version>>();
+    for (SLNode<K, Version> node = this.chains.front.get(0); node != null;
+        node = node.next[0]) {
+      Version chain = node.value;
+      if (chain.until <= oldest) {
+        empty.add(node);
+      } else {
+        while (chain.older != null && chain.older.until > oldest) {
+          chain = chain.older;
+        } // while
+        chain.older = null;
+      } // if/else
+    } // for
+    for (SLNode<K, Version> node : empty) {
+      this.chains.remove(node.key);
+      node.value = null;
+    } // for
+  } // prune(long)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A saved value: what the key held before its first write at version until.
+   */
+  static class Version {
+    final long until;
+    final Object value;
+    Version older;
+
+    Version(long until, Object value, Version older) {
+      this.until = until;
+      this.value = value;
+      this.older = older;
+    } // Version(long, Object, Version)
+  } // class Version
+} // class VersionHistory<K,V>
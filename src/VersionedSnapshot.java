@@ -0,0 +1,370 @@
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * A read-only view of a SkipList as it was when SkipList.snapshot was called. The list
+ * stays writable. Before a write changes a key for the first time since the latest snapshot,
+ * the list saves the old value (or the fact that there wasn't one) in a VersionHistory.
+ * Reads from the snapshot check the history first and otherwise read the live list. So a
+ * snapshot costs nothing to take, and the list copies only the entries that change while
+ * snapshots are open.
+ *
+ * Iteration merges the live list with the history and stays consistent, whatever writes
+ * happen between steps. Like the list, snapshots are not thread-safe. A scan on one thread
+ * and writes on another still need a lock, but only around each single step or write. No
+ * one has to hold a lock for the whole scan.
+ *
+ * Close snapshots when done with them. Saved values stay around until every snapshot older
+ * than them is closed. A snapshot that is dropped without being closed is released when it
+ * is garbage collected. Either way, the list frees the saved values on its next write.
+ */
+public class VersionedSnapshot<K, V> implements SimpleMap<K, V>, AutoCloseable {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Releases snapshots that are garbage collected without being closed.
+   */
+  static final Cleaner CLEANER = Cleaner.create();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The list we're a snapshot of.
+   */
+  final SkipList<K, V> list;
+
+  /**
+   * The saved values.
+   */
+  final VersionHistory<K, V> history;
+
+  /**
+   * The version we're pinned to.
+   */
+  final long version;
+
+  /**
+   * The number of entries at that version.
+   */
+  final int size;
+
+  /**
+   * Hands our version back to the history, once.
+   */
+  final Release release;
+  final Cleaner.Cleanable cleanable;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Pin a new snapshot of list. (SkipList.snapshot is the usual way to make one.)
+   */
+  VersionedSnapshot(SkipList<K, V> list, VersionHistory<K, V> history) {
+    this.list = list;
+    this.history = history;
+    this.version = history.pin();
+    this.size = list.size();
+    this.release = new Release(history.released, this.version);
+    this.cleanable = CLEANER.register(this, this.release);
+  } // VersionedSnapshot(SkipList<K,V>, VersionHistory<K,V>)
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  /**
+   * Snapshots can't be changed.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  public V set(K key, V value) {
+    throw new UnsupportedOperationException("read-only snapshot");
+  } // set(K,V)
+
+  /**
+   * Get the value that key had when the snapshot was taken.
+   *
+   * @throws IndexOutOfBoundsException if the key was not in the map.
+   * @throws IllegalStateException if the snapshot is closed.
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    Object value = this.lookup(key);
+    if (value == VersionHistory.ABSENT) {
+      throw new IndexOutOfBoundsException("key invalid: " + key);
+    } // if
+    return (V) value;
+  } // get(K)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Determine if key was in the map when the snapshot was taken.
+   *
+   * @throws IllegalStateException if the snapshot is closed.
+   * @throws NullPointerException if the key is null.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    return this.lookup(key) != VersionHistory.ABSENT;
+  } // containsKey(K)
+
+  /**
+   * Snapshots can't be changed.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  public V remove(K key) {
+    throw new UnsupportedOperationException("read-only snapshot");
+  } // remove(K)
+
+  @Override
+  public Iterator<K> keys() {
+    Walk walk = new Walk();
+    return new Iterator<K>() {
+      @Override
+      public boolean hasNext() {
+        return walk.hasNext();
+      } // hasNext()
+
+      @Override
+      public K next() {
+        walk.next();
+        return walk.key;
+      } // next()
+    };
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    Walk walk = new Walk();
+    return new Iterator<V>() {
+      @Override
+      public boolean hasNext() {
+        return walk.hasNext();
+      } // hasNext()
+
+      @Override
+      public V next() {
+        walk.next();
+        return walk.value;
+      } // next()
+    };
+  } // values()
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Walk walk = new Walk(); walk.hasNext();) {
+      walk.next();
+      action.accept(walk.key, walk.value);
+    } // for
+  } // forEach(BiConsumer)
+
+  // +-----------------------+---------------------------------------
+  // | AutoCloseable methods |
+  // +-----------------------+
+
+  /**
+   * Release the snapshot, so that the list can free the values it saved for it. Closing
+   * twice does nothing.
+   */
+  @Override
+  public void close() {
+    this.cleanable.clean();
+  } // close()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure the snapshot is still open.
+   *
+   * @throws IllegalStateException if it isn't.
+   */
+  void checkOpen() {
+    if (this.release.done.get()) {
+      throw new IllegalStateException("snapshot closed");
+    } // if
+  } // checkOpen()
+
+  /**
+   * Find the value key had at our version.
+   *
+   * @return the value, or ABSENT if the key wasn't there
+   */
+  Object lookup(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    this.checkOpen();
+    Object saved = this.history.lookup(key, this.version);
+    if (saved != VersionHistory.LIVE) {
+      return saved;
+    } // if
+    SLNode<K, V> node = this.list.find(key, SkipListMetrics.Op.GET);
+    return (node == null) ? VersionHistory.ABSENT : node.value;
+  } // lookup(K)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Hands a version back to the history. This must not refer to the snapshot, or the cleaner
+   * would never see the snapshot become unreachable.
+   */
+  static class Release implements Runnable {
+    final ConcurrentLinkedQueue<Long> released;
+    final long version;
+    final AtomicBoolean done = new AtomicBoolean();
+
+    Release(ConcurrentLinkedQueue<Long> released, long version) {
+      this.released = released;
+      this.version = version;
+    } // Release(ConcurrentLinkedQueue<Long>, long)
+
+    @Override
+    public void run() {
+      if (this.done.compareAndSet(false, true)) {
+        this.released.add(this.version);
+      } // if
+    } // run()
+  } // class Release
+
+  /**
+   * A walk over the entries at our version, merging the live list with the history. A key
+   * that the history doesn't know can't have changed since the snapshot, so its live value
+   * is the right one. So, at each step, we take the smaller of the next live key and the next
+   * saved key, and resolve it through the history if it's a saved key.
+   *
+   * The walk has to notice keys that get saved after it starts. So it remembers the last
+   * saved node it used, rather than the next one, and reads that node's successor fresh at
+   * every step, skipping keys it has already passed (which were saved after it took their
+   * live values). The live side needs no such care. A key inserted into the live list after
+   * the snapshot is invisible to us anyway. A removed node still links to the node that
+   * followed it, and its key is saved.
+   */
+  class Walk {
+    /**
+     * The next live node to look at (null, at the end).
+     */
+    SLNode<K, V> live = VersionedSnapshot.this.list.front.get(0);
+
+    /**
+     * The last saved node we used (null, at the start).
+     */
+    SLNode<K, VersionHistory.Version> saved;
+
+    /**
+     * The last entry found (key is null until there is one).
+     */
+    K key;
+    V value;
+
+    /**
+     * Whether key and value already hold the entry that next should step to.
+     */
+    boolean ready;
+
+    /**
+     * Determine if there's another entry.
+     */
+    boolean hasNext() {
+      VersionedSnapshot.this.checkOpen();
+      if (!this.ready) {
+        this.ready = this.advance();
+      } // if
+      return this.ready;
+    } // hasNext()
+
+    /**
+     * Step to the next entry, leaving it in key and value.
+     */
+    void next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      } // if
+      this.ready = false;
+    } // next()
+
+    /**
+     * Find the next entry and put it in key and value.
+     *
+     * @return false if there are no more
+     */
+    @SuppressWarnings("unchecked")
+    boolean advance() {
+      SkipList<K, VersionHistory.Version> chains = VersionedSnapshot.this.history.chains;
+      while (true) {
+        SLNode<K, VersionHistory.Version> nextSaved;
+        if (this.saved == null) {
+          nextSaved = chains.front.get(0);
+        } else if (this.saved.value == null) {
+          // Our node was pruned from the history, so find where it used to be (skipping
+          // any newer node for the same key)
+          nextSaved = chains.ceilingNode(this.saved.key);
+          if (nextSaved != null
+              && chains.comparator.compare(nextSaved.key, this.saved.key) == 0) {
+            nextSaved = nextSaved.next[0];
+          } // if
+        } else {
+          nextSaved = this.saved.next[0];
+        } // if/else
+        while (this.key != null && nextSaved != null
+            && chains.comparator.compare(nextSaved.key, this.key) <= 0) {
+          this.saved = nextSaved;
+          nextSaved = nextSaved.next[0];
+        } // while (skip keys saved after we passed them)
+        if (this.live == null && nextSaved == null) {
+          return false;
+        } // if
+
+        int order = (this.live == null) ? 1
+            : (nextSaved == null) ? -1
+            : VersionedSnapshot.this.list.comparator.compare(this.live.key, nextSaved.key);
+        if (order < 0) {
+          // Not saved, so unchanged since the snapshot
+          this.key = this.live.key;
+          this.value = this.live.value;
+          this.live = this.live.next[0];
+          return true;
+        } // if
+
+        SLNode<K, V> current = null;
+        if (order == 0) {
+          current = this.live;
+          this.live = this.live.next[0];
+        } // if
+        this.saved = nextSaved;
+        Object old = VersionHistory.resolve(nextSaved.value, VersionedSnapshot.this.version);
+        if (old == VersionHistory.LIVE && current != null) {
+          this.key = current.key;
+          this.value = current.value;
+          return true;
+        } else if (old != VersionHistory.LIVE && old != VersionHistory.ABSENT) {
+          this.key = nextSaved.key;
+          this.value = (V) old;
+          return true;
+        } // if/else
+      } // while
+    } // advance()
+  } // class Walk
+} // class VersionedSnapshot<K,V>
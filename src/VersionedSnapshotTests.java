@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of versioned snapshots.
+ */
+public class VersionedSnapshotTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Copy a map's entries, in iteration order.
+   */
+  static TreeMap<Integer, String> copy(SimpleMap<Integer, String> map) {
+    TreeMap<Integer, String> result = new TreeMap<Integer, String>();
+    map.forEach((key, value) -> assertNull("duplicate key " + key, result.put(key, value)));
+    return result;
+  } // copy(SimpleMap<Integer,String>)
+
+  /**
+   * Make a random change to list.
+   */
+  void change(SkipList<Integer, String> list, int i) {
+    int key = random.nextInt(200);
+    if (random.nextBoolean()) {
+      list.set(key, "v" + i);
+    } else {
+      list.remove(key);
+    } // if/else
+  } // change(SkipList<Integer,String>, int)
+
+  /**
+   * Make sure a snapshot holds exactly the expected entries, by lookup and by iteration.
+   */
+  static void assertHolds(TreeMap<Integer, String> expected,
+      VersionedSnapshot<Integer, String> snapshot) {
+    assertEquals(expected.size(), snapshot.size());
+    assertEquals(expected, copy(snapshot));
+    for (int key = -1; key <= 200; key++) {
+      assertEquals(expected.containsKey(key), snapshot.containsKey(key));
+      if (expected.containsKey(key)) {
+        assertEquals(expected.get(key), snapshot.get(key));
+      } // if
+    } // for
+  } // assertHolds(TreeMap<Integer,String>, VersionedSnapshot<Integer,String>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Several snapshots taken between random changes should each keep seeing the list as it
+   * was, however it changes afterward and whichever others are closed.
+   */
+  @Test
+  public void testPointInTime() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    ArrayList<VersionedSnapshot<Integer, String>> snapshots =
+        new ArrayList<VersionedSnapshot<Integer, String>>();
+    ArrayList<TreeMap<Integer, String>> expected = new ArrayList<TreeMap<Integer, String>>();
+    for (int i = 0; i < 5000; i++) {
+      change(list, i);
+      if (i % 250 == 0) {
+        snapshots.add(list.snapshot());
+        expected.add(copy(list));
+      } // if
+      if (i % 700 == 0 && snapshots.size() > 1) {
+        int which = random.nextInt(snapshots.size());
+        assertHolds(expected.remove(which), snapshots.get(which));
+        snapshots.remove(which).close();
+      } // if
+    } // for
+    for (int i = 0; i < snapshots.size(); i++) {
+      assertHolds(expected.get(i), snapshots.get(i));
+    } // for
+  } // testPointInTime()
+
+  /**
+   * Iterating over a snapshot while the list changes between steps should give exactly the
+   * entries at the time of the snapshot.
+   */
+  @Test
+  public void testIterateWhileWriting() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int trial = 0; trial < 50; trial++) {
+      for (int i = 0; i < 100; i++) {
+        change(list, i);
+      } // for
+      TreeMap<Integer, String> expected = copy(list);
+      VersionedSnapshot<Integer, String> older = list.snapshot();
+      VersionedSnapshot<Integer, String> snapshot = list.snapshot();
+      older.close();
+      TreeMap<Integer, String> seen = new TreeMap<Integer, String>();
+      Iterator<Integer> keys = snapshot.keys();
+      Iterator<String> values = snapshot.values();
+      while (keys.hasNext()) {
+        for (int i = random.nextInt(10); i > 0; i--) {
+          change(list, i);
+        } // for
+        Integer key = keys.next();
+        String value = values.next();
+        assertNull(seen.put(key, value));
+        if (random.nextInt(20) == 0) {
+          // Another snapshot coming and going shouldn't disturb this one
+          list.snapshot().close();
+        } // if
+      } // while
+      assertFalse(values.hasNext());
+      assertEquals(expected, seen);
+      snapshot.close();
+    } // for
+  } // testIterateWhileWriting()
+
+  /**
+   * Saved values should go once the snapshots that need them close, and a closed snapshot
+   * should refuse to be read.
+   */
+  @Test
+  public void testReclaim() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 100; i++) {
+      list.set(i, "old");
+    } // for
+    VersionedSnapshot<Integer, String> first = list.snapshot();
+    for (int i = 0; i < 100; i++) {
+      list.set(i, "middle");
+    } // for
+    VersionedSnapshot<Integer, String> second = list.snapshot();
+    list.set(0, "new");
+    assertEquals(100, list.history.chains.size());
+    first.close();
+    first.close();
+    list.set(1, "new");
+    // Only the keys changed since the second snapshot are still saved
+    assertEquals(2, list.history.chains.size());
+    assertEquals("middle", second.get(0));
+    assertEquals("middle", second.get(1));
+    second.close();
+    list.set(2, "new");
+    assertNull(list.history);
+    try {
+      second.get(0);
+      fail("a closed snapshot should throw");
+    } catch (IllegalStateException e) {
+      // Expected
+    } // try/catch
+    try {
+      second.set(0, "");
+      fail("snapshots are read-only");
+    } catch (UnsupportedOperationException e) {
+      // Expected
+    } // try/catch
+  } // testReclaim()
+
+  /**
+   * Batch operations, bulk loads and indexed lists should also preserve old values.
+   */
+  @Test
+  public void testOtherWriters() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    VersionedSnapshot<Integer, String> empty = list.snapshot();
+    list.loadSorted(SkipListTests.entries(50).iterator(), true);
+    VersionedSnapshot<Integer, String> loaded = list.snapshot();
+    list.setAll(SkipListTests.entries(100));
+    list.removeAll(java.util.Arrays.asList(1, 2, 3));
+    assertEquals(0, copy(empty).size());
+    assertEquals(50, copy(loaded).size());
+    assertEquals(SkipListTests.value(2), loaded.get(2));
+
+    IndexedSkipList<Integer, String> indexed =
+        new IndexedSkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 200; i++) {
+      change(indexed, i);
+    } // for
+    TreeMap<Integer, String> expected = copy(indexed);
+    VersionedSnapshot<Integer, String> snapshot = indexed.snapshot();
+    for (int i = 0; i < 200; i++) {
+      change(indexed, i);
+    } // for
+    assertHolds(expected, snapshot);
+  } // testOtherWriters()
+
+  /**
+   * removeRange, split and concatenate should preserve the entries they take out of a list,
+   * on both sides of a concatenate.
+   */
+  @Test
+  public void testSplicing() {
+    SkipList<Integer, String> list = SkipList.fromSorted((i, j) -> i - j,
+        SkipListTests.entries(100).iterator(), false);
+    TreeMap<Integer, String> expected = copy(list);
+    VersionedSnapshot<Integer, String> snapshot = list.snapshot();
+    assertEquals(10, list.removeRange(10, 20));
+    SkipList<Integer, String> high = list.split(50);
+    SkipList<Integer, String> other = new SkipList<Integer, String>((i, j) -> i - j);
+    other.set(500, "five hundred");
+    VersionedSnapshot<Integer, String> single = other.snapshot();
+    list.concatenate(other);
+    assertEquals(50, high.size());
+    assertEquals(41, list.size());
+    assertEquals(0, other.size());
+    assertHolds(expected, snapshot);
+    assertEquals(1, copy(single).size());
+    assertEquals("five hundred", single.get(500));
+  } // testSplicing()
+
+  /**
+   * mergeFrom should preserve old values both when it sets the other list's entries one by
+   * one and when it rebuilds the list.
+   */
+  @Test
+  public void testMergeFrom() {
+    SkipList<Integer, String> list = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 200; i++) {
+      change(list, i);
+    } // for
+    TreeMap<Integer, String> expected = copy(list);
+    VersionedSnapshot<Integer, String> snapshot = list.snapshot();
+    SkipList<Integer, String> small = new SkipList<Integer, String>((i, j) -> i - j);
+    for (int i = 0; i < 20; i++) {
+      small.set(random.nextInt(300), "small");
+    } // for
+    list.mergeFrom(small, (a, b) -> a + b);
+    SkipList<Integer, String> large = SkipList.fromSorted(list.comparator,
+        SkipListTests.entries(300).iterator(), false);
+    list.mergeFrom(large, (a, b) -> b);
+    assertEquals(300, list.size());
+    assertHolds(expected, snapshot);
+  } // testMergeFrom()
+} // class VersionedSnapshotTests
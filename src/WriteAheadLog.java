@@ -0,0 +1,506 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.zip.CRC32C;
+
+/**
+ * A write-ahead log of set and remove operations on a map, kept as a series of segment files
+ * in a directory. Each record gets a log sequence number (LSN), starting at 1.
+ *
+ * Appending a record only buffers it; sync(lsn) makes sure it's on disk. Syncs use group
+ * commit: whichever thread gets to the file first writes and fsyncs everything appended so far,
+ * and threads whose records went out in that batch return without an fsync of their own. So
+ * with many writers, one fsync covers many records.
+ *
+ * Record format: int payload length, int CRC32C of the payload, then the payload, which is
+ * long LSN, byte operation, int key size, key bytes and, for sets, int value size (-1 for null)
+ * and value bytes. A record with a bad length or checksum at the end of the last segment is a
+ * torn write from a crash, and is dropped when the log is opened.
+ *
+ * Segments are named by the LSN of their first record, and a new one is started once the
+ * current one reaches segmentSize bytes. After a checkpoint (e.g., a snapshot of the map that
+ * covers every record up to some LSN), truncate removes the segments it made unnecessary.
+ */
+public class WriteAheadLog<K, V> implements Closeable {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Operation codes.
+   */
+  static final byte SET = 1;
+  static final byte REMOVE = 2;
+
+  /**
+   * The bytes before a record's payload: length and checksum.
+   */
+  static final int RECORD_HEADER = 8;
+
+  /**
+   * The fixed part of a payload: LSN, operation, and key size.
+   */
+  static final int PAYLOAD_HEADER = 13;
+
+  /**
+   * The suffix of segment file names.
+   */
+  static final String SUFFIX = ".wal";
+
+  /**
+   * The default segment size.
+   */
+  static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The directory that holds the segments.
+   */
+  final Path dir;
+
+  /**
+   * How to write keys.
+   */
+  final Serializer<K> keySerializer;
+
+  /**
+   * How to write values.
+   */
+  final Serializer<V> valueSerializer;
+
+  /**
+   * Roll to a new segment once the current one is at least this long.
+   */
+  final long segmentSize;
+
+  /**
+   * Serializes writes to the file (and rolling and truncation).
+   */
+  final Object commitLock = new Object();
+
+  /**
+   * The segment we're appending to. Guarded by commitLock.
+   */
+  FileChannel segment;
+
+  /**
+   * The first LSN of the current segment. Guarded by commitLock.
+   */
+  long segmentStart;
+
+  /**
+   * Records appended but not yet written. Guarded by this.
+   */
+  ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+
+  /**
+   * A second buffer, so that appends can continue while a batch is written. Guarded by
+   * commitLock.
+   */
+  ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+
+  /**
+   * The LSN the next record will get. Guarded by this.
+   */
+  long nextLsn;
+
+  /**
+   * Every record up to this one is on disk.
+   */
+  volatile long durableLsn;
+
+  /**
+   * How many fsyncs we've done, to see how well group commit is batching.
+   */
+  volatile long syncs;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Start appending to a new segment whose first record will be nextLsn.
+   */
+  WriteAheadLog(Path dir, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+      long segmentSize, long nextLsn) throws IOException {
+    this.dir = dir;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.segmentSize = segmentSize;
+    this.nextLsn = nextLsn;
+    this.durableLsn = nextLsn - 1;
+    this.segmentStart = nextLsn;
+    this.segment = FileChannel.open(segmentPath(dir, nextLsn), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  } // WriteAheadLog(...)
+
+  /**
+   * Open the log in dir (creating the directory if need be) for appending. Drops any torn
+   * record at the end of the last segment.
+   *
+   * @throws IOException if the directory can't be read or a segment other than the last is
+   *   damaged.
+   */
+  public static <K, V> WriteAheadLog<K, V> open(Path dir, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer, long segmentSize) throws IOException {
+    Files.createDirectories(dir);
+    ArrayList<Long> starts = segments(dir);
+    long nextLsn = 1;
+    if (!starts.isEmpty()) {
+      long last = starts.get(starts.size() - 1);
+      Path path = segmentPath(dir, last);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        Scan scan = scan(channel, keySerializer, valueSerializer, null);
+        channel.truncate(scan.validBytes);
+        channel.force(true);
+        nextLsn = (scan.lastLsn == 0) ? last : scan.lastLsn + 1;
+      } // try
+      if (nextLsn == last) {
+        // The last segment is empty, so we'll reuse its name
+        Files.delete(path);
+      } // if
+    } // if
+    return new WriteAheadLog<K, V>(dir, keySerializer, valueSerializer, segmentSize, nextLsn);
+  } // open(Path, Serializer<K>, Serializer<V>, long)
+
+  /**
+   * Open the log in dir with the default segment size.
+   */
+  public static <K, V> WriteAheadLog<K, V> open(Path dir, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer) throws IOException {
+    return open(dir, keySerializer, valueSerializer, DEFAULT_SEGMENT_SIZE);
+  } // open(Path, Serializer<K>, Serializer<V>)
+
+  // +---------+-----------------------------------------------------
+  // | Logging |
+  // +---------+
+
+  /**
+   * Append a set of key to value.
+   *
+   * @return the record's LSN, to pass to sync.
+   */
+  public long logSet(K key, V value) {
+    return this.append(SET, key, value);
+  } // logSet(K,V)
+
+  /**
+   * Append a removal of key.
+   *
+   * @return the record's LSN, to pass to sync.
+   */
+  public long logRemove(K key) {
+    return this.append(REMOVE, key, null);
+  } // logRemove(K)
+
+  /**
+   * Make sure every record up to and including lsn is on disk.
+   *
+   * @throws IOException if the write or fsync fails. The log should not be used afterwards.
+   */
+  public void sync(long lsn) throws IOException {
+    if (this.durableLsn >= lsn) {
+      return;
+    } // if
+    synchronized (this.commitLock) {
+      // Someone else may have written our record while we waited
+      if (this.durableLsn >= lsn) {
+        return;
+      } // if
+      ByteBuffer batch;
+      long last;
+      synchronized (this) {
+        batch = this.pending;
+        this.pending = this.spare;
+        last = this.nextLsn - 1;
+      } // synchronized
+      batch.flip();
+      while (batch.hasRemaining()) {
+        this.segment.write(batch);
+      } // while
+      this.segment.force(false);
+      this.syncs++;
+      this.durableLsn = last;
+      batch.clear();
+      this.spare = batch;
+      if (this.segment.size() >= this.segmentSize) {
+        this.roll(last + 1);
+      } // if
+    } // synchronized
+  } // sync(long)
+
+  /**
+   * Make sure every record appended so far is on disk.
+   */
+  public void sync() throws IOException {
+    long last;
+    synchronized (this) {
+      last = this.nextLsn - 1;
+    } // synchronized
+    this.sync(last);
+  } // sync()
+
+  /**
+   * Get the LSN of the last record appended.
+   */
+  public synchronized long lastLsn() {
+    return this.nextLsn - 1;
+  } // lastLsn()
+
+  /**
+   * Get the number of fsyncs so far.
+   */
+  public long syncs() {
+    return this.syncs;
+  } // syncs()
+
+  /**
+   * Sync and close the current segment.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this.commitLock) {
+      if (this.segment.isOpen()) {
+        this.sync();
+        this.segment.close();
+      } // if
+    } // synchronized
+  } // close()
+
+  // +-------------+-------------------------------------------------
+  // | Maintenance |
+  // +-------------+
+
+  /**
+   * Delete every segment whose records all have LSNs of at most lsn, e.g., after a checkpoint
+   * that covers lsn. The segment being appended to is never deleted; call roll first to make
+   * it eligible.
+   *
+   * @return the number of segments deleted
+   */
+  public int truncate(long lsn) throws IOException {
+    synchronized (this.commitLock) {
+      ArrayList<Long> starts = segments(this.dir);
+      int deleted = 0;
+      // A segment is covered if the next one starts no later than lsn + 1
+      for (int i = 0; i + 1 < starts.size() && starts.get(i + 1) <= lsn + 1; i++) {
+        Files.delete(segmentPath(this.dir, starts.get(i)));
+        deleted++;
+      } // for
+      return deleted;
+    } // synchronized
+  } // truncate(long)
+
+  /**
+   * Sync, then start a new segment.
+   */
+  public void roll() throws IOException {
+    synchronized (this.commitLock) {
+      this.sync();
+      if (this.segment.size() > 0) {
+        this.roll(this.durableLsn + 1);
+      } // if
+    } // synchronized
+  } // roll()
+
+  // +--------+------------------------------------------------------
+  // | Replay |
+  // +--------+
+
+  /**
+   * Apply every record after fromLsn to map, in order. Meant to be called on a freshly opened
+   * log, before anything is appended.
+   *
+   * @return the number of records applied
+   * @throws IOException if a segment can't be read or is damaged.
+   */
+  public long replay(SimpleMap<K, V> map, long fromLsn) throws IOException {
+    synchronized (this.commitLock) {
+      long[] applied = new long[1];
+      for (long start : segments(this.dir)) {
+        if (start == this.segmentStart) {
+          break;
+        } // if we've reached the segment we're writing
+        try (FileChannel channel = FileChannel.open(segmentPath(this.dir, start),
+            StandardOpenOption.READ)) {
+          Scan scan = scan(channel, (lsn, op, key, value) -> {
+            if (lsn > fromLsn) {
+              if (op == SET) {
+                map.set(key, value);
+              } else {
+                map.remove(key);
+              } // if/else
+              applied[0]++;
+            } // if
+          });
+          if (scan.validBytes != channel.size()) {
+            throw new IOException("damaged log segment " + segmentPath(this.dir, start));
+          } // if
+        } // try
+      } // for
+      return applied[0];
+    } // synchronized
+  } // replay(SimpleMap<K,V>, long)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Add a record to the pending buffer.
+   */
+  synchronized long append(byte op, K key, V value) {
+    int keySize = this.keySerializer.size(key);
+    int valueSize = (value == null) ? -1 : this.valueSerializer.size(value);
+    int payload = PAYLOAD_HEADER + keySize + ((op == SET) ? 4 + Math.max(valueSize, 0) : 0);
+    if (this.pending.remaining() < RECORD_HEADER + payload) {
+      ByteBuffer bigger = ByteBuffer.allocate(
+          Math.max(2 * this.pending.capacity(), this.pending.position() + RECORD_HEADER + payload));
+      this.pending.flip();
+      bigger.put(this.pending);
+      this.pending = bigger;
+    } // if
+    long lsn = this.nextLsn++;
+    int start = this.pending.position();
+    this.pending.position(start + RECORD_HEADER);
+    this.pending.putLong(lsn);
+    this.pending.put(op);
+    this.pending.putInt(keySize);
+    this.keySerializer.write(key, this.pending);
+    if (op == SET) {
+      this.pending.putInt(valueSize);
+      if (value != null) {
+        this.valueSerializer.write(value, this.pending);
+      } // if
+    } // if
+    CRC32C crc = new CRC32C();
+    crc.update(this.pending.array(), start + RECORD_HEADER, payload);
+    this.pending.putInt(start, payload);
+    this.pending.putInt(start + 4, (int) crc.getValue());
+    return lsn;
+  } // append(byte, K, V)
+
+  /**
+   * Close the current segment and start one whose first record will be first.
+   *
+   * @pre the caller holds commitLock and everything appended has been written
+   */
+  void roll(long first) throws IOException {
+    this.segment.close();
+    this.segmentStart = first;
+    this.segment = FileChannel.open(segmentPath(this.dir, first), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  } // roll(long)
+
+  /**
+   * Read the records in a segment, passing each one to visitor (if it's not null), and stop at
+   * the first one that's incomplete or fails its checksum.
+   */
+  Scan scan(FileChannel channel, RecordVisitor<K, V> visitor) throws IOException {
+    return scan(channel, this.keySerializer, this.valueSerializer, visitor);
+  } // scan(FileChannel, RecordVisitor<K,V>)
+
+  /**
+   * Read the records in a segment, as above, with the given serializers. When visitor is null
+   * the keys and values aren't deserialized at all.
+   */
+  static <K, V> Scan scan(FileChannel channel, Serializer<K> keySerializer,
+      Serializer<V> valueSerializer, RecordVisitor<K, V> visitor) throws IOException {
+    ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    Scan result = new Scan();
+    CRC32C crc = new CRC32C();
+    while (data.remaining() >= RECORD_HEADER) {
+      int start = data.position();
+      int payload = data.getInt();
+      int checksum = data.getInt();
+      if (payload < PAYLOAD_HEADER || payload > data.remaining()) {
+        break;
+      } // if the record is incomplete
+      crc.reset();
+      ByteBuffer body = data.slice(start + RECORD_HEADER, payload);
+      crc.update(body);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      } // if the record is damaged
+      long lsn = data.getLong();
+      byte op = data.get();
+      int keySize = data.getInt();
+      if (visitor != null) {
+        K key = keySerializer.read(data, keySize);
+        V value = null;
+        if (op == SET) {
+          int valueSize = data.getInt();
+          value = (valueSize < 0) ? null : valueSerializer.read(data, valueSize);
+        } // if
+        visitor.visit(lsn, op, key, value);
+      } // if
+      data.position(start + RECORD_HEADER + payload);
+      result.lastLsn = lsn;
+      result.validBytes = data.position();
+    } // while
+    return result;
+  } // scan(FileChannel, Serializer<K>, Serializer<V>, RecordVisitor<K,V>)
+
+  /**
+   * Find the starting LSNs of the segments in dir, in order.
+   */
+  static ArrayList<Long> segments(Path dir) throws IOException {
+    ArrayList<Long> starts = new ArrayList<Long>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        starts.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+      } // for
+    } // try
+    Collections.sort(starts);
+    return starts;
+  } // segments(Path)
+
+  /**
+   * Get the path of the segment whose first record is first.
+   */
+  static Path segmentPath(Path dir, long first) {
+    return dir.resolve(String.format("%020d%s", first, SUFFIX));
+  } // segmentPath(Path, long)
+
+  // +------------------+--------------------------------------------
+  // | Inner Interfaces |
+  // +------------------+
+
+  /**
+   * Something that wants to see the records in a segment.
+   */
+  interface RecordVisitor<K, V> {
+    void visit(long lsn, byte op, K key, V value);
+  } // interface RecordVisitor<K,V>
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * What we learned by scanning a segment.
+   */
+  static class Scan {
+    /**
+     * The LSN of the last intact record (0 if there were none).
+     */
+    long lastLsn = 0;
+
+    /**
+     * The number of bytes up to the end of the last intact record.
+     */
+    long validBytes = 0;
+  } // class Scan
+} // class WriteAheadLog
@@ -0,0 +1,87 @@
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Throughput of LoggedSkipList, where every write waits for its log record to be fsynced, at
+ * 1, 2, 4, ... writer threads, showing how group commit shares fsyncs among writers. Then
+ * measures how fast the resulting log replays into a fresh list, in records per second.
+ *
+ * Usage: java WriteAheadLogBenchmark [writesPerThread] [valueBytes] [dir]
+ */
+public class WriteAheadLogBenchmark {
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws Exception {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int writes = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+    int valueBytes = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+    Path parent = Path.of((args.length > 2) ? args[2] : System.getProperty("java.io.tmpdir"));
+    int cores = Runtime.getRuntime().availableProcessors();
+    String value = "x".repeat(valueBytes);
+
+    pen.println(writes + " synced writes per thread, " + valueBytes + "-byte values, " + cores
+        + " cores");
+    pen.println();
+    pen.printf("%8s %14s %14s %18s %18s%n", "Threads", "Writes/s", "Records/fsync",
+        "Replay records/s", "Replay MB/s");
+    for (int threads = 1; threads <= cores;
+        threads = ConcurrentSkipListBenchmark.nextThreadCount(threads, cores)) {
+      Path dir = Files.createTempDirectory(parent, "wal");
+      try {
+        LoggedSkipList<Integer, String> list =
+            LoggedSkipList.open(dir, (i, j) -> i - j, Serializer.INTEGER, Serializer.STRING);
+        double writesPerSecond = write(list, threads, writes, value);
+        long records = list.log().lastLsn();
+        double perSync = (double) records / list.log().syncs();
+        list.close();
+
+        long bytes = 0;
+        for (long start : WriteAheadLog.segments(dir)) {
+          bytes += Files.size(WriteAheadLog.segmentPath(dir, start));
+        } // for
+        long start = System.nanoTime();
+        list = LoggedSkipList.open(dir, (i, j) -> i - j, Serializer.INTEGER, Serializer.STRING);
+        long nanos = System.nanoTime() - start;
+        list.close();
+        pen.printf("%8d %14.0f %14.1f %18.0f %18.1f%n", threads, writesPerSecond, perSync,
+            records * 1e9 / nanos, bytes * 1e3 / nanos);
+      } finally {
+        for (long start : WriteAheadLog.segments(dir)) {
+          Files.delete(WriteAheadLog.segmentPath(dir, start));
+        } // for
+        Files.delete(dir);
+      } // try/finally
+    } // for
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Have several threads each set their own keys.
+   *
+   * @return writes per second, summed over all threads
+   */
+  static double write(LoggedSkipList<Integer, String> list, int threads, int writes,
+      String value) throws InterruptedException {
+    Thread[] workers = new Thread[threads];
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      int base = t * writes;
+      workers[t] = new Thread(() -> {
+        for (int i = base; i < base + writes; i++) {
+          list.set(i, value);
+        } // for
+      });
+      workers[t].start();
+    } // for
+    for (Thread worker : workers) {
+      worker.join();
+    } // for
+    return (double) threads * writes * 1e9 / (System.nanoTime() - start);
+  } // write(LoggedSkipList<Integer,String>, int, int, String)
+} // class WriteAheadLogBenchmark
@@ -0,0 +1,363 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Some tests of write-ahead logs and logged skip lists.
+ */
+public class WriteAheadLogTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A random number generator for the randomized tests.
+   */
+  Random random = new Random();
+
+  /**
+   * How to order the keys.
+   */
+  static final Comparator<Integer> INTS = (i, j) -> i - j;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make an empty directory for a log.
+   */
+  static Path newDir() throws IOException {
+    return Files.createTempDirectory("wal");
+  } // newDir()
+
+  /**
+   * Remove a log directory and everything in it.
+   */
+  static void deleteDir(Path dir) throws IOException {
+    for (long start : WriteAheadLog.segments(dir)) {
+      Files.delete(WriteAheadLog.segmentPath(dir, start));
+    } // for
+    Files.delete(dir);
+  } // deleteDir(Path)
+
+  /**
+   * Make sure two maps hold the same entries, in the same order.
+   */
+  static void assertSameEntries(SkipList<Integer, String> expected,
+      SkipList<Integer, String> actual) {
+    assertEquals(expected.size(), actual.size());
+    Iterator<Integer> actualKeys = actual.keys();
+    for (Iterator<Integer> keys = expected.keys(); keys.hasNext();) {
+      Integer key = keys.next();
+      assertEquals(key, actualKeys.next());
+      assertEquals(expected.get(key), actual.get(key));
+    } // for
+    assertFalse(actualKeys.hasNext());
+  } // assertSameEntries(SkipList<Integer,String>, SkipList<Integer,String>)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Random sets and removes should come back after reopening, across many small segments.
+   */
+  @Test
+  public void testReplay() throws IOException {
+    Path dir = newDir();
+    try {
+      SkipList<Integer, String> expected = new SkipList<Integer, String>(INTS);
+      LoggedSkipList<Integer, String> ints =
+          LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING, 1024);
+      for (int i = 0; i < 2000; i++) {
+        int key = random.nextInt(500);
+        if (random.nextInt(3) > 0) {
+          String value = (random.nextInt(10) == 0) ? null : SkipListTests.value(key);
+          assertEquals(expected.set(key, value), ints.set(key, value));
+        } else {
+          assertEquals(expected.remove(key), ints.remove(key));
+        } // if/else
+      } // for
+      ints.close();
+      assertTrue(WriteAheadLog.segments(dir).size() > 1);
+
+      ints = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING, 1024);
+      assertSameEntries(expected, ints);
+
+      // Keep going, including removals that go through a cursor, then reopen again
+      ints.set(1000, "one thousand");
+      expected.set(1000, "one thousand");
+      ints.removeIf((key, value) -> key % 7 == 0);
+      expected.removeIf((key, value) -> key % 7 == 0);
+      Iterator<Integer> keys = ints.keys();
+      keys.next();
+      keys.remove();
+      expected.remove(expected.keys().next());
+      ints.close();
+      ints = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING, 1024);
+      assertSameEntries(expected, ints);
+      ints.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testReplay()
+
+  /**
+   * removeRange, split and concatenate on logged lists should come back after reopening,
+   * including when the list whose entries concatenate takes is logged too.
+   */
+  @Test
+  public void testSplicing() throws IOException {
+    Path dir = newDir();
+    Path otherDir = newDir();
+    try {
+      LoggedSkipList<Integer, String> ints =
+          LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      LoggedSkipList<Integer, String> other =
+          LoggedSkipList.open(otherDir, INTS, Serializer.INTEGER, Serializer.STRING);
+      ints.setAll(SkipListTests.entries(500));
+      other.set(1000, "one thousand");
+      assertEquals(100, ints.removeRange(100, 200));
+      assertEquals(100, ints.split(400).size());
+      ints.concatenate(other);
+      ints.close();
+      other.close();
+
+      SkipList<Integer, String> expected = new SkipList<Integer, String>(INTS);
+      expected.setAll(SkipListTests.entries(500));
+      expected.removeRange(100, 200);
+      expected.removeRange(400, null);
+      expected.set(1000, "one thousand");
+      ints = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      assertSameEntries(expected, ints);
+      ints.close();
+      other = LoggedSkipList.open(otherDir, INTS, Serializer.INTEGER, Serializer.STRING);
+      assertEquals(0, other.size());
+      other.close();
+    } finally {
+      deleteDir(dir);
+      deleteDir(otherDir);
+    } // try/finally
+  } // testSplicing()
+
+  /**
+   * Both ways of merging into a logged list should come back after reopening.
+   */
+  @Test
+  public void testMergeFrom() throws IOException {
+    Path dir = newDir();
+    try {
+      SkipList<Integer, String> expected = new SkipList<Integer, String>(INTS);
+      LoggedSkipList<Integer, String> ints =
+          LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      for (int i = 0; i < 200; i++) {
+        int key = random.nextInt(500);
+        ints.set(key, SkipListTests.value(key));
+        expected.set(key, SkipListTests.value(key));
+      } // for
+      SkipList<Integer, String> delta = new SkipList<Integer, String>(INTS);
+      for (int i = 0; i < 20; i++) {
+        delta.set(random.nextInt(600), "delta");
+      } // for
+      // A small delta is set entry by entry; a larger list makes mergeFrom rebuild
+      ints.mergeFrom(delta, (a, b) -> a + b);
+      expected.mergeFrom(delta, (a, b) -> a + b);
+      SkipList<Integer, String> large =
+          SkipList.fromSorted(INTS, SkipListTests.entries(600).iterator(), false);
+      ints.mergeFrom(large, (a, b) -> a + "!");
+      expected.mergeFrom(large, (a, b) -> a + "!");
+      assertEquals(600, ints.size());
+      ints.close();
+      ints = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      assertSameEntries(expected, ints);
+      ints.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testMergeFrom()
+
+  /**
+   * A record cut off by a crash should be dropped, and the ones before it kept.
+   */
+  @Test
+  public void testTornTail() throws IOException {
+    Path dir = newDir();
+    try {
+      LoggedSkipList<Integer, String> ints =
+          LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      ints.set(1, "one");
+      ints.set(2, "two");
+      ints.close();
+      ArrayList<Long> starts = WriteAheadLog.segments(dir);
+      Path last = WriteAheadLog.segmentPath(dir, starts.get(starts.size() - 1));
+      try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+        channel.truncate(channel.size() - 3);
+      } // try
+
+      ints = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      assertEquals(1, ints.size());
+      assertEquals("one", ints.get(1));
+      assertEquals(1, ints.log().lastLsn());
+      ints.set(3, "three");
+      ints.close();
+
+      ints = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      assertEquals(2, ints.size());
+      assertEquals("three", ints.get(3));
+      ints.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testTornTail()
+
+  /**
+   * After a checkpoint, truncation should drop the old segments, and replaying from the
+   * checkpoint should give the rest.
+   */
+  @Test
+  public void testTruncate() throws IOException {
+    Path dir = newDir();
+    try {
+      WriteAheadLog<Integer, String> log =
+          WriteAheadLog.open(dir, Serializer.INTEGER, Serializer.STRING, 256);
+      SkipList<Integer, String> checkpoint = new SkipList<Integer, String>(INTS);
+      for (int i = 0; i < 100; i++) {
+        log.logSet(i, "v" + i);
+        log.sync();
+        checkpoint.set(i, "v" + i);
+      } // for
+      long covered = log.lastLsn();
+      log.roll();
+      assertTrue(log.truncate(covered) > 0);
+      for (int i = 100; i < 110; i++) {
+        log.logSet(i, "v" + i);
+      } // for
+      log.logRemove(0);
+      log.close();
+
+      log = WriteAheadLog.open(dir, Serializer.INTEGER, Serializer.STRING, 256);
+      assertEquals(11, log.replay(checkpoint, covered));
+      log.close();
+      assertEquals(109, checkpoint.size());
+      assertFalse(checkpoint.containsKey(0));
+      assertEquals("v109", checkpoint.get(109));
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testTruncate()
+
+  /**
+   * Removals through an iterator or removeIf should still be synced when the caller holds
+   * the list's lock itself.
+   */
+  @Test
+  public void testRemoveUnderCallerLock() throws IOException {
+    Path dir = newDir();
+    try {
+      LoggedSkipList<Integer, String> logged =
+          LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      for (int i = 0; i < 100; i++) {
+        logged.set(i, SkipListTests.value(i));
+      } // for
+      long before = logged.log().syncs();
+      synchronized (logged) {
+        Iterator<Integer> keys = logged.keys();
+        keys.next();
+        keys.remove();
+      } // synchronized
+      assertEquals(before + 1, logged.log().syncs());
+      synchronized (logged) {
+        logged.removeIf((key, value) -> key % 2 == 0);
+      } // synchronized
+      assertEquals(before + 2, logged.log().syncs());
+      logged.close();
+
+      logged = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      assertEquals(50, logged.size());
+      assertFalse(logged.containsKey(0));
+      logged.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testRemoveUnderCallerLock()
+
+  /**
+   * Concurrent writers should all be logged, with fewer fsyncs than writes. And when every
+   * writer has appended before any of them syncs, one fsync should cover them all.
+   */
+  @Test
+  public void testGroupCommit() throws Exception {
+    Path dir = newDir();
+    try {
+      LoggedSkipList<Integer, String> logged =
+          LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      int threads = 8;
+      int perThread = 200;
+      Thread[] workers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+        int base = t * perThread;
+        workers[t] = new Thread(() -> {
+          for (int i = base; i < base + perThread; i++) {
+            logged.set(i, SkipListTests.value(i));
+          } // for
+        });
+        workers[t].start();
+      } // for
+      for (Thread worker : workers) {
+        worker.join();
+      } // for
+      assertEquals(threads * perThread, logged.size());
+      assertTrue(logged.log().syncs() < threads * perThread);
+
+      // Rewrite the same entries straight to the log, a round at a time: each writer appends
+      // one record, then they all sync, so the first sync of the round covers every record
+      WriteAheadLog<Integer, String> log = logged.log();
+      int rounds = 20;
+      long before = log.syncs();
+      CyclicBarrier appended = new CyclicBarrier(threads);
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      for (int t = 0; t < threads; t++) {
+        int base = t * perThread;
+        workers[t] = new Thread(() -> {
+          try {
+            for (int i = base; i < base + rounds; i++) {
+              long lsn = log.logSet(i, SkipListTests.value(i));
+              appended.await();
+              log.sync(lsn);
+            } // for
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          } // try/catch
+        });
+        workers[t].start();
+      } // for
+      for (Thread worker : workers) {
+        worker.join();
+      } // for
+      assertNull(failure.get());
+      assertEquals(rounds, log.syncs() - before);
+      logged.close();
+
+      LoggedSkipList<Integer, String> ints = LoggedSkipList.open(dir, INTS, Serializer.INTEGER, Serializer.STRING);
+      assertEquals(threads * perThread, ints.size());
+      for (int i = 0; i < threads * perThread; i++) {
+        assertEquals(SkipListTests.value(i), ints.get(i));
+      } // for
+      ints.close();
+    } finally {
+      deleteDir(dir);
+    } // try/finally
+  } // testGroupCommit()
+} // class WriteAheadLogTests